@@ -2,8 +2,10 @@ package com.minimalecommerce.app;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class MinimalecommerceApplication {
     public static void main(String[] args) {
         SpringApplication.run(MinimalecommerceApplication.class, args);
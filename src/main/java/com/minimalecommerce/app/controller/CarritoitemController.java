@@ -1,7 +1,9 @@
 package com.minimalecommerce.app.controller;
 
+import com.minimalecommerce.app.dto.ResumenCarrito;
 import com.minimalecommerce.app.model.Carritoitem;
 import com.minimalecommerce.app.service.CarritoitemService;
+import com.minimalecommerce.app.service.IdempotenciaService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -17,6 +19,9 @@ public class CarritoitemController {
     @Autowired
     private CarritoitemService carritoitemService;
 
+    @Autowired
+    private IdempotenciaService idempotenciaService;
+
     // ==================== OPERACIONES DEL CARRITO ====================
 
     @PostMapping("/agregar")
@@ -26,9 +31,7 @@ public class CarritoitemController {
             Long productoId = Long.valueOf(request.get("productoId").toString());
             Integer cantidad = Integer.valueOf(request.get("cantidad").toString());
 
-            System.out.println("🛒 Agregando al carrito - Usuario: " + usuarioId + ", Producto: " + productoId);
-
-            Carritoitem item = carritoitemService.agregarProductoAlCarrito(usuarioId, productoId, cantidad);
+            Map<String, Object> item = carritoitemService.agregarProductoAlCarrito(usuarioId, productoId, cantidad);
 
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
@@ -37,7 +40,29 @@ public class CarritoitemController {
 
             return ResponseEntity.ok(response);
         } catch (Exception e) {
-            System.err.println("❌ Error agregando al carrito: " + e.getMessage());
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
+    // Varias operaciones {tipo: agregar|fijar|eliminar, productoId, cantidad} en una sola petición
+    // y una sola transacción; responde con el carrito resultante
+    @PostMapping("/lote")
+    @SuppressWarnings("unchecked")
+    public ResponseEntity<Map<String, Object>> aplicarLote(@RequestBody Map<String, Object> request) {
+        try {
+            Long usuarioId = Long.valueOf(request.get("usuarioId").toString());
+            List<Map<String, Object>> operaciones = (List<Map<String, Object>>) request.get("operaciones");
+
+            Map<String, Object> carrito = carritoitemService.aplicarLote(usuarioId, operaciones);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("carrito", carrito);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
             Map<String, Object> response = new HashMap<>();
             response.put("success", false);
             response.put("error", e.getMessage());
@@ -118,12 +143,11 @@ public class CarritoitemController {
     @GetMapping("/contar/{usuarioId}")
     public ResponseEntity<Map<String, Object>> contarItems(@PathVariable Long usuarioId) {
         try {
-            Integer cantidadProductos = carritoitemService.contarProductosPorUsuario(usuarioId);
-            long cantidadItems = carritoitemService.contarItemsPorUsuario(usuarioId);
+            ResumenCarrito resumen = carritoitemService.obtenerResumen(usuarioId);
 
             Map<String, Object> response = new HashMap<>();
-            response.put("cantidadProductos", cantidadProductos);
-            response.put("cantidadItems", cantidadItems);
+            response.put("cantidadProductos", resumen.getCantidadProductos());
+            response.put("cantidadItems", resumen.getCantidadItems());
 
             return ResponseEntity.ok(response);
         } catch (Exception e) {
@@ -134,10 +158,24 @@ public class CarritoitemController {
         }
     }
 
+    // Líneas, unidades y subtotal sin cargar los items
+    @GetMapping("/resumen/{usuarioId}")
+    public ResponseEntity<ResumenCarrito> obtenerResumen(@PathVariable Long usuarioId) {
+        return ResponseEntity.ok(carritoitemService.obtenerResumen(usuarioId));
+    }
+
     // ==================== PROCESAMIENTO DE PEDIDOS ====================
 
+    // Con Idempotency-Key un reintento devuelve el pedido ya creado en lugar de crear otro
     @PostMapping("/procesar-pedido")
-    public ResponseEntity<Map<String, Object>> procesarPedido(@RequestBody Map<String, Object> request) {
+    public ResponseEntity<Map<String, Object>> procesarPedido(
+            @RequestHeader(value = IdempotenciaService.CABECERA, required = false) String claveIdempotencia,
+            @RequestBody Map<String, Object> request) {
+        return idempotenciaService.ejecutar("procesar-pedido", claveIdempotencia, request,
+                () -> procesarPedido(request));
+    }
+
+    private ResponseEntity<Map<String, Object>> procesarPedido(Map<String, Object> request) {
         try {
             Long usuarioId = Long.valueOf(request.get("usuarioId").toString());
             String direccionEntrega = request.get("direccionEntrega").toString();
@@ -1,10 +1,14 @@
 package com.minimalecommerce.app.controller;
 
+import com.minimalecommerce.app.dto.ResumenCategoria;
 import com.minimalecommerce.app.model.Categoria;
 import com.minimalecommerce.app.service.CategoriaService;
+import com.minimalecommerce.app.service.ResumenesCategorias;
+import com.minimalecommerce.app.service.VersionesCatalogo;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import java.util.List;
 import java.util.Optional;
 import java.util.HashMap;
@@ -17,11 +21,25 @@ public class CategoriaController {
     @Autowired
     private CategoriaService categoriaService;
 
-    // Obtener todas las categorías
+    @Autowired
+    private VersionesCatalogo versionesCatalogo;
+
+    @Autowired
+    private ResumenesCategorias resumenesCategorias;
+
+    // Obtener todas las categorías (304 si no cambiaron desde el ETag del cliente)
     @GetMapping
-    public ResponseEntity<List<Categoria>> obtenerTodasCategorias() {
-        List<Categoria> categorias = categoriaService.obtenerTodasCategorias();
-        return ResponseEntity.ok(categorias);
+    public ResponseEntity<List<Categoria>> obtenerTodasCategorias(WebRequest request) {
+        return VersionesCatalogo.condicional(request, versionesCatalogo.etagCategorias(),
+                categoriaService::obtenerTodasCategorias);
+    }
+
+    // Resumen de todas las categorías (conteos, rango de precios, stock) en una sola llamada.
+    // Depende de productos y categorías, así que se valida con la versión del catálogo
+    @GetMapping("/resumen")
+    public ResponseEntity<List<ResumenCategoria>> obtenerResumenCategorias(WebRequest request) {
+        return VersionesCatalogo.condicional(request, versionesCatalogo.etagCatalogo(),
+                resumenesCategorias::obtenerResumenes);
     }
 
     // Obtener categoría por ID
@@ -3,9 +3,12 @@ package com.minimalecommerce.app.controller;
 import com.minimalecommerce.app.model.Cupon;
 import com.minimalecommerce.app.model.Usuario;
 import com.minimalecommerce.app.service.CuponService;
+import com.minimalecommerce.app.service.IdempotenciaService;
+import com.minimalecommerce.app.service.VersionesCatalogo;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.*;
@@ -18,6 +21,12 @@ public class CuponController {
     @Autowired
     private CuponService cuponService;
 
+    @Autowired
+    private VersionesCatalogo versionesCatalogo;
+
+    @Autowired
+    private IdempotenciaService idempotenciaService;
+
     // ==================== OPERACIONES BÁSICAS ====================
 
     @PostMapping
@@ -128,13 +137,12 @@ public class CuponController {
         }
     }
 
+    // Responde 304 si los cupones no cambiaron desde el ETag del cliente (el ETag caduca cada minuto)
     @GetMapping("/validos")
-    public ResponseEntity<List<Cupon>> obtenerCuponesValidos() {
+    public ResponseEntity<List<Cupon>> obtenerCuponesValidos(WebRequest request) {
         try {
-            System.out.println("🔍 Solicitando cupones válidos...");
-            List<Cupon> cupones = cuponService.obtenerCuponesValidos();
-            System.out.println("✅ Cupones válidos obtenidos: " + cupones.size());
-            return ResponseEntity.ok(cupones);
+            return VersionesCatalogo.condicional(request, versionesCatalogo.etagCuponesValidos(),
+                    cuponService::obtenerCuponesValidos);
         } catch (Exception e) {
             System.err.println("❌ Error en endpoint /validos: " + e.getMessage());
             e.printStackTrace();
@@ -230,7 +238,14 @@ public class CuponController {
     // ==================== APLICACIÓN DE CUPONES ====================
 
     @PostMapping("/aplicar")
-    public ResponseEntity<Map<String, Object>> aplicarCupon(@RequestBody Map<String, Object> request) {
+    public ResponseEntity<Map<String, Object>> aplicarCupon(
+            @RequestHeader(value = IdempotenciaService.CABECERA, required = false) String claveIdempotencia,
+            @RequestBody Map<String, Object> request) {
+        return idempotenciaService.ejecutar("aplicar-cupon", claveIdempotencia, request,
+                () -> aplicarCupon(request));
+    }
+
+    private ResponseEntity<Map<String, Object>> aplicarCupon(Map<String, Object> request) {
         try {
             String codigo = request.get("codigo").toString();
             BigDecimal montoOriginal = new BigDecimal(request.get("montoOriginal").toString());
@@ -1,5 +1,6 @@
 package com.minimalecommerce.app.controller;
 
+import com.minimalecommerce.app.dto.FavoritoResumen;
 import com.minimalecommerce.app.model.Favorito;
 import com.minimalecommerce.app.service.FavoritoService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -59,8 +60,8 @@ public class FavoritoController {
     }
 
     @GetMapping("/usuario/{usuarioId}")
-    public ResponseEntity<List<Favorito>> obtenerFavoritosPorUsuario(@PathVariable Long usuarioId) {
-        List<Favorito> favoritos = favoritoService.obtenerFavoritosPorUsuario(usuarioId);
+    public ResponseEntity<List<FavoritoResumen>> obtenerFavoritosPorUsuario(@PathVariable Long usuarioId) {
+        List<FavoritoResumen> favoritos = favoritoService.obtenerFavoritosPorUsuario(usuarioId);
         return ResponseEntity.ok(favoritos);
     }
 
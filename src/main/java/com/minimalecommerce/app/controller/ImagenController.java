@@ -163,8 +163,8 @@ public class ImagenController {
             System.out.println("=== EDITANDO IMÁGENES PRODUCTO ID: " + productoId + " ===");
             System.out.println("Nuevas imágenes recibidas: " + nuevasImagenes.length);
 
-            // CORREGIR: Usar método correcto del ProductoService
-            Producto producto = productoService.obtenerProductoPorId(productoId);
+            // Se lee sin caché porque la instancia se modifica y se guarda
+            Producto producto = productoService.obtenerProductoParaEditar(productoId);
             if (producto == null) {
                 response.put("error", "Producto no encontrado");
                 return ResponseEntity.notFound().build();
@@ -206,8 +206,8 @@ public class ImagenController {
         try {
             System.out.println("=== AGREGANDO IMÁGENES PRODUCTO ID: " + productoId + " ===");
 
-            // CORREGIR: Usar método correcto del ProductoService
-            Producto producto = productoService.obtenerProductoPorId(productoId);
+            // Se lee sin caché porque la instancia se modifica y se guarda
+            Producto producto = productoService.obtenerProductoParaEditar(productoId);
             if (producto == null) {
                 response.put("error", "Producto no encontrado");
                 return ResponseEntity.notFound().build();
@@ -244,8 +244,8 @@ public class ImagenController {
         try {
             System.out.println("=== ELIMINANDO TODAS LAS IMÁGENES PRODUCTO ID: " + productoId + " ===");
 
-            // CORREGIR: Usar método correcto del ProductoService
-            Producto producto = productoService.obtenerProductoPorId(productoId);
+            // Se lee sin caché porque la instancia se modifica y se guarda
+            Producto producto = productoService.obtenerProductoParaEditar(productoId);
             if (producto == null) {
                 response.put("error", "Producto no encontrado");
                 return ResponseEntity.notFound().build();
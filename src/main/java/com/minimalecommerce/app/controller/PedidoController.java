@@ -3,9 +3,11 @@ package com.minimalecommerce.app.controller;
 import com.minimalecommerce.app.model.Pedido;
 import com.minimalecommerce.app.model.Pedidoitem;
 import com.minimalecommerce.app.model.EstadoPedido;
+import com.minimalecommerce.app.service.DespachadorOutbox;
 import com.minimalecommerce.app.service.PedidoService;
 import com.minimalecommerce.app.service.PedidoitemService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import java.util.List;
@@ -13,7 +15,6 @@ import java.util.Optional;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.ArrayList;
-import java.math.BigDecimal;
 
 @RestController
 @RequestMapping("/api/pedidos")
@@ -26,6 +27,9 @@ public class PedidoController {
     @Autowired
     private PedidoitemService pedidoitemService;
 
+    @Autowired
+    private DespachadorOutbox despachadorOutbox;
+
     // ==================== PARA COMPRADORES ====================
 
     @GetMapping("/usuario/{usuarioId}")
@@ -61,6 +65,45 @@ public class PedidoController {
         }
     }
 
+    // Los N pedidos más recientes (por defecto 20, máximo 100), sin items
+    @GetMapping("/usuario/{usuarioId}/recientes")
+    public ResponseEntity<List<Map<String, Object>>> obtenerPedidosRecientesPorUsuario(@PathVariable Long usuarioId,
+                                                                                       @RequestParam(defaultValue = "0") int limite) {
+        try {
+            List<Map<String, Object>> pedidos = new ArrayList<>();
+            for (Pedido pedido : pedidoService.obtenerPedidosRecientesPorUsuario(usuarioId, limite)) {
+                Map<String, Object> pedidoData = new HashMap<>();
+                pedidoData.put("id", pedido.getId());
+                pedidoData.put("fechapedido", pedido.getFechapedido());
+                pedidoData.put("total", pedido.getTotal());
+                pedidoData.put("estado", pedido.getEstado());
+                pedidoData.put("direccionentrega", pedido.getDireccionentrega());
+                pedidos.add(pedidoData);
+            }
+            return ResponseEntity.ok(pedidos);
+
+        } catch (Exception e) {
+            System.err.println("❌ Error obteniendo pedidos recientes: " + e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // Historial paginado por cursor: dos consultas por página sin importar cuántos pedidos tenga
+    // el comprador. Para la página siguiente se reenvía "siguienteCursor".
+    @GetMapping("/usuario/{usuarioId}/historial")
+    public ResponseEntity<?> obtenerHistorialPorUsuario(@PathVariable Long usuarioId,
+                                                        @RequestParam(required = false) String cursor,
+                                                        @RequestParam(required = false) Integer limite) {
+        try {
+            return ResponseEntity.ok(pedidoService.obtenerHistorialPorUsuario(usuarioId, cursor, limite));
+        } catch (Exception e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<Map<String, Object>> obtenerPedidoPorId(@PathVariable Long id) {
         try {
@@ -90,15 +133,16 @@ public class PedidoController {
 
     // ==================== PARA VENDEDORES ====================
 
+    // Con "cursor" o "limite" responde paginado por cursor en lugar de la lista completa
     @GetMapping("/vendedor/{vendedorId}")
-    public ResponseEntity<List<Map<String, Object>>> obtenerPedidosPorVendedor(@PathVariable Long vendedorId) {
+    public ResponseEntity<?> obtenerPedidosPorVendedor(@PathVariable Long vendedorId,
+                                                       @RequestParam(required = false) String cursor,
+                                                       @RequestParam(required = false) Integer limite) {
         try {
-            System.out.println("🏪 Obteniendo pedidos para vendedor: " + vendedorId);
-
-            List<Map<String, Object>> pedidosVendedor = pedidoService.obtenerPedidosPorVendedor(vendedorId);
-
-            System.out.println("✅ Pedidos de vendedor obtenidos: " + pedidosVendedor.size());
-            return ResponseEntity.ok(pedidosVendedor);
+            if (cursor != null || limite != null) {
+                return ResponseEntity.ok(pedidoService.obtenerPedidosPorVendedorPagina(vendedorId, cursor, limite));
+            }
+            return ResponseEntity.ok(pedidoService.obtenerPedidosPorVendedor(vendedorId));
 
         } catch (Exception e) {
             System.err.println("❌ Error obteniendo pedidos de vendedor: " + e.getMessage());
@@ -106,6 +150,8 @@ public class PedidoController {
         }
     }
 
+    // "version" es opcional: si se envía, el cambio solo se aplica si nadie modificó el pedido desde
+    // que el cliente lo leyó (409 en caso contrario)
     @PutMapping("/{id}/estado")
     public ResponseEntity<Map<String, Object>> actualizarEstadoPedido(@PathVariable Long id,
                                                                       @RequestBody Map<String, String> request) {
@@ -114,7 +160,8 @@ public class PedidoController {
             System.out.println("🔄 Actualizando estado del pedido " + id + " a: " + nuevoEstado);
 
             EstadoPedido estado = EstadoPedido.valueOf(nuevoEstado.toUpperCase());
-            Pedido pedidoActualizado = pedidoService.actualizarEstadoPedido(id, estado);
+            Long version = request.get("version") != null ? Long.valueOf(request.get("version")) : null;
+            Pedido pedidoActualizado = pedidoService.actualizarEstadoPedido(id, estado, version);
 
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
@@ -124,6 +171,9 @@ public class PedidoController {
             System.out.println("✅ Estado actualizado exitosamente");
             return ResponseEntity.ok(response);
 
+        } catch (OptimisticLockingFailureException e) {
+            // 409, lo responde GlobalExceptionHandler
+            throw e;
         } catch (Exception e) {
             System.err.println("❌ Error actualizando estado: " + e.getMessage());
             Map<String, Object> response = new HashMap<>();
@@ -133,40 +183,53 @@ public class PedidoController {
         }
     }
 
-    // ==================== ESTADÍSTICAS ====================
-
-    @GetMapping("/usuario/{usuarioId}/estadisticas")
-    public ResponseEntity<Map<String, Object>> obtenerEstadisticasPedidos(@PathVariable Long usuarioId) {
+    // Cambio de estado masivo: {"pedidoIds": [...], "estado": "ENVIADO"}. Devuelve el resultado de
+    // cada id (ACTUALIZADO, NO_ENCONTRADO o TRANSICION_INVALIDA)
+    @PutMapping("/estado/lote")
+    @SuppressWarnings("unchecked")
+    public ResponseEntity<Map<String, Object>> cambiarEstadoLote(@RequestBody Map<String, Object> request) {
         try {
-            Map<String, Object> estadisticas = new HashMap<>();
-
-            List<Pedido> todosPedidos = pedidoService.obtenerPedidosPorUsuario(usuarioId);
-            estadisticas.put("totalPedidos", todosPedidos.size());
+            List<Long> pedidoIds = new ArrayList<>();
+            for (Object id : (List<Object>) request.get("pedidoIds")) {
+                pedidoIds.add(id != null ? Long.valueOf(id.toString()) : null);
+            }
+            EstadoPedido estado = EstadoPedido.valueOf(request.get("estado").toString().toUpperCase());
 
-            // Contar por estados
-            long pendientes = todosPedidos.stream().filter(p -> p.getEstado() == EstadoPedido.PENDIENTE).count();
-            long confirmados = todosPedidos.stream().filter(p -> p.getEstado() == EstadoPedido.CONFIRMADO).count();
-            long enviados = todosPedidos.stream().filter(p -> p.getEstado() == EstadoPedido.ENVIADO).count();
-            long entregados = todosPedidos.stream().filter(p -> p.getEstado() == EstadoPedido.ENTREGADO).count();
-            long cancelados = todosPedidos.stream().filter(p -> p.getEstado() == EstadoPedido.CANCELADO).count();
+            Map<String, Object> response = pedidoService.cambiarEstadoLote(pedidoIds, estado);
+            response.put("success", true);
+            return ResponseEntity.ok(response);
 
-            estadisticas.put("pendientes", pendientes);
-            estadisticas.put("confirmados", confirmados);
-            estadisticas.put("enviados", enviados);
-            estadisticas.put("entregados", entregados);
-            estadisticas.put("cancelados", cancelados);
+        } catch (OptimisticLockingFailureException e) {
+            // 409, lo responde GlobalExceptionHandler
+            throw e;
+        } catch (Exception e) {
+            System.err.println("❌ Error en cambio de estado masivo: " + e.getMessage());
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
 
-            // Total gastado
-            BigDecimal totalGastado = todosPedidos.stream()
-                    .map(Pedido::getTotal)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-            estadisticas.put("totalGastado", totalGastado);
+    // ==================== ESTADÍSTICAS ====================
 
-            return ResponseEntity.ok(estadisticas);
+    // Desde los contadores del usuario: no depende de la cantidad de pedidos
+    @GetMapping("/usuario/{usuarioId}/estadisticas")
+    public ResponseEntity<Map<String, Object>> obtenerEstadisticasPedidos(@PathVariable Long usuarioId) {
+        try {
+            return ResponseEntity.ok(pedidoService.obtenerEstadisticasPorUsuario(usuarioId));
 
         } catch (Exception e) {
             System.err.println("❌ Error obteniendo estadísticas: " + e.getMessage());
             return ResponseEntity.badRequest().build();
         }
     }
+
+    // ==================== EFECTOS POSTERIORES AL PEDIDO ====================
+
+    // Estado del outbox: pendientes, fallidos y latencia entre la confirmación y la aplicación
+    @GetMapping("/outbox/estadisticas")
+    public ResponseEntity<Map<String, Object>> obtenerEstadisticasOutbox() {
+        return ResponseEntity.ok(despachadorOutbox.estadisticas());
+    }
 }
@@ -1,22 +1,38 @@
 package com.minimalecommerce.app.controller;
 
+import com.minimalecommerce.app.dto.FiltroCatalogo;
+import com.minimalecommerce.app.dto.ProductoResumen;
+import com.minimalecommerce.app.dto.ResultadoFacetas;
 import com.minimalecommerce.app.model.Producto;
 import com.minimalecommerce.app.model.Categoria;
 import com.minimalecommerce.app.service.ProductoService;
 import com.minimalecommerce.app.service.CategoriaService;
+import com.minimalecommerce.app.service.ExportacionCatalogoService;
+import com.minimalecommerce.app.service.ReservasStock;
+import com.minimalecommerce.app.service.InventarioService;
+import com.minimalecommerce.app.service.VersionesCatalogo;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
 import java.util.*;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/productos")
@@ -28,11 +44,31 @@ public class ProductoController {
     @Autowired
     private CategoriaService categoriaService;
 
+    @Autowired
+    private VersionesCatalogo versionesCatalogo;
+
+    @Autowired
+    private InventarioService inventarioService;
+
+    @Autowired
+    private ExportacionCatalogoService exportacionCatalogoService;
+
+    @Autowired
+    private ReservasStock reservasStock;
+
     // Obtener todos los productos activos
+    // Con "cursor" o "limite" responde paginado por cursor en lugar de la lista completa.
+    // Responde 304 si el catálogo no cambió desde el ETag que envía el cliente.
     @GetMapping
-    public ResponseEntity<List<Producto>> obtenerTodosProductos() {
-        List<Producto> productos = productoService.obtenerProductosActivos();
-        return ResponseEntity.ok(productos);
+    public ResponseEntity<?> obtenerTodosProductos(@RequestParam(required = false) String cursor,
+                                                   @RequestParam(required = false) Integer limite,
+                                                   WebRequest request) {
+        return VersionesCatalogo.condicional(request, versionesCatalogo.etagCatalogo(), () -> {
+            if (cursor != null || limite != null) {
+                return productoService.obtenerProductosActivosPagina(cursor, limite);
+            }
+            return productoService.obtenerProductosActivos();
+        });
     }
 
     // Obtener producto por ID
@@ -47,18 +83,41 @@ public class ProductoController {
         }
     }
 
+    // Unidades disponibles (stock menos reservas de carritos), sin consultar la base
+    @GetMapping("/{id}/disponible")
+    public ResponseEntity<Map<String, Object>> obtenerDisponibilidad(@PathVariable Long id) {
+        Map<String, Object> disponibilidad = reservasStock.disponibilidad(id);
+        if (disponibilidad == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(disponibilidad);
+    }
+
     // Obtener productos por categoría
     @GetMapping("/categoria/{categoriaId}")
-    public ResponseEntity<List<Producto>> obtenerProductosPorCategoria(@PathVariable Long categoriaId) {
-        List<Producto> productos = productoService.obtenerProductosPorCategoria(categoriaId);
-        return ResponseEntity.ok(productos);
+    public ResponseEntity<?> obtenerProductosPorCategoria(@PathVariable Long categoriaId,
+                                                          @RequestParam(required = false) String cursor,
+                                                          @RequestParam(required = false) Integer limite,
+                                                          WebRequest request) {
+        return VersionesCatalogo.condicional(request, versionesCatalogo.etagCategoria(categoriaId), () -> {
+            if (cursor != null || limite != null) {
+                return productoService.obtenerProductosPorCategoriaPagina(categoriaId, cursor, limite);
+            }
+            return productoService.obtenerProductosPorCategoria(categoriaId);
+        });
     }
 
     // Obtener productos disponibles (con stock)
     @GetMapping("/disponibles")
-    public ResponseEntity<List<Producto>> obtenerProductosDisponibles() {
-        List<Producto> productos = productoService.obtenerProductosDisponibles();
-        return ResponseEntity.ok(productos);
+    public ResponseEntity<?> obtenerProductosDisponibles(@RequestParam(required = false) String cursor,
+                                                         @RequestParam(required = false) Integer limite,
+                                                         WebRequest request) {
+        return VersionesCatalogo.condicional(request, versionesCatalogo.etagCatalogo(), () -> {
+            if (cursor != null || limite != null) {
+                return productoService.obtenerProductosDisponiblesPagina(cursor, limite);
+            }
+            return productoService.obtenerProductosDisponibles();
+        });
     }
 
     // Crear nuevo producto
@@ -84,26 +143,60 @@ public class ProductoController {
         return ResponseEntity.ok(response);
     }
 
-    // Buscar productos por nombre
+    // Buscar productos por nombre, descripción o categoría (ordenados por relevancia)
     @GetMapping("/buscar/{nombre}")
-    public ResponseEntity<List<Producto>> buscarProductos(@PathVariable String nombre) {
-        List<Producto> productos = productoService.buscarProductos(nombre);
+    public ResponseEntity<List<ProductoResumen>> buscarProductos(@PathVariable String nombre,
+                                                                 @RequestParam(required = false) Integer limite) {
+        List<ProductoResumen> productos = productoService.buscarProductos(nombre, limite);
         return ResponseEntity.ok(productos);
     }
 
     // Buscar productos por rango de precio
     @GetMapping("/precio")
-    public ResponseEntity<List<Producto>> buscarProductosPorPrecio(
+    public ResponseEntity<?> buscarProductosPorPrecio(
             @RequestParam BigDecimal precioMin,
-            @RequestParam BigDecimal precioMax) {
-        List<Producto> productos = productoService.buscarProductosPorPrecio(precioMin, precioMax);
+            @RequestParam BigDecimal precioMax,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limite) {
+        if (cursor != null || limite != null) {
+            return ResponseEntity.ok(productoService.buscarProductosPorPrecioPagina(precioMin, precioMax, cursor, limite));
+        }
+        List<ProductoResumen> productos = productoService.buscarProductosPorPrecio(precioMin, precioMax);
         return ResponseEntity.ok(productos);
     }
 
+    // Filtrar el catálogo por facetas combinables, con conteos por faceta
+    @GetMapping("/filtrar")
+    public ResponseEntity<ResultadoFacetas<ProductoResumen>> filtrarProductos(
+            @RequestParam(required = false) List<Long> categoriaId,
+            @RequestParam(required = false) List<Long> vendedorId,
+            @RequestParam(required = false) BigDecimal precioMin,
+            @RequestParam(required = false) BigDecimal precioMax,
+            @RequestParam(required = false) Boolean conStock,
+            @RequestParam(required = false) Boolean preorden,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limite) {
+        FiltroCatalogo filtro = new FiltroCatalogo();
+        filtro.setCategorias(categoriaId);
+        filtro.setVendedores(vendedorId);
+        filtro.setPrecioMin(precioMin);
+        filtro.setPrecioMax(precioMax);
+        filtro.setConStock(conStock);
+        filtro.setPreorden(preorden);
+        return ResponseEntity.ok(productoService.filtrarCatalogo(filtro, cursor, limite));
+    }
+
+    // Estadísticas de la caché de productos (aciertos, desalojos, memoria estimada)
+    @GetMapping("/cache/estadisticas")
+    public ResponseEntity<Map<String, Object>> obtenerEstadisticasCache() {
+        return ResponseEntity.ok(productoService.obtenerEstadisticasCache());
+    }
+
     // Obtener productos populares
     @GetMapping("/populares")
-    public ResponseEntity<List<Producto>> obtenerProductosPopulares() {
-        List<Producto> productos = productoService.obtenerProductosPopulares();
+    public ResponseEntity<List<ProductoResumen>> obtenerProductosPopulares(@RequestParam(required = false) Long categoriaId,
+                                                                           @RequestParam(required = false) Integer limite) {
+        List<ProductoResumen> productos = productoService.obtenerProductosPopulares(categoriaId, limite);
         return ResponseEntity.ok(productos);
     }
 
@@ -118,6 +211,44 @@ public class ProductoController {
         return ResponseEntity.ok(response);
     }
 
+    // Actualización masiva de stock y precio (sincronización de inventario).
+    // El cuerpo es un arreglo JSON [{productoId, stock, precio}, ...] que se procesa en streaming.
+    @PostMapping(value = "/inventario/lote", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Map<String, Object>> actualizarInventarioLote(HttpServletRequest request) throws IOException {
+        return ResponseEntity.ok(inventarioService.actualizarInventarioLote(request.getInputStream()));
+    }
+
+    // Exportación del catálogo completo en NDJSON (un producto por línea), en streaming.
+    // Con updatedSince solo se exportan los productos modificados desde esa fecha.
+    // Se comprime con gzip si el cliente lo acepta.
+    @GetMapping(value = "/exportar", produces = "application/x-ndjson")
+    public void exportarCatalogo(
+            @RequestParam(name = "updatedSince", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime actualizadoDesde,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+
+        String aceptadas = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        boolean gzip = aceptadas != null && aceptadas.toLowerCase().contains("gzip");
+
+        response.setContentType("application/x-ndjson");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+
+        OutputStream salida = response.getOutputStream();
+        if (gzip) {
+            try (GZIPOutputStream comprimida = new GZIPOutputStream(salida, 8192)) {
+                exportacionCatalogoService.exportarNdjson(actualizadoDesde, comprimida);
+            }
+        } else {
+            exportacionCatalogoService.exportarNdjson(actualizadoDesde, salida);
+            salida.flush();
+        }
+    }
+
     //Subir imagenes y crear producto con imagen
 
     @PostMapping("/crear-con-imagen")
@@ -189,9 +320,9 @@ public class ProductoController {
 
     // Obtener productos por vendedor
     @GetMapping("/vendedor/{vendedorId}")
-    public ResponseEntity<List<Producto>> obtenerProductosPorVendedor(@PathVariable Long vendedorId) {
+    public ResponseEntity<List<ProductoResumen>> obtenerProductosPorVendedor(@PathVariable Long vendedorId) {
         try {
-            List<Producto> productos = productoService.obtenerProductosPorVendedor(vendedorId);
+            List<ProductoResumen> productos = productoService.obtenerProductosPorVendedor(vendedorId);
             return ResponseEntity.ok(productos);
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
@@ -214,9 +345,9 @@ public class ProductoController {
     }
 
     @GetMapping("/preorden")
-    public ResponseEntity<List<Producto>> obtenerProductosPreorden() {
+    public ResponseEntity<List<ProductoResumen>> obtenerProductosPreorden() {
         try {
-            List<Producto> productos = productoService.obtenerProductosPreorden();
+            List<ProductoResumen> productos = productoService.obtenerProductosPreorden();
             return ResponseEntity.ok(productos);
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
@@ -149,6 +149,26 @@ public class ResenaController {
         }
     }
 
+    // Las N más recientes (por defecto 20, máximo 100), leyendo solo esas filas
+    @GetMapping("/producto/{productoId}/recientes")
+    public ResponseEntity<Map<String, Object>> obtenerResenasRecientesPorProducto(@PathVariable Long productoId,
+                                                                                  @RequestParam(defaultValue = "0") int limite) {
+        try {
+            List<Resena> resenas = resenaService.obtenerResenasRecientesPorProducto(productoId, limite);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("data", resenas);
+            response.put("productoId", productoId);
+            response.put("total", resenas.size());
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("success", false);
+            error.put("error", "Error al obtener reseñas recientes: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
+        }
+    }
+
     @GetMapping("/producto/{productoId}/promedio")
     public ResponseEntity<Map<String, Object>> obtenerPromedioCalificacion(@PathVariable Long productoId) {
         try {
@@ -0,0 +1,33 @@
+package com.minimalecommerce.app.dto;
+
+import java.math.BigDecimal;
+
+// Fila de la sincronización masiva de inventario. Stock y precio son los valores nuevos;
+// el que venga null se deja como está.
+public class ActualizacionInventario {
+
+    private Long productoId;
+    private Integer stock;
+    private BigDecimal precio;
+
+    public ActualizacionInventario() {
+    }
+
+    public ActualizacionInventario(Long productoId, Integer stock, BigDecimal precio) {
+        this.productoId = productoId;
+        this.stock = stock;
+        this.precio = precio;
+    }
+
+    public Long getProductoId() { return productoId; }
+
+    public void setProductoId(Long productoId) { this.productoId = productoId; }
+
+    public Integer getStock() { return stock; }
+
+    public void setStock(Integer stock) { this.stock = stock; }
+
+    public BigDecimal getPrecio() { return precio; }
+
+    public void setPrecio(BigDecimal precio) { this.precio = precio; }
+}
@@ -0,0 +1,79 @@
+package com.minimalecommerce.app.dto;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+// Posición dentro de un listado ordenado por (clave de orden, id).
+// Se serializa como token Base64 URL-safe para que el cliente lo trate como opaco.
+public class CursorCatalogo {
+
+    public static final String ORDEN_ID = "id";
+    public static final String ORDEN_PRECIO = "precio";
+    public static final String ORDEN_FECHA = "fecha";
+
+    private final String orden;
+    private final String valor;
+    private final Long ultimoId;
+
+    private CursorCatalogo(String orden, String valor, Long ultimoId) {
+        this.orden = orden;
+        this.valor = valor;
+        this.ultimoId = ultimoId;
+    }
+
+    public static CursorCatalogo porId(Long id) {
+        return new CursorCatalogo(ORDEN_ID, "", id);
+    }
+
+    public static CursorCatalogo porPrecio(BigDecimal precio, Long id) {
+        return new CursorCatalogo(ORDEN_PRECIO, precio.toPlainString(), id);
+    }
+
+    public static CursorCatalogo porFecha(LocalDateTime fecha, Long id) {
+        return new CursorCatalogo(ORDEN_FECHA, fecha.toString(), id);
+    }
+
+    public String codificar() {
+        String plano = orden + ":" + valor + ":" + ultimoId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(plano.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Devuelve null si no hay cursor (primera página)
+    public static CursorCatalogo decodificar(String token, String ordenEsperado) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+
+        try {
+            String plano = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            // El valor puede contener ':' (una fecha), así que el id se toma después del último
+            int inicioValor = plano.indexOf(':');
+            int finValor = plano.lastIndexOf(':');
+            if (inicioValor < 0 || finValor == inicioValor || !plano.substring(0, inicioValor).equals(ordenEsperado)) {
+                throw new IllegalArgumentException("orden no coincide");
+            }
+            CursorCatalogo cursor = new CursorCatalogo(ordenEsperado, plano.substring(inicioValor + 1, finValor),
+                    Long.valueOf(plano.substring(finValor + 1)));
+            // Validar que el valor sea interpretable según el orden
+            if (ORDEN_PRECIO.equals(ordenEsperado)) {
+                cursor.getValorDecimal();
+            } else if (ORDEN_FECHA.equals(ordenEsperado)) {
+                cursor.getValorFecha();
+            }
+            return cursor;
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new RuntimeException("Cursor de paginación inválido");
+        }
+    }
+
+    public String getOrden() { return orden; }
+
+    public Long getUltimoId() { return ultimoId; }
+
+    public BigDecimal getValorDecimal() { return new BigDecimal(valor); }
+
+    public LocalDateTime getValorFecha() { return LocalDateTime.parse(valor); }
+}
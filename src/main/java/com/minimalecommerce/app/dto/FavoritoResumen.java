@@ -0,0 +1,30 @@
+package com.minimalecommerce.app.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Vista de listado de un favorito con el resumen del producto, sin el usuario ni la entidad Producto
+public class FavoritoResumen {
+
+    private final Long id;
+    private final LocalDateTime fechaagregado;
+    private final Boolean notificarstock;
+    private final ProductoResumen producto;
+
+    public FavoritoResumen(Long id, LocalDateTime fechaagregado, Boolean notificarstock,
+                           Long productoId, String nombre, BigDecimal precio, Integer stock, String imagenes,
+                           Boolean activo, String categoria, String vendedor) {
+        this.id = id;
+        this.fechaagregado = fechaagregado;
+        this.notificarstock = notificarstock;
+        this.producto = new ProductoResumen(productoId, nombre, precio, stock, imagenes, activo, categoria, vendedor);
+    }
+
+    public Long getId() { return id; }
+
+    public LocalDateTime getFechaagregado() { return fechaagregado; }
+
+    public Boolean getNotificarstock() { return notificarstock; }
+
+    public ProductoResumen getProducto() { return producto; }
+}
@@ -0,0 +1,34 @@
+package com.minimalecommerce.app.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+// Combinación de filtros del catálogo. Dentro de una misma faceta los valores se combinan
+// con OR (categoría 1 o 2) y entre facetas con AND (categoría 1 y con stock).
+public class FiltroCatalogo {
+
+    private List<Long> categorias;
+    private List<Long> vendedores;
+    private BigDecimal precioMin;
+    private BigDecimal precioMax;
+    private Boolean conStock;
+    private Boolean preorden;
+
+    public List<Long> getCategorias() { return categorias; }
+    public void setCategorias(List<Long> categorias) { this.categorias = categorias; }
+
+    public List<Long> getVendedores() { return vendedores; }
+    public void setVendedores(List<Long> vendedores) { this.vendedores = vendedores; }
+
+    public BigDecimal getPrecioMin() { return precioMin; }
+    public void setPrecioMin(BigDecimal precioMin) { this.precioMin = precioMin; }
+
+    public BigDecimal getPrecioMax() { return precioMax; }
+    public void setPrecioMax(BigDecimal precioMax) { this.precioMax = precioMax; }
+
+    public Boolean getConStock() { return conStock; }
+    public void setConStock(Boolean conStock) { this.conStock = conStock; }
+
+    public Boolean getPreorden() { return preorden; }
+    public void setPreorden(Boolean preorden) { this.preorden = preorden; }
+}
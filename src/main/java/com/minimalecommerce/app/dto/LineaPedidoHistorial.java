@@ -0,0 +1,50 @@
+package com.minimalecommerce.app.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.minimalecommerce.app.model.Dinero;
+
+import java.math.BigDecimal;
+
+// Línea de un pedido en el historial del comprador: solo los datos del producto que se muestran,
+// sin cargar Producto, su Categoria ni su vendedor
+public class LineaPedidoHistorial {
+
+    private final Long id;
+    private final Long pedidoId;
+    private final Long productoId;
+    private final String productoNombre;
+    private final String productoImagen;
+    private final Integer cantidad;
+    private final BigDecimal preciounitario;
+
+    public LineaPedidoHistorial(Long id, Long pedidoId, Long productoId, String productoNombre,
+                                String productoImagen, Integer cantidad, BigDecimal preciounitario) {
+        this.id = id;
+        this.pedidoId = pedidoId;
+        this.productoId = productoId;
+        this.productoNombre = productoNombre;
+        this.productoImagen = productoImagen;
+        this.cantidad = cantidad;
+        this.preciounitario = preciounitario;
+    }
+
+    public Long getId() { return id; }
+
+    // Ya va anidada dentro de su pedido
+    @JsonIgnore
+    public Long getPedidoId() { return pedidoId; }
+
+    public Long getProductoId() { return productoId; }
+
+    public String getProductoNombre() { return productoNombre; }
+
+    public String getProductoImagen() { return productoImagen; }
+
+    public Integer getCantidad() { return cantidad; }
+
+    public BigDecimal getPreciounitario() { return preciounitario; }
+
+    public BigDecimal getSubtotal() {
+        return Dinero.aBigDecimal(Dinero.multiplicar(Dinero.centavos(preciounitario), cantidad));
+    }
+}
@@ -0,0 +1,49 @@
+package com.minimalecommerce.app.dto;
+
+import java.util.List;
+import java.util.function.Function;
+
+// Página de resultados paginada por cursor (keyset). El cursor es opaco para el cliente:
+// basta con reenviar "siguienteCursor" para pedir la página siguiente.
+public class PaginaCursor<T> {
+
+    public static final int LIMITE_POR_DEFECTO = 20;
+    public static final int LIMITE_MAXIMO = 100;
+
+    private final List<T> items;
+    private final String siguienteCursor;
+    private final boolean hayMas;
+    private final int limite;
+
+    public PaginaCursor(List<T> items, String siguienteCursor, boolean hayMas, int limite) {
+        this.items = items;
+        this.siguienteCursor = siguienteCursor;
+        this.hayMas = hayMas;
+        this.limite = limite;
+    }
+
+    // Acota el tamaño de página pedido por el cliente
+    public static int normalizarLimite(Integer limite) {
+        if (limite == null || limite <= 0) {
+            return LIMITE_POR_DEFECTO;
+        }
+        return Math.min(limite, LIMITE_MAXIMO);
+    }
+
+    // Construye la página a partir de una consulta que pidió "limite + 1" filas:
+    // la fila sobrante solo indica que existe una página siguiente
+    public static <T> PaginaCursor<T> desde(List<T> filas, int limite, Function<T, String> cursorDe) {
+        boolean hayMas = filas.size() > limite;
+        List<T> items = hayMas ? filas.subList(0, limite) : filas;
+        String siguiente = hayMas ? cursorDe.apply(items.get(items.size() - 1)) : null;
+        return new PaginaCursor<>(items, siguiente, hayMas, limite);
+    }
+
+    public List<T> getItems() { return items; }
+
+    public String getSiguienteCursor() { return siguienteCursor; }
+
+    public boolean isHayMas() { return hayMas; }
+
+    public int getLimite() { return limite; }
+}
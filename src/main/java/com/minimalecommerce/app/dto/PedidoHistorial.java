@@ -0,0 +1,43 @@
+package com.minimalecommerce.app.dto;
+
+import com.minimalecommerce.app.model.EstadoPedido;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Pedido del historial del comprador con sus líneas. Se arma con dos consultas por página:
+// los pedidos y después todas sus líneas con un único IN.
+public class PedidoHistorial {
+
+    private final Long id;
+    private final LocalDateTime fechapedido;
+    private final BigDecimal total;
+    private final EstadoPedido estado;
+    private final String direccionentrega;
+    private final List<LineaPedidoHistorial> items = new ArrayList<>();
+
+    public PedidoHistorial(Long id, LocalDateTime fechapedido, BigDecimal total, EstadoPedido estado,
+                           String direccionentrega) {
+        this.id = id;
+        this.fechapedido = fechapedido;
+        this.total = total;
+        this.estado = estado;
+        this.direccionentrega = direccionentrega;
+    }
+
+    public Long getId() { return id; }
+
+    public LocalDateTime getFechapedido() { return fechapedido; }
+
+    public BigDecimal getTotal() { return total; }
+
+    public EstadoPedido getEstado() { return estado; }
+
+    public String getDireccionentrega() { return direccionentrega; }
+
+    public List<LineaPedidoHistorial> getItems() { return items; }
+
+    public int getCantidadItems() { return items.size(); }
+}
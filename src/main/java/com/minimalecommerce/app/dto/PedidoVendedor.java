@@ -0,0 +1,48 @@
+package com.minimalecommerce.app.dto;
+
+import com.minimalecommerce.app.model.EstadoPedido;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Pedido en el listado de un vendedor: datos del pedido más la parte que le corresponde
+// (subtotal y unidades de sus productos)
+public class PedidoVendedor {
+
+    private final Long pedidoId;
+    private final LocalDateTime fechaPedido;
+    private final BigDecimal total;
+    private final BigDecimal subtotalVendedor;
+    private final Integer unidades;
+    private final EstadoPedido estado;
+    private final String compradorNombre;
+    private final String direccionEntrega;
+
+    public PedidoVendedor(Long pedidoId, LocalDateTime fechaPedido, BigDecimal total, BigDecimal subtotalVendedor,
+                          Integer unidades, EstadoPedido estado, String compradorNombre, String direccionEntrega) {
+        this.pedidoId = pedidoId;
+        this.fechaPedido = fechaPedido;
+        this.total = total;
+        this.subtotalVendedor = subtotalVendedor;
+        this.unidades = unidades;
+        this.estado = estado;
+        this.compradorNombre = compradorNombre;
+        this.direccionEntrega = direccionEntrega;
+    }
+
+    public Long getPedidoId() { return pedidoId; }
+
+    public LocalDateTime getFechaPedido() { return fechaPedido; }
+
+    public BigDecimal getTotal() { return total; }
+
+    public BigDecimal getSubtotalVendedor() { return subtotalVendedor; }
+
+    public Integer getUnidades() { return unidades; }
+
+    public EstadoPedido getEstado() { return estado; }
+
+    public String getCompradorNombre() { return compradorNombre; }
+
+    public String getDireccionEntrega() { return direccionEntrega; }
+}
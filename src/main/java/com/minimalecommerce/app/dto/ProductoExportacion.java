@@ -0,0 +1,72 @@
+package com.minimalecommerce.app.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Fila de la exportación NDJSON del catálogo para partners. Se construye con un constructor
+// expression, así que no pasa por el contexto de persistencia y no se acumula en memoria.
+public class ProductoExportacion {
+
+    private final Long id;
+    private final String nombre;
+    private final String descripcion;
+    private final BigDecimal precio;
+    private final Integer stock;
+    private final String imagen;
+    private final Boolean activo;
+    private final Boolean espreorden;
+    private final Long categoriaId;
+    private final String categoria;
+    private final Long vendedorId;
+    private final String vendedor;
+    private final LocalDateTime fechacreacion;
+    private final LocalDateTime fechaactualizacion;
+
+    public ProductoExportacion(Long id, String nombre, String descripcion, BigDecimal precio, Integer stock,
+                               String imagen, Boolean activo, Boolean espreorden, Long categoriaId, String categoria,
+                               Long vendedorId, String vendedor, LocalDateTime fechacreacion,
+                               LocalDateTime fechaactualizacion) {
+        this.id = id;
+        this.nombre = nombre;
+        this.descripcion = descripcion;
+        this.precio = precio;
+        this.stock = stock;
+        this.imagen = imagen;
+        this.activo = activo;
+        this.espreorden = espreorden;
+        this.categoriaId = categoriaId;
+        this.categoria = categoria;
+        this.vendedorId = vendedorId;
+        this.vendedor = vendedor;
+        this.fechacreacion = fechacreacion;
+        this.fechaactualizacion = fechaactualizacion;
+    }
+
+    public Long getId() { return id; }
+
+    public String getNombre() { return nombre; }
+
+    public String getDescripcion() { return descripcion; }
+
+    public BigDecimal getPrecio() { return precio; }
+
+    public Integer getStock() { return stock; }
+
+    public String getImagen() { return imagen; }
+
+    public Boolean getActivo() { return activo; }
+
+    public Boolean getEspreorden() { return espreorden; }
+
+    public Long getCategoriaId() { return categoriaId; }
+
+    public String getCategoria() { return categoria; }
+
+    public Long getVendedorId() { return vendedorId; }
+
+    public String getVendedor() { return vendedor; }
+
+    public LocalDateTime getFechacreacion() { return fechacreacion; }
+
+    public LocalDateTime getFechaactualizacion() { return fechaactualizacion; }
+}
@@ -0,0 +1,76 @@
+package com.minimalecommerce.app.dto;
+
+import com.minimalecommerce.app.model.Producto;
+
+import java.math.BigDecimal;
+
+// Vista de listado de un producto: solo lo que muestra una tarjeta del catálogo.
+// Las consultas la construyen con un constructor expression, así que no se cargan
+// la descripción ni las entidades Categoria y Usuario (vendedor) completas.
+public class ProductoResumen {
+
+    private final Long id;
+    private final String nombre;
+    private final BigDecimal precio;
+    private final Integer stock;
+    private final String imagen;
+    private final Boolean activo;
+    private final String categoria;
+    private final String vendedor;
+
+    // El orden de los parámetros coincide con el SELECT new de los repositorios
+    public ProductoResumen(Long id, String nombre, BigDecimal precio, Integer stock, String imagenes,
+                           Boolean activo, String categoria, String vendedor) {
+        this.id = id;
+        this.nombre = nombre;
+        this.precio = precio;
+        this.stock = stock;
+        this.imagen = primeraImagen(imagenes);
+        this.activo = activo;
+        this.categoria = categoria;
+        this.vendedor = vendedor;
+    }
+
+    // Para los listados servidos desde estructuras en memoria que guardan la entidad
+    public static ProductoResumen de(Producto producto) {
+        return new ProductoResumen(
+                producto.getId(),
+                producto.getNombre(),
+                producto.getPrecio(),
+                producto.getStock(),
+                producto.getImagen(),
+                producto.getActivo(),
+                producto.getCategoria() != null ? producto.getCategoria().getNombre() : null,
+                producto.getVendedor() != null ? producto.getVendedor().getNombre() : null);
+    }
+
+    // Mismo resumen con otro stock, para aplicar un descuento sin la entidad
+    public ProductoResumen conStock(Integer nuevoStock) {
+        return new ProductoResumen(id, nombre, precio, nuevoStock, imagen, activo, categoria, vendedor);
+    }
+
+    // La columna imagen guarda los nombres separados por comas
+    private static String primeraImagen(String imagenes) {
+        if (imagenes == null || imagenes.isBlank()) {
+            return null;
+        }
+        int coma = imagenes.indexOf(',');
+        return (coma >= 0 ? imagenes.substring(0, coma) : imagenes).trim();
+    }
+
+    public Long getId() { return id; }
+
+    public String getNombre() { return nombre; }
+
+    public BigDecimal getPrecio() { return precio; }
+
+    public Integer getStock() { return stock; }
+
+    public String getImagen() { return imagen; }
+
+    public Boolean getActivo() { return activo; }
+
+    public String getCategoria() { return categoria; }
+
+    public String getVendedor() { return vendedor; }
+}
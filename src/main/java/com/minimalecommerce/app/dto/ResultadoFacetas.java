@@ -0,0 +1,48 @@
+package com.minimalecommerce.app.dto;
+
+import java.util.List;
+import java.util.Map;
+
+// Página de productos filtrados junto con los conteos por faceta.
+// Cada conteo de una faceta se calcula aplicando todos los filtros excepto el de esa faceta,
+// para que el cliente sepa cuántos resultados obtendría al cambiar la selección.
+public class ResultadoFacetas<T> {
+
+    private final List<T> items;
+    private final String siguienteCursor;
+    private final boolean hayMas;
+    private final int total;
+    private final Map<Long, Integer> categorias;
+    private final Map<Long, Integer> vendedores;
+    private final int conStock;
+    private final int preorden;
+
+    public ResultadoFacetas(List<T> items, String siguienteCursor, boolean hayMas, int total,
+                            Map<Long, Integer> categorias, Map<Long, Integer> vendedores,
+                            int conStock, int preorden) {
+        this.items = items;
+        this.siguienteCursor = siguienteCursor;
+        this.hayMas = hayMas;
+        this.total = total;
+        this.categorias = categorias;
+        this.vendedores = vendedores;
+        this.conStock = conStock;
+        this.preorden = preorden;
+    }
+
+    public List<T> getItems() { return items; }
+
+    public String getSiguienteCursor() { return siguienteCursor; }
+
+    public boolean isHayMas() { return hayMas; }
+
+    public int getTotal() { return total; }
+
+    public Map<Long, Integer> getCategorias() { return categorias; }
+
+    public Map<Long, Integer> getVendedores() { return vendedores; }
+
+    public int getConStock() { return conStock; }
+
+    public int getPreorden() { return preorden; }
+}
@@ -0,0 +1,35 @@
+package com.minimalecommerce.app.dto;
+
+// Resultado de una fila de la sincronización masiva de inventario
+public class ResultadoFilaInventario {
+
+    public static final String ACTUALIZADO = "ACTUALIZADO";
+    public static final String NO_ENCONTRADO = "NO_ENCONTRADO";
+    public static final String INVALIDO = "INVALIDO";
+    public static final String ERROR = "ERROR";
+
+    private final int fila;
+    private final Long productoId;
+    private String estado;
+    private String mensaje;
+
+    public ResultadoFilaInventario(int fila, Long productoId, String estado, String mensaje) {
+        this.fila = fila;
+        this.productoId = productoId;
+        this.estado = estado;
+        this.mensaje = mensaje;
+    }
+
+    public void marcar(String estado, String mensaje) {
+        this.estado = estado;
+        this.mensaje = mensaje;
+    }
+
+    public int getFila() { return fila; }
+
+    public Long getProductoId() { return productoId; }
+
+    public String getEstado() { return estado; }
+
+    public String getMensaje() { return mensaje; }
+}
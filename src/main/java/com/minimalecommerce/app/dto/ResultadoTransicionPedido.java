@@ -0,0 +1,31 @@
+package com.minimalecommerce.app.dto;
+
+import com.minimalecommerce.app.model.EstadoPedido;
+
+// Resultado de un pedido en un cambio de estado masivo
+public class ResultadoTransicionPedido {
+
+    public static final String ACTUALIZADO = "ACTUALIZADO";
+    public static final String NO_ENCONTRADO = "NO_ENCONTRADO";
+    public static final String TRANSICION_INVALIDA = "TRANSICION_INVALIDA";
+
+    private final Long pedidoId;
+    private final EstadoPedido estadoAnterior;
+    private final String resultado;
+    private final String mensaje;
+
+    public ResultadoTransicionPedido(Long pedidoId, EstadoPedido estadoAnterior, String resultado, String mensaje) {
+        this.pedidoId = pedidoId;
+        this.estadoAnterior = estadoAnterior;
+        this.resultado = resultado;
+        this.mensaje = mensaje;
+    }
+
+    public Long getPedidoId() { return pedidoId; }
+
+    public EstadoPedido getEstadoAnterior() { return estadoAnterior; }
+
+    public String getResultado() { return resultado; }
+
+    public String getMensaje() { return mensaje; }
+}
@@ -0,0 +1,35 @@
+package com.minimalecommerce.app.dto;
+
+import com.minimalecommerce.app.model.Dinero;
+
+import java.math.BigDecimal;
+
+// Totales del carrito de un usuario: líneas, unidades y subtotal (precio guardado en cada item
+// por su cantidad). Inmutable. El subtotal se guarda en centavos y solo se convierte a BigDecimal
+// al serializarlo.
+public class ResumenCarrito {
+
+    public static final ResumenCarrito VACIO = new ResumenCarrito(0L, 0L, 0L);
+
+    private final long cantidadItems;
+    private final long cantidadProductos;
+    private final long subtotalCentavos;
+
+    // Usado por la consulta agregada (las sumas son null si el carrito está vacío)
+    public ResumenCarrito(Long cantidadItems, Long cantidadProductos, BigDecimal subtotal) {
+        this(cantidadItems != null ? cantidadItems : 0L, cantidadProductos != null ? cantidadProductos : 0L,
+                Dinero.centavos(subtotal));
+    }
+
+    public ResumenCarrito(long cantidadItems, long cantidadProductos, long subtotalCentavos) {
+        this.cantidadItems = cantidadItems;
+        this.cantidadProductos = cantidadProductos;
+        this.subtotalCentavos = subtotalCentavos;
+    }
+
+    public long getCantidadItems() { return cantidadItems; }
+
+    public long getCantidadProductos() { return cantidadProductos; }
+
+    public BigDecimal getSubtotal() { return Dinero.aBigDecimal(subtotalCentavos); }
+}
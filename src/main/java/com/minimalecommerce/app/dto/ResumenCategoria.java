@@ -0,0 +1,46 @@
+package com.minimalecommerce.app.dto;
+
+import java.math.BigDecimal;
+
+// Totales de una categoría para la portada: cuántos productos activos tiene, cuántos con stock,
+// rango y promedio de precios y stock total. Los precios son null si no hay productos activos.
+public class ResumenCategoria {
+
+    private final Long categoriaId;
+    private final String nombre;
+    private final int productosActivos;
+    private final int productosConStock;
+    private final BigDecimal precioMinimo;
+    private final BigDecimal precioMaximo;
+    private final BigDecimal precioPromedio;
+    private final long stockTotal;
+
+    public ResumenCategoria(Long categoriaId, String nombre, int productosActivos, int productosConStock,
+                            BigDecimal precioMinimo, BigDecimal precioMaximo, BigDecimal precioPromedio,
+                            long stockTotal) {
+        this.categoriaId = categoriaId;
+        this.nombre = nombre;
+        this.productosActivos = productosActivos;
+        this.productosConStock = productosConStock;
+        this.precioMinimo = precioMinimo;
+        this.precioMaximo = precioMaximo;
+        this.precioPromedio = precioPromedio;
+        this.stockTotal = stockTotal;
+    }
+
+    public Long getCategoriaId() { return categoriaId; }
+
+    public String getNombre() { return nombre; }
+
+    public int getProductosActivos() { return productosActivos; }
+
+    public int getProductosConStock() { return productosConStock; }
+
+    public BigDecimal getPrecioMinimo() { return precioMinimo; }
+
+    public BigDecimal getPrecioMaximo() { return precioMaximo; }
+
+    public BigDecimal getPrecioPromedio() { return precioPromedio; }
+
+    public long getStockTotal() { return stockTotal; }
+}
@@ -0,0 +1,43 @@
+package com.minimalecommerce.app.event;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Evento publicado al confirmar un pedido desde el carrito, con las unidades vendidas por producto.
+// Lo consumen los componentes que agregan ventas (ranking de popularidad, métricas, etc.).
+public class PedidoProcesadoEvent {
+
+    public static class Linea {
+        private final Long productoId;
+        private final int cantidad;
+
+        public Linea(Long productoId, int cantidad) {
+            this.productoId = productoId;
+            this.cantidad = cantidad;
+        }
+
+        public Long getProductoId() { return productoId; }
+
+        public int getCantidad() { return cantidad; }
+    }
+
+    private final Long pedidoId;
+    private final Long usuarioId;
+    private final LocalDateTime fechapedido;
+    private final List<Linea> lineas;
+
+    public PedidoProcesadoEvent(Long pedidoId, Long usuarioId, LocalDateTime fechapedido, List<Linea> lineas) {
+        this.pedidoId = pedidoId;
+        this.usuarioId = usuarioId;
+        this.fechapedido = fechapedido;
+        this.lineas = lineas;
+    }
+
+    public Long getPedidoId() { return pedidoId; }
+
+    public Long getUsuarioId() { return usuarioId; }
+
+    public LocalDateTime getFechapedido() { return fechapedido; }
+
+    public List<Linea> getLineas() { return lineas; }
+}
@@ -0,0 +1,71 @@
+package com.minimalecommerce.app.event;
+
+import com.minimalecommerce.app.model.Producto;
+
+// Evento publicado cada vez que cambia un producto del catálogo.
+// Las estructuras en memoria (índices, cachés) lo escuchan para mantenerse al día
+// sin tener que volver a leer toda la tabla.
+public class ProductoCambiadoEvent {
+
+    // STOCK_DESCONTADO lleva solo la variación: el stock del producto adjunto no es el posterior
+    // al cambio. Dos checkouts del mismo producto pueden llegar en cualquier orden y restar
+    // conmuta; fijar una foto del stock dejaría la más vieja si llega al final
+    public enum Tipo {
+        CREADO, ACTUALIZADO, STOCK_ACTUALIZADO, STOCK_DESCONTADO, DESACTIVADO, ELIMINADO
+    }
+
+    private final Long productoId;
+    private final Producto producto;
+    private final Tipo tipo;
+    private final Long categoriaAnteriorId;
+    private final int unidades;
+
+    public ProductoCambiadoEvent(Long productoId, Producto producto, Tipo tipo, Long categoriaAnteriorId) {
+        this(productoId, producto, tipo, categoriaAnteriorId, 0);
+    }
+
+    private ProductoCambiadoEvent(Long productoId, Producto producto, Tipo tipo, Long categoriaAnteriorId, int unidades) {
+        this.productoId = productoId;
+        this.producto = producto;
+        this.tipo = tipo;
+        this.categoriaAnteriorId = categoriaAnteriorId;
+        this.unidades = unidades;
+    }
+
+    // Cambio que no mueve el producto de categoría
+    public static ProductoCambiadoEvent de(Producto producto, Tipo tipo) {
+        return new ProductoCambiadoEvent(producto.getId(), producto, tipo, categoriaDe(producto));
+    }
+
+    public static ProductoCambiadoEvent actualizado(Producto producto, Long categoriaAnteriorId) {
+        return new ProductoCambiadoEvent(producto.getId(), producto, Tipo.ACTUALIZADO, categoriaAnteriorId);
+    }
+
+    // Se vendieron "unidades" del producto; el resto de sus datos no cambió
+    public static ProductoCambiadoEvent stockDescontado(Producto producto, int unidades) {
+        return new ProductoCambiadoEvent(producto.getId(), producto, Tipo.STOCK_DESCONTADO, categoriaDe(producto), unidades);
+    }
+
+    public static ProductoCambiadoEvent eliminado(Long productoId, Long categoriaId) {
+        return new ProductoCambiadoEvent(productoId, null, Tipo.ELIMINADO, categoriaId);
+    }
+
+    private static Long categoriaDe(Producto producto) {
+        return producto.getCategoria() != null ? producto.getCategoria().getId() : null;
+    }
+
+    public Long getProductoId() { return productoId; }
+
+    // Estado del producto tras el cambio; null cuando fue eliminado
+    public Producto getProducto() { return producto; }
+
+    public Tipo getTipo() { return tipo; }
+
+    // Categoría del producto antes del cambio (o al ser eliminado); null si era nuevo o no se conoce
+    public Long getCategoriaAnteriorId() { return categoriaAnteriorId; }
+
+    // Unidades descontadas en un STOCK_DESCONTADO; 0 en los demás tipos
+    public int getUnidades() { return unidades; }
+
+    public boolean esDescuentoDeStock() { return tipo == Tipo.STOCK_DESCONTADO; }
+}
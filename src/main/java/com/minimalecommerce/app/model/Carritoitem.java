@@ -1,9 +1,12 @@
 package com.minimalecommerce.app.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
+// La clave única (usuarioid, productoid) no se declara aquí: con ddl-auto=update un ALTER fallido por
+// items repetidos solo se registra en el log. La crea MigracionesDatos después de fusionarlos.
 @Entity
 @Table(name = "carritoitem")
 public class Carritoitem {
@@ -46,10 +49,16 @@ public class Carritoitem {
     // ==================== MÉTODOS DE CÁLCULO ====================
 
     public BigDecimal getSubtotal() {
+        return Dinero.aBigDecimal(getSubtotalCentavos());
+    }
+
+    // Para sumar totales sin crear un BigDecimal por línea
+    @JsonIgnore
+    public long getSubtotalCentavos() {
         if (preciounitario != null && cantidad != null) {
-            return preciounitario.multiply(BigDecimal.valueOf(cantidad));
+            return Dinero.multiplicar(Dinero.centavos(preciounitario), cantidad);
         }
-        return BigDecimal.ZERO;
+        return 0L;
     }
 
     // ==================== LIFECYCLE METHODS ====================
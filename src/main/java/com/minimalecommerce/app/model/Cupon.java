@@ -82,17 +82,25 @@ public class Cupon {
     }
 
     public BigDecimal calcularDescuento(BigDecimal montoBase) {
-        if (!puedeUsarse() || montoBase == null || montoBase.compareTo(BigDecimal.ZERO) <= 0) {
+        if (montoBase == null) {
             return BigDecimal.ZERO;
         }
+        return Dinero.aBigDecimal(calcularDescuento(Dinero.centavos(montoBase)));
+    }
+
+    // Mismo cálculo en centavos, redondeado al centavo
+    public long calcularDescuento(long montoBaseCentavos) {
+        if (!puedeUsarse() || montoBaseCentavos <= 0) {
+            return 0L;
+        }
 
         switch (tipo) {
             case PORCENTAJE:
-                return montoBase.multiply(valor.divide(BigDecimal.valueOf(100)));
+                return Dinero.porcentaje(montoBaseCentavos, Dinero.centavos(valor));
             case MONTO_FIJO:
-                return valor.min(montoBase); // No puede ser mayor al monto base
+                return Math.min(Dinero.centavos(valor), montoBaseCentavos); // No puede ser mayor al monto base
             default:
-                return BigDecimal.ZERO;
+                return 0L;
         }
     }
 
@@ -0,0 +1,68 @@
+package com.minimalecommerce.app.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+// Aritmética de montos en centavos (long, escala fija 2) para los cálculos internos de carrito,
+// descuentos y pedidos. Las columnas y el JSON siguen usando BigDecimal: se convierte una vez al
+// leer el monto y otra al guardarlo o devolverlo, y entre medio las operaciones no crean objetos.
+// Los desbordes lanzan ArithmeticException en lugar de dar un total equivocado.
+public final class Dinero {
+
+    // Igual a la escala de las columnas de montos (precision = 10, scale = 2)
+    public static final int ESCALA = 2;
+
+    private static final long CENTESIMOS_POR_CIENTO = 100 * 100;
+
+    private Dinero() {
+    }
+
+    // ==================== CONVERSIONES ====================
+
+    // Redondea al centavo (HALF_UP) si el monto trae más decimales; null cuenta como cero.
+    // movePointRight deja escala 0 y longValueExact lee el valor compacto sin pasar por un
+    // BigInteger, que es lo que asignaba unscaledValue() en cada conversión.
+    public static long centavos(BigDecimal monto) {
+        if (monto == null) {
+            return 0L;
+        }
+        if (monto.scale() > ESCALA) {
+            monto = monto.setScale(ESCALA, RoundingMode.HALF_UP);
+        }
+        return monto.movePointRight(ESCALA).longValueExact();
+    }
+
+    public static BigDecimal aBigDecimal(long centavos) {
+        return BigDecimal.valueOf(centavos, ESCALA);
+    }
+
+    // ==================== OPERACIONES ====================
+
+    public static long sumar(long a, long b) {
+        return Math.addExact(a, b);
+    }
+
+    public static long restar(long a, long b) {
+        return Math.subtractExact(a, b);
+    }
+
+    public static long multiplicar(long centavos, int cantidad) {
+        return Math.multiplyExact(centavos, cantidad);
+    }
+
+    // Porcentaje de un monto. El porcentaje viene en centésimos (15,50 % = 1550), que es como queda
+    // un valor de escala 2 al pasarlo por centavos(). Redondea HALF_UP al centavo.
+    public static long porcentaje(long centavos, long centesimosDePorcentaje) {
+        return dividirRedondeando(Math.multiplyExact(centavos, centesimosDePorcentaje), CENTESIMOS_POR_CIENTO);
+    }
+
+    // División entera con redondeo HALF_UP (la mitad se aleja de cero), para divisor positivo
+    static long dividirRedondeando(long dividendo, long divisor) {
+        long cociente = dividendo / divisor;
+        long resto = dividendo % divisor;
+        if (Math.abs(resto) * 2 >= divisor) {
+            cociente += dividendo < 0 ? -1 : 1;
+        }
+        return cociente;
+    }
+}
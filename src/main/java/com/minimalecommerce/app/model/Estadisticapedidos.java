@@ -0,0 +1,48 @@
+package com.minimalecommerce.app.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Contadores de pedidos de cada comprador: una fila por usuario que el checkout y los cambios de
+// estado actualizan en la misma transacción que el pedido, para que las estadísticas se lean por
+// clave primaria en lugar de cargar todo el historial.
+@Entity
+@Table(name = "estadisticapedidos")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Estadisticapedidos {
+
+    @Id
+    @Column(name = "usuarioid")
+    private Long usuarioid;
+
+    @Column(name = "totalpedidos", nullable = false)
+    private Long totalpedidos = 0L;
+
+    @Column(nullable = false)
+    private Long pendientes = 0L;
+
+    @Column(nullable = false)
+    private Long confirmados = 0L;
+
+    @Column(nullable = false)
+    private Long enviados = 0L;
+
+    @Column(nullable = false)
+    private Long entregados = 0L;
+
+    @Column(nullable = false)
+    private Long cancelados = 0L;
+
+    // Suma de los totales de todos sus pedidos, cancelados incluidos
+    @Column(name = "totalgastado", nullable = false, precision = 14, scale = 2)
+    private BigDecimal totalgastado = BigDecimal.ZERO;
+
+    @Column(name = "ultimopedido")
+    private LocalDateTime ultimopedido;
+}
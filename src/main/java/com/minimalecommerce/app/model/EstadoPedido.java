@@ -1,5 +1,8 @@
 package com.minimalecommerce.app.model;
 
+import java.util.Arrays;
+import java.util.List;
+
 public enum EstadoPedido {
     PENDIENTE("Pendiente"),
     CONFIRMADO("Confirmado"),
@@ -16,4 +19,19 @@ public enum EstadoPedido {
     public String getDescripcion() {
         return descripcion;
     }
+
+    // Transiciones permitidas. Se puede cancelar hasta que se entrega; ENTREGADO y CANCELADO son finales
+    public boolean puedeCambiarA(EstadoPedido destino) {
+        return switch (this) {
+            case PENDIENTE -> destino == CONFIRMADO || destino == ENVIADO || destino == CANCELADO;
+            case CONFIRMADO -> destino == ENVIADO || destino == CANCELADO;
+            case ENVIADO -> destino == ENTREGADO || destino == CANCELADO;
+            case ENTREGADO, CANCELADO -> false;
+        };
+    }
+
+    // Estados desde los que se puede llegar a destino, para la condición de los UPDATE masivos
+    public static List<EstadoPedido> origenesHacia(EstadoPedido destino) {
+        return Arrays.stream(values()).filter(origen -> origen.puedeCambiarA(destino)).toList();
+    }
 }
@@ -0,0 +1,73 @@
+package com.minimalecommerce.app.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+// Efecto secundario pendiente de un pedido (métricas, notificaciones, alertas de stock).
+// Se escribe en la misma transacción que el pedido y lo aplica después DespachadorOutbox.
+@Entity
+@Table(name = "eventooutbox",
+        indexes = {
+                @Index(name = "idx_outbox_estado_id", columnList = "estado, id"),
+                @Index(name = "idx_outbox_agregado_estado_secuencia", columnList = "agregado, estado, secuencia")
+        })
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Eventooutbox {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 40)
+    private String tipo;
+
+    // Entidad a la que afecta el evento ("vendedor:7", "producto:3"...): los eventos de un mismo
+    // agregado se aplican en orden de secuencia
+    @Column(nullable = false, length = 60)
+    private String agregado;
+
+    // Posición del evento dentro de su agregado. La asigna OutboxService con la fila del agregado
+    // bloqueada hasta el commit, así que sigue el orden de confirmación; el id no: se asigna al
+    // insertar y una transacción con id menor puede confirmarse después de otra con id mayor
+    @Column(nullable = false)
+    private Long secuencia;
+
+    @Column(columnDefinition = "TEXT", nullable = false)
+    private String payload;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Estado estado = Estado.PENDIENTE;
+
+    @Column(nullable = false)
+    private Integer intentos = 0;
+
+    @Column(name = "proximointento", nullable = false)
+    private LocalDateTime proximointento;
+
+    @Column(name = "ultimoerror", length = 500)
+    private String ultimoerror;
+
+    @Column(name = "fechacreacion", nullable = false)
+    private LocalDateTime fechacreacion;
+
+    @Column(name = "fechaprocesado")
+    private LocalDateTime fechaprocesado;
+
+    public enum Estado {
+        PENDIENTE, PROCESADO, FALLIDO
+    }
+
+    @PrePersist
+    protected void onCreate() {
+        fechacreacion = LocalDateTime.now();
+        if (proximointento == null) {
+            proximointento = fechacreacion;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.minimalecommerce.app.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+// Migraciones de datos de una sola vez ya aplicadas (ver MigracionesDatos). La fila se escribe en la
+// misma transacción que la migración: si esta falla no queda marcada y se reintenta al arrancar.
+@Entity
+@Table(name = "migraciondatos")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Migraciondatos {
+
+    @Id
+    @Column(length = 80)
+    private String nombre;
+
+    @Column(name = "fechaaplicada", nullable = false)
+    private LocalDateTime fechaaplicada;
+}
@@ -35,6 +35,13 @@ public class Pedido {
     @Column(name = "direccionentrega", length = 500)
     private String direccionentrega;
 
+    // Control optimista: cada cambio de estado incrementa la versión, y una escritura basada en una
+    // versión vieja falla en lugar de pisar el cambio del otro. El DEFAULT cubre las filas existentes
+    // y los INSERT manuales (data-nuevas-tablas.sql)
+    @Version
+    @Column(name = "version", nullable = false, columnDefinition = "bigint default 0")
+    private Long version;
+
     @PrePersist
     protected void onCreate() {
         fechapedido = LocalDateTime.now();
@@ -1,5 +1,6 @@
 package com.minimalecommerce.app.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -33,9 +34,14 @@ public class Pedidoitem {
 
     // Método para calcular subtotal
     public BigDecimal getSubtotal() {
+        return Dinero.aBigDecimal(getSubtotalCentavos());
+    }
+
+    @JsonIgnore
+    public long getSubtotalCentavos() {
         if (preciounitario != null && cantidad != null) {
-            return preciounitario.multiply(BigDecimal.valueOf(cantidad));
+            return Dinero.multiplicar(Dinero.centavos(preciounitario), cantidad);
         }
-        return BigDecimal.ZERO;
+        return 0L;
     }
 }
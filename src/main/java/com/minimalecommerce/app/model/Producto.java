@@ -8,7 +8,9 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "producto")
+@Table(name = "producto", indexes = {
+        @Index(name = "idx_producto_fechaactualizacion", columnList = "fechaactualizacion")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -58,9 +60,19 @@ public class Producto {
     @Column(nullable = false)
     private Boolean activo = true;
 
+    // Última modificación; la usa la exportación incremental del catálogo
+    @Column(name = "fechaactualizacion")
+    private LocalDateTime fechaactualizacion;
+
     @PrePersist
     protected void onCreate() {
         fechacreacion = LocalDateTime.now();
+        fechaactualizacion = fechacreacion;
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        fechaactualizacion = LocalDateTime.now();
     }
 
     @Column(name = "espreorden", nullable = false)
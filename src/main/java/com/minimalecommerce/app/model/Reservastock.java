@@ -0,0 +1,35 @@
+package com.minimalecommerce.app.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+// Unidades retenidas por el carrito de un usuario hasta fechaexpiracion. Es la copia persistente de
+// las reservas que mantiene ReservasStock en memoria; se usa para reconstruirlas al arrancar.
+@Entity
+@Table(name = "reservastock",
+        uniqueConstraints = @UniqueConstraint(name = "uk_reserva_usuario_producto", columnNames = {"usuarioid", "productoid"}),
+        indexes = @Index(name = "idx_reserva_fechaexpiracion", columnList = "fechaexpiracion"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Reservastock {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "usuarioid", nullable = false)
+    private Long usuarioid;
+
+    @Column(name = "productoid", nullable = false)
+    private Long productoid;
+
+    @Column(nullable = false)
+    private Integer cantidad;
+
+    @Column(name = "fechaexpiracion", nullable = false)
+    private LocalDateTime fechaexpiracion;
+}
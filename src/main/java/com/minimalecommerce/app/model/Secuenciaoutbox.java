@@ -0,0 +1,24 @@
+package com.minimalecommerce.app.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Último número de secuencia entregado a los eventos outbox de cada agregado. La fila se bloquea al
+// avanzarla y el bloqueo dura hasta el commit, así que dos transacciones del mismo agregado reciben
+// números en el mismo orden en que se confirman.
+@Entity
+@Table(name = "secuenciaoutbox")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Secuenciaoutbox {
+
+    @Id
+    @Column(length = 60)
+    private String agregado;
+
+    @Column(nullable = false)
+    private Long ultima;
+}
@@ -0,0 +1,48 @@
+package com.minimalecommerce.app.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+// Registro de una petición con Idempotency-Key: la clave se reserva antes de ejecutar la operación
+// y al terminar se guarda la respuesta para devolverla tal cual a los reintentos
+@Entity
+@Table(name = "solicitudidempotente",
+        uniqueConstraints = @UniqueConstraint(name = "uk_solicitud_operacion_clave", columnNames = {"operacion", "clave"}),
+        indexes = @Index(name = "idx_solicitud_fechacreacion", columnList = "fechacreacion"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Solicitudidempotente {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 40)
+    private String operacion;
+
+    @Column(nullable = false, length = 100)
+    private String clave;
+
+    // SHA-256 del cuerpo de la petición, en hexadecimal
+    @Column(nullable = false, length = 64)
+    private String huella;
+
+    // null mientras la operación está en curso
+    @Column(name = "codigoestado")
+    private Integer codigoestado;
+
+    @Column(columnDefinition = "TEXT")
+    private String respuesta;
+
+    @Column(name = "fechacreacion", nullable = false)
+    private LocalDateTime fechacreacion;
+
+    @PrePersist
+    protected void onCreate() {
+        fechacreacion = LocalDateTime.now();
+    }
+}
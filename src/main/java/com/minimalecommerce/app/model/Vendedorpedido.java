@@ -0,0 +1,49 @@
+package com.minimalecommerce.app.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Índice desnormalizado de pedidos por vendedor: una fila por cada vendedor que participa en un
+// pedido, con su parte del pedido. Se escribe en el checkout y se actualiza con el estado del
+// pedido, para que el listado del vendedor sea un rango sobre (vendedorid, fechapedido) en lugar
+// de un JOIN de pedido, pedidoitem y producto.
+@Entity
+@Table(name = "vendedorpedido",
+        uniqueConstraints = @UniqueConstraint(name = "uk_vendedorpedido_vendedor_pedido", columnNames = {"vendedorid", "pedidoid"}),
+        indexes = {
+                @Index(name = "idx_vendedorpedido_vendedor_fecha", columnList = "vendedorid, fechapedido, pedidoid"),
+                @Index(name = "idx_vendedorpedido_pedido", columnList = "pedidoid")
+        })
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Vendedorpedido {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "vendedorid", nullable = false)
+    private Long vendedorid;
+
+    @Column(name = "pedidoid", nullable = false)
+    private Long pedidoid;
+
+    @Column(name = "fechapedido", nullable = false)
+    private LocalDateTime fechapedido;
+
+    // Suma de las líneas del pedido que son productos de este vendedor
+    @Column(nullable = false, precision = 10, scale = 2)
+    private BigDecimal subtotal;
+
+    @Column(nullable = false)
+    private Integer unidades;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private EstadoPedido estado;
+}
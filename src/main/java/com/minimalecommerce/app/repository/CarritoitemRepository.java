@@ -1,5 +1,6 @@
 package com.minimalecommerce.app.repository;
 
+import com.minimalecommerce.app.dto.ResumenCarrito;
 import com.minimalecommerce.app.model.Carritoitem;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
@@ -7,11 +8,12 @@ import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface CarritoitemRepository extends JpaRepository<Carritoitem, Long> {
+public interface CarritoitemRepository extends JpaRepository<Carritoitem, Long>, CarritoitemRepositoryCustom {
 
     // Buscar por usuario
     List<Carritoitem> findByUsuarioId(Long usuarioId);
@@ -19,6 +21,32 @@ public interface CarritoitemRepository extends JpaRepository<Carritoitem, Long>
     // Buscar item específico por usuario y producto
     Optional<Carritoitem> findByUsuarioIdAndProductoId(Long usuarioId, Long productoId);
 
+    // Líneas del carrito como (productoId, cantidad, preciounitario), sin cargar las entidades
+    @Query("SELECT c.producto.id, c.cantidad, c.preciounitario FROM Carritoitem c WHERE c.usuario.id = :usuarioId")
+    List<Object[]> findLineasPorUsuario(@Param("usuarioId") Long usuarioId);
+
+    @Modifying
+    @Query("DELETE FROM Carritoitem c WHERE c.usuario.id = :usuarioId AND c.producto.id IN :productoIds")
+    int eliminarProductos(@Param("usuarioId") Long usuarioId, @Param("productoIds") Collection<Long> productoIds);
+
+    // Items repetidos de un mismo (usuario, producto), anteriores a la clave única: el de menor id
+    // se queda con la suma de las cantidades y los demás se eliminan. Las tablas derivadas agrupan,
+    // así MySQL las materializa y permite leer la misma tabla que se modifica
+    @Modifying
+    @Query(value = "UPDATE carritoitem c SET cantidad = (SELECT t.total FROM (SELECT usuarioid, productoid, " +
+            "SUM(cantidad) AS total FROM carritoitem GROUP BY usuarioid, productoid) t " +
+            "WHERE t.usuarioid = c.usuarioid AND t.productoid = c.productoid) " +
+            "WHERE c.id IN (SELECT d.id FROM (SELECT MIN(id) AS id FROM carritoitem " +
+            "GROUP BY usuarioid, productoid HAVING COUNT(*) > 1) d)",
+            nativeQuery = true)
+    int fusionarRepetidos();
+
+    @Modifying
+    @Query(value = "DELETE FROM carritoitem WHERE id NOT IN (SELECT d.id FROM (SELECT MIN(id) AS id FROM carritoitem " +
+            "GROUP BY usuarioid, productoid) d)",
+            nativeQuery = true)
+    int eliminarRepetidos();
+
     // Eliminar todos los items de un usuario
     @Modifying
     @Transactional
@@ -27,6 +55,11 @@ public interface CarritoitemRepository extends JpaRepository<Carritoitem, Long>
     // Contar items por usuario
     long countByUsuarioId(Long usuarioId);
 
+    // Líneas, unidades y subtotal del carrito en una sola consulta
+    @Query("SELECT new com.minimalecommerce.app.dto.ResumenCarrito(COUNT(c), SUM(c.cantidad), " +
+            "SUM(c.preciounitario * c.cantidad)) FROM Carritoitem c WHERE c.usuario.id = :usuarioId")
+    ResumenCarrito findResumenPorUsuario(@Param("usuarioId") Long usuarioId);
+
     // Obtener suma de cantidades por usuario
     @Query("SELECT COALESCE(SUM(c.cantidad), 0) FROM Carritoitem c WHERE c.usuario.id = :usuarioId")
     Integer sumCantidadByUsuarioId(@Param("usuarioId") Long usuarioId);
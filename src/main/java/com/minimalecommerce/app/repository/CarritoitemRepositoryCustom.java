@@ -0,0 +1,24 @@
+package com.minimalecommerce.app.repository;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+// Operaciones de CarritoitemRepository que se implementan con JDBC directo en lugar de JPA
+public interface CarritoitemRepositoryCustom {
+
+    // Crea el item (usuario, producto) o, si ya existe, le suma la cantidad, en una sola sentencia.
+    // El precio unitario y la fecha solo se fijan al crearlo. Falla con una violación de integridad
+    // si el usuario o el producto no existen.
+    void sumarAlCarrito(Long usuarioId, Long productoId, int cantidad, BigDecimal preciounitario);
+
+    // Deja cada producto de "cantidades" con exactamente esa cantidad en el carrito del usuario,
+    // creando los items que falten, con un INSERT de varias filas. Los precios se usan solo al crear.
+    void fijarCantidades(Long usuarioId, Map<Long, Integer> cantidades, Map<Long, BigDecimal> precios);
+
+    // Si existe un índice único exactamente sobre (usuarioid, productoid), del que dependen las dos
+    // operaciones anteriores
+    boolean tieneClaveUnica();
+
+    // Crea ese índice; falla si quedan items repetidos
+    void crearClaveUnica();
+}
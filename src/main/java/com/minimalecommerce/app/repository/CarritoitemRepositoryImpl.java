@@ -0,0 +1,89 @@
+package com.minimalecommerce.app.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Spring Data la combina con CarritoitemRepository por convención de nombre (sufijo Impl)
+public class CarritoitemRepositoryImpl implements CarritoitemRepositoryCustom {
+
+    // Se apoya en la clave única (usuarioid, productoid) de carritoitem
+    private static final String SQL_SUMAR =
+            "INSERT INTO carritoitem (usuarioid, productoid, cantidad, preciounitario, fechaagregado) " +
+            "VALUES (?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE cantidad = cantidad + VALUES(cantidad)";
+
+    private static final String SQL_FIJAR =
+            "INSERT INTO carritoitem (usuarioid, productoid, cantidad, preciounitario, fechaagregado) VALUES ";
+
+    private static final String SQL_FIJAR_DUPLICADO = " ON DUPLICATE KEY UPDATE cantidad = VALUES(cantidad)";
+
+    private static final String SQL_CREAR_CLAVE =
+            "CREATE UNIQUE INDEX uk_carritoitem_usuario_producto ON carritoitem (usuarioid, productoid)";
+
+    private static final Set<String> COLUMNAS_CLAVE = Set.of("usuarioid", "productoid");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void sumarAlCarrito(Long usuarioId, Long productoId, int cantidad, BigDecimal preciounitario) {
+        jdbcTemplate.update(SQL_SUMAR, usuarioId, productoId, cantidad, preciounitario,
+                Timestamp.valueOf(LocalDateTime.now()));
+    }
+
+    @Override
+    public void fijarCantidades(Long usuarioId, Map<Long, Integer> cantidades, Map<Long, BigDecimal> precios) {
+        if (cantidades.isEmpty()) {
+            return;
+        }
+        StringBuilder sql = new StringBuilder(SQL_FIJAR);
+        List<Object> parametros = new ArrayList<>(cantidades.size() * 5);
+        Timestamp ahora = Timestamp.valueOf(LocalDateTime.now());
+        for (Map.Entry<Long, Integer> entrada : cantidades.entrySet()) {
+            sql.append(parametros.isEmpty() ? "(?, ?, ?, ?, ?)" : ", (?, ?, ?, ?, ?)");
+            parametros.add(usuarioId);
+            parametros.add(entrada.getKey());
+            parametros.add(entrada.getValue());
+            parametros.add(precios.get(entrada.getKey()));
+            parametros.add(ahora);
+        }
+        sql.append(SQL_FIJAR_DUPLICADO);
+        jdbcTemplate.update(sql.toString(), parametros.toArray());
+    }
+
+    @Override
+    public boolean tieneClaveUnica() {
+        return Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) con -> {
+            DatabaseMetaData metadatos = con.getMetaData();
+            String tabla = metadatos.storesUpperCaseIdentifiers() ? "CARRITOITEM" : "carritoitem";
+            Map<String, Set<String>> columnasPorIndice = new HashMap<>();
+            try (ResultSet indices = metadatos.getIndexInfo(con.getCatalog(), null, tabla, true, false)) {
+                while (indices.next()) {
+                    String columna = indices.getString("COLUMN_NAME");
+                    if (columna != null) {
+                        columnasPorIndice.computeIfAbsent(indices.getString("INDEX_NAME"), k -> new HashSet<>())
+                                .add(columna.toLowerCase());
+                    }
+                }
+            }
+            return columnasPorIndice.containsValue(COLUMNAS_CLAVE);
+        }));
+    }
+
+    @Override
+    public void crearClaveUnica() {
+        jdbcTemplate.execute(SQL_CREAR_CLAVE);
+    }
+}
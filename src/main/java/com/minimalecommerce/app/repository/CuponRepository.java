@@ -97,6 +97,14 @@ public interface CuponRepository extends JpaRepository<Cupon, Long> {
     @Query("UPDATE Cupon c SET c.activo = false WHERE c.fechavencimiento < :ahora AND c.activo = true")
     int desactivarCuponesVencidos(@Param("ahora") LocalDateTime ahora);
 
+    // Registrar un uso solo si el cupón sigue activo, vigente y con usos disponibles; devuelve 0 si no.
+    // La condición y el incremento van en la misma sentencia: dos pedidos no pueden pasar el máximo
+    @Modifying
+    @Query("UPDATE Cupon c SET c.usosactuales = COALESCE(c.usosactuales, 0) + 1 WHERE c.id = :id " +
+           "AND c.activo = true AND c.fechainicio <= :ahora AND c.fechavencimiento >= :ahora " +
+           "AND COALESCE(c.usosactuales, 0) < c.usosmaximo")
+    int registrarUso(@Param("id") Long id, @Param("ahora") LocalDateTime ahora);
+
     // Buscar cupones por valor
     @Query("SELECT c FROM Cupon c WHERE c.valor >= :valorMinimo AND c.valor <= :valorMaximo")
     List<Cupon> findByValorBetween(@Param("valorMinimo") java.math.BigDecimal valorMinimo,
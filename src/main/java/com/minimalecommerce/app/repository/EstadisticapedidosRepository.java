@@ -0,0 +1,94 @@
+package com.minimalecommerce.app.repository;
+
+import com.minimalecommerce.app.model.Estadisticapedidos;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+@Repository
+public interface EstadisticapedidosRepository extends JpaRepository<Estadisticapedidos, Long> {
+
+    // Conteo por estado de los pedidos del usuario (o de todos); mismas columnas que la tabla
+    String SELECT_CONTADORES = "SELECT p.usuarioid, COUNT(*), " +
+            "SUM(CASE WHEN p.estado = 'PENDIENTE' THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN p.estado = 'CONFIRMADO' THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN p.estado = 'ENVIADO' THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN p.estado = 'ENTREGADO' THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN p.estado = 'CANCELADO' THEN 1 ELSE 0 END), " +
+            "SUM(p.total), MAX(p.fechapedido) FROM pedido p ";
+
+    String INSERT_CONTADORES = "INSERT INTO estadisticapedidos (usuarioid, totalpedidos, pendientes, confirmados, " +
+            "enviados, entregados, cancelados, totalgastado, ultimopedido) ";
+
+    // Nuevo pedido (siempre PENDIENTE) en una sola sentencia, exista o no la fila del usuario
+    @Modifying
+    @Query(value = INSERT_CONTADORES + "VALUES (:usuarioId, 1, 1, 0, 0, 0, 0, :total, :fecha) " +
+            "ON DUPLICATE KEY UPDATE totalpedidos = totalpedidos + 1, pendientes = pendientes + 1, " +
+            "totalgastado = totalgastado + VALUES(totalgastado), " +
+            "ultimopedido = CASE WHEN ultimopedido IS NULL OR ultimopedido < VALUES(ultimopedido) " +
+            "THEN VALUES(ultimopedido) ELSE ultimopedido END",
+            nativeQuery = true)
+    int registrarPedido(@Param("usuarioId") Long usuarioId,
+                        @Param("total") BigDecimal total,
+                        @Param("fecha") LocalDateTime fecha);
+
+    // Pasa un pedido del usuario de un estado a otro: resta uno al anterior y suma uno al nuevo
+    @Modifying
+    @Query(value = "UPDATE estadisticapedidos SET " +
+            "pendientes = pendientes + (CASE WHEN :hacia = 'PENDIENTE' THEN 1 ELSE 0 END) - (CASE WHEN :desde = 'PENDIENTE' THEN 1 ELSE 0 END), " +
+            "confirmados = confirmados + (CASE WHEN :hacia = 'CONFIRMADO' THEN 1 ELSE 0 END) - (CASE WHEN :desde = 'CONFIRMADO' THEN 1 ELSE 0 END), " +
+            "enviados = enviados + (CASE WHEN :hacia = 'ENVIADO' THEN 1 ELSE 0 END) - (CASE WHEN :desde = 'ENVIADO' THEN 1 ELSE 0 END), " +
+            "entregados = entregados + (CASE WHEN :hacia = 'ENTREGADO' THEN 1 ELSE 0 END) - (CASE WHEN :desde = 'ENTREGADO' THEN 1 ELSE 0 END), " +
+            "cancelados = cancelados + (CASE WHEN :hacia = 'CANCELADO' THEN 1 ELSE 0 END) - (CASE WHEN :desde = 'CANCELADO' THEN 1 ELSE 0 END) " +
+            "WHERE usuarioid = :usuarioId",
+            nativeQuery = true)
+    int moverEstado(@Param("usuarioId") Long usuarioId,
+                    @Param("desde") String desde,
+                    @Param("hacia") String hacia);
+
+    // Pedidos del lote de cada comprador, en total y en un estado dado (según su estado actual)
+    String PEDIDOS_DEL_LOTE = "(SELECT COUNT(*) FROM pedido p WHERE p.usuarioid = e.usuarioid AND p.id IN (:pedidoIds)";
+
+    // Cambio de estado masivo en una sola sentencia para todos los compradores: cada contador pierde
+    // los pedidos del lote que están hoy en su estado y el de destino gana todos. Se ejecuta antes de
+    // cambiar los pedidos, y ninguno de ellos puede estar ya en el destino (no es una transición).
+    @Modifying
+    @Query(value = "UPDATE estadisticapedidos e SET " +
+            "pendientes = pendientes - " + PEDIDOS_DEL_LOTE + " AND p.estado = 'PENDIENTE') " +
+            "+ CASE WHEN :destino = 'PENDIENTE' THEN " + PEDIDOS_DEL_LOTE + ") ELSE 0 END, " +
+            "confirmados = confirmados - " + PEDIDOS_DEL_LOTE + " AND p.estado = 'CONFIRMADO') " +
+            "+ CASE WHEN :destino = 'CONFIRMADO' THEN " + PEDIDOS_DEL_LOTE + ") ELSE 0 END, " +
+            "enviados = enviados - " + PEDIDOS_DEL_LOTE + " AND p.estado = 'ENVIADO') " +
+            "+ CASE WHEN :destino = 'ENVIADO' THEN " + PEDIDOS_DEL_LOTE + ") ELSE 0 END, " +
+            "entregados = entregados - " + PEDIDOS_DEL_LOTE + " AND p.estado = 'ENTREGADO') " +
+            "+ CASE WHEN :destino = 'ENTREGADO' THEN " + PEDIDOS_DEL_LOTE + ") ELSE 0 END, " +
+            "cancelados = cancelados - " + PEDIDOS_DEL_LOTE + " AND p.estado = 'CANCELADO') " +
+            "+ CASE WHEN :destino = 'CANCELADO' THEN " + PEDIDOS_DEL_LOTE + ") ELSE 0 END " +
+            "WHERE e.usuarioid IN (SELECT p.usuarioid FROM pedido p WHERE p.id IN (:pedidoIds))",
+            nativeQuery = true)
+    int moverEstadosDePedidos(@Param("pedidoIds") Collection<Long> pedidoIds, @Param("destino") String destino);
+
+    // Para recalcular la fila de un usuario desde sus pedidos (tras borrar o reemplazar un pedido)
+    @Modifying
+    @Query(value = "DELETE FROM estadisticapedidos WHERE usuarioid = :usuarioId", nativeQuery = true)
+    int eliminarDeUsuario(@Param("usuarioId") Long usuarioId);
+
+    @Modifying
+    @Query(value = INSERT_CONTADORES + SELECT_CONTADORES + "WHERE p.usuarioid = :usuarioId GROUP BY p.usuarioid",
+            nativeQuery = true)
+    int calcularDeUsuario(@Param("usuarioId") Long usuarioId);
+
+    // Recalcular los contadores de todos los usuarios (migración de una sola vez, ver MigracionesDatos)
+    @Modifying
+    @Query(value = "DELETE FROM estadisticapedidos", nativeQuery = true)
+    int eliminarTodos();
+
+    @Modifying
+    @Query(value = INSERT_CONTADORES + SELECT_CONTADORES + "GROUP BY p.usuarioid", nativeQuery = true)
+    int calcularTodos();
+}
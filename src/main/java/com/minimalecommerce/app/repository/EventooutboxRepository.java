@@ -0,0 +1,47 @@
+package com.minimalecommerce.app.repository;
+
+import com.minimalecommerce.app.model.Eventooutbox;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface EventooutboxRepository extends JpaRepository<Eventooutbox, Long> {
+
+    // Pendientes que ya se pueden aplicar, los más antiguos primero. Se excluye lo que está en espera de
+    // reintento y todo lo posterior (por secuencia) de su agregado, así un agregado bloqueado no llena
+    // el lote y no retrasa a los demás. Dentro de un agregado el orden de id coincide con el de
+    // secuencia, porque cada evento se inserta con la secuencia del agregado ya bloqueada.
+    @Query("SELECT e FROM Eventooutbox e WHERE e.estado = :estado AND e.proximointento <= :ahora " +
+            "AND NOT EXISTS (SELECT 1 FROM Eventooutbox o WHERE o.agregado = e.agregado AND o.estado = :estado " +
+            "AND o.secuencia < e.secuencia AND o.proximointento > :ahora) " +
+            "ORDER BY e.id ASC")
+    List<Eventooutbox> findListos(@Param("estado") Eventooutbox.Estado estado, @Param("ahora") LocalDateTime ahora,
+                                  Pageable pageable);
+
+    long countByEstado(Eventooutbox.Estado estado);
+
+    @Query("SELECT MIN(e.fechacreacion) FROM Eventooutbox e WHERE e.estado = :estado")
+    LocalDateTime findFechaMasAntigua(@Param("estado") Eventooutbox.Estado estado);
+
+    @Modifying
+    @Query("UPDATE Eventooutbox e SET e.estado = :estado, e.fechaprocesado = :fecha WHERE e.id = :id")
+    int marcarProcesado(@Param("id") Long id, @Param("estado") Eventooutbox.Estado estado,
+                        @Param("fecha") LocalDateTime fecha);
+
+    @Modifying
+    @Query("UPDATE Eventooutbox e SET e.estado = :estado, e.intentos = :intentos, " +
+            "e.proximointento = :proximo, e.ultimoerror = :error WHERE e.id = :id")
+    int registrarFallo(@Param("id") Long id, @Param("estado") Eventooutbox.Estado estado,
+                       @Param("intentos") int intentos, @Param("proximo") LocalDateTime proximo,
+                       @Param("error") String error);
+
+    @Modifying
+    @Query("DELETE FROM Eventooutbox e WHERE e.estado = :estado AND e.fechaprocesado < :limite")
+    int eliminarProcesadosAntesDe(@Param("estado") Eventooutbox.Estado estado, @Param("limite") LocalDateTime limite);
+}
@@ -1,5 +1,6 @@
 package com.minimalecommerce.app.repository;
 
+import com.minimalecommerce.app.dto.FavoritoResumen;
 import com.minimalecommerce.app.model.Favorito;
 import com.minimalecommerce.app.model.Usuario;
 import com.minimalecommerce.app.model.Producto;
@@ -25,6 +26,13 @@ public interface FavoritoRepository extends JpaRepository<Favorito, Long> {
     @Query("SELECT f FROM Favorito f WHERE f.usuario.id = :usuarioId ORDER BY f.fechaagregado DESC")
     List<Favorito> findByUsuarioIdOrderByFechaagregadoDesc(@Param("usuarioId") Long usuarioId);
 
+    // Listado de favoritos con el resumen del producto (proyección, sin cargar entidades)
+    @Query("SELECT new com.minimalecommerce.app.dto.FavoritoResumen(f.id, f.fechaagregado, f.notificarstock, " +
+            "p.id, p.nombre, p.precio, p.stock, p.imagen, p.activo, c.nombre, v.nombre) " +
+            "FROM Favorito f JOIN f.producto p JOIN p.categoria c JOIN p.vendedor v " +
+            "WHERE f.usuario.id = :usuarioId ORDER BY f.fechaagregado DESC")
+    List<FavoritoResumen> findResumenByUsuarioId(@Param("usuarioId") Long usuarioId);
+
     // Contar favoritos por usuario
     Long countByUsuarioId(Long usuarioId);
 
@@ -34,4 +42,7 @@ public interface FavoritoRepository extends JpaRepository<Favorito, Long> {
 
     // Favoritos con notificación de stock
     List<Favorito> findByUsuarioIdAndNotificarstockTrue(Long usuarioId);
+
+    // Usuarios que pidieron aviso de stock de un producto
+    List<Favorito> findByProductoIdAndNotificarstockTrue(Long productoId);
 }
@@ -0,0 +1,9 @@
+package com.minimalecommerce.app.repository;
+
+import com.minimalecommerce.app.model.Migraciondatos;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface MigraciondatosRepository extends JpaRepository<Migraciondatos, String> {
+}
@@ -1,11 +1,16 @@
 package com.minimalecommerce.app.repository;
 
+import com.minimalecommerce.app.dto.PedidoHistorial;
 import com.minimalecommerce.app.model.Pedido;
 import com.minimalecommerce.app.model.EstadoPedido;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -21,6 +26,17 @@ public interface PedidoRepository extends JpaRepository<Pedido, Long> {
     @Query("SELECT p FROM Pedido p WHERE p.usuario.id = :usuarioId ORDER BY p.fechapedido DESC")
     List<Pedido> findByUsuarioIdOrderByFechapedidoDesc(@Param("usuarioId") Long usuarioId);
 
+    // Los N pedidos más recientes: el Limit llega a la base como LIMIT
+    @Query("SELECT p FROM Pedido p WHERE p.usuario.id = :usuarioId ORDER BY p.fechapedido DESC, p.id DESC")
+    List<Pedido> findByUsuarioIdOrderByFechapedidoDesc(@Param("usuarioId") Long usuarioId, Limit limite);
+
+    // Historial del comprador por cursor: los pedidos con id menor al último visto, del más nuevo
+    // al más viejo (el id crece con la fecha del pedido). La primera página usa Long.MAX_VALUE.
+    @Query("SELECT new com.minimalecommerce.app.dto.PedidoHistorial(p.id, p.fechapedido, p.total, p.estado, " +
+            "p.direccionentrega) FROM Pedido p WHERE p.usuario.id = :usuarioId AND p.id < :ultimoId ORDER BY p.id DESC")
+    List<PedidoHistorial> findHistorialAntesDe(@Param("usuarioId") Long usuarioId, @Param("ultimoId") Long ultimoId,
+                                               Pageable pageable);
+
     // ✅ CONSULTA PARA VENDEDORES (ya corregida)
     @Query("SELECT DISTINCT p.id, p.fechapedido, p.total, p.estado, p.usuario.nombre, p.direccionentrega " +
             "FROM Pedido p JOIN Pedidoitem pi ON p.id = pi.pedido.id " +
@@ -34,4 +50,19 @@ public interface PedidoRepository extends JpaRepository<Pedido, Long> {
 
     @Query("SELECT p FROM Pedido p WHERE p.estado = :estado ORDER BY p.fechapedido DESC")
     List<Pedido> findByEstadoOrderByFechapedidoDesc(@Param("estado") EstadoPedido estado);
+
+    // ==================== CAMBIOS DE ESTADO MASIVOS ====================
+
+    // Estado actual como (id, estado, usuarioId) de los pedidos dados que existen
+    @Query("SELECT p.id, p.estado, p.usuario.id FROM Pedido p WHERE p.id IN :ids")
+    List<Object[]> findEstadosPorId(@Param("ids") Collection<Long> ids);
+
+    // Un solo UPDATE para todos los pedidos que siguen en un estado desde el que se puede llegar a
+    // destino: esa condición es la guarda de la transición, y la versión se incrementa igual que con save()
+    @Modifying
+    @Query("UPDATE Pedido p SET p.estado = :destino, p.version = p.version + 1 " +
+            "WHERE p.id IN :ids AND p.estado IN :origenes")
+    int cambiarEstado(@Param("ids") Collection<Long> ids,
+                      @Param("origenes") Collection<EstadoPedido> origenes,
+                      @Param("destino") EstadoPedido destino);
 }
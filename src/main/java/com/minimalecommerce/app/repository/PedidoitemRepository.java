@@ -1,14 +1,31 @@
 package com.minimalecommerce.app.repository;
 
+import com.minimalecommerce.app.dto.LineaPedidoHistorial;
 import com.minimalecommerce.app.model.Pedidoitem;
 import com.minimalecommerce.app.model.Pedido;
+import com.minimalecommerce.app.model.EstadoPedido;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
-public interface PedidoitemRepository extends JpaRepository<Pedidoitem, Long> {
+public interface PedidoitemRepository extends JpaRepository<Pedidoitem, Long>, PedidoitemRepositoryCustom {
 
     List<Pedidoitem> findByPedido(Pedido pedido);
     List<Pedidoitem> findByPedidoId(Long pedidoId);
+
+    // Líneas de varios pedidos a la vez para el historial, con los datos del producto por JOIN
+    @Query("SELECT new com.minimalecommerce.app.dto.LineaPedidoHistorial(pi.id, pi.pedido.id, pr.id, pr.nombre, " +
+            "pr.imagen, pi.cantidad, pi.preciounitario) FROM Pedidoitem pi JOIN pi.producto pr " +
+            "WHERE pi.pedido.id IN :pedidoIds ORDER BY pi.id ASC")
+    List<LineaPedidoHistorial> findLineasHistorial(@Param("pedidoIds") Collection<Long> pedidoIds);
+
+    // Ventas recientes como (productoId, cantidad, fechapedido), para precargar el ranking de popularidad
+    @Query("SELECT pi.producto.id, pi.cantidad, p.fechapedido FROM Pedidoitem pi JOIN pi.pedido p " +
+            "WHERE p.fechapedido >= :desde AND p.estado <> :excluido")
+    List<Object[]> findVentasDesde(@Param("desde") LocalDateTime desde, @Param("excluido") EstadoPedido excluido);
 }
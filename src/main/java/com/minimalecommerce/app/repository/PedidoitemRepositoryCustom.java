@@ -0,0 +1,13 @@
+package com.minimalecommerce.app.repository;
+
+import com.minimalecommerce.app.model.Pedidoitem;
+
+import java.util.List;
+
+// Operaciones de PedidoitemRepository que se implementan con JDBC directo en lugar de JPA
+public interface PedidoitemRepositoryCustom {
+
+    // Inserta todas las líneas de un pedido con INSERT de varias filas y asigna a cada item su id
+    // generado. Los items no quedan administrados por el contexto de persistencia.
+    void insertarLineas(List<Pedidoitem> items);
+}
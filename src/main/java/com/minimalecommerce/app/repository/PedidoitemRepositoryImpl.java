@@ -0,0 +1,61 @@
+package com.minimalecommerce.app.repository;
+
+import com.minimalecommerce.app.model.Pedidoitem;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+
+// Spring Data la combina con PedidoitemRepository por convención de nombre (sufijo Impl)
+public class PedidoitemRepositoryImpl implements PedidoitemRepositoryCustom {
+
+    // Filas por sentencia; acota el tamaño del SQL en pedidos muy grandes
+    private static final int FILAS_POR_SENTENCIA = 500;
+
+    private static final String SQL_INSERTAR =
+            "INSERT INTO pedidoitem (pedidoid, productoid, cantidad, preciounitario) VALUES ";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void insertarLineas(List<Pedidoitem> items) {
+        for (int desde = 0; desde < items.size(); desde += FILAS_POR_SENTENCIA) {
+            insertarBloque(items.subList(desde, Math.min(desde + FILAS_POR_SENTENCIA, items.size())));
+        }
+    }
+
+    private void insertarBloque(List<Pedidoitem> bloque) {
+        StringBuilder sql = new StringBuilder(SQL_INSERTAR);
+        for (int i = 0; i < bloque.size(); i++) {
+            sql.append(i == 0 ? "(?, ?, ?, ?)" : ", (?, ?, ?, ?)");
+        }
+
+        KeyHolder claves = new GeneratedKeyHolder();
+        jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(sql.toString(), Statement.RETURN_GENERATED_KEYS);
+            int indice = 1;
+            for (Pedidoitem item : bloque) {
+                ps.setLong(indice++, item.getPedido().getId());
+                ps.setLong(indice++, item.getProducto().getId());
+                ps.setInt(indice++, item.getCantidad());
+                ps.setBigDecimal(indice++, item.getPreciounitario());
+            }
+            return ps;
+        }, claves);
+
+        // Un INSERT de varias filas devuelve una clave por fila, en el orden de VALUES
+        List<Map<String, Object>> generadas = claves.getKeyList();
+        if (generadas.size() != bloque.size()) {
+            throw new IllegalStateException("Se esperaban " + bloque.size() + " ids generados y se obtuvieron " + generadas.size());
+        }
+        for (int i = 0; i < bloque.size(); i++) {
+            bloque.get(i).setId(((Number) generadas.get(i).values().iterator().next()).longValue());
+        }
+    }
+}
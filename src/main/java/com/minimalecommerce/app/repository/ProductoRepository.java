@@ -1,16 +1,32 @@
 package com.minimalecommerce.app.repository;
 
+import com.minimalecommerce.app.dto.ProductoExportacion;
+import com.minimalecommerce.app.dto.ProductoResumen;
 import com.minimalecommerce.app.model.Producto;
 import com.minimalecommerce.app.model.Categoria;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
-public interface ProductoRepository extends JpaRepository<Producto, Long> {
+public interface ProductoRepository extends JpaRepository<Producto, Long>, ProductoRepositoryCustom {
+
+    // Proyección de listado: solo las columnas de la tarjeta del catálogo, sin cargar
+    // la descripción ni las entidades Categoria y Usuario completas
+    String SELECT_RESUMEN = "SELECT new com.minimalecommerce.app.dto.ProductoResumen(" +
+            "p.id, p.nombre, p.precio, p.stock, p.imagen, p.activo, c.nombre, v.nombre) " +
+            "FROM Producto p JOIN p.categoria c JOIN p.vendedor v ";
 
     // Buscar productos por categoría
     List<Producto> findByCategoria(Categoria categoria);
@@ -35,10 +51,6 @@ public interface ProductoRepository extends JpaRepository<Producto, Long> {
     @Query("SELECT p FROM Producto p WHERE p.precio BETWEEN :precioMin AND :precioMax AND p.activo = true")
     List<Producto> findByPrecioBetween(@Param("precioMin") BigDecimal precioMin, @Param("precioMax") BigDecimal precioMax);
 
-    // Buscar productos más vendidos (simulado por stock bajo)
-    @Query("SELECT p FROM Producto p WHERE p.activo = true ORDER BY p.stock ASC")
-    List<Producto> findProductosPopulares();
-
     // Buscar productos por categoría y con stock
     @Query("SELECT p FROM Producto p WHERE p.categoria.id = :categoriaId AND p.stock > 0 AND p.activo = true")
     List<Producto> findByCategoriaIdAndStockDisponible(@Param("categoriaId") Long categoriaId);
@@ -54,4 +66,108 @@ public interface ProductoRepository extends JpaRepository<Producto, Long> {
     List<Producto> findByVendedorId(Long vendedorId);
 
     List<Producto> findByEspreordenTrueAndActivoTrue();
+
+    // Los productos dados con su categoría y vendedor en una sola consulta (sin selects aparte por
+    // las asociaciones EAGER); los ids que no existen simplemente no aparecen
+    @Query("SELECT p FROM Producto p JOIN FETCH p.categoria JOIN FETCH p.vendedor WHERE p.id IN :ids")
+    List<Producto> findConRelacionesPorIds(@Param("ids") Collection<Long> ids);
+
+    // Precios como (id, precio) de los productos dados que existen
+    @Query("SELECT p.id, p.precio FROM Producto p WHERE p.id IN :ids")
+    List<Object[]> findPreciosPorId(@Param("ids") Collection<Long> ids);
+
+    // Datos mínimos para los resúmenes por categoría: (id, categoriaId, precio, stock) de los activos
+    @Query("SELECT p.id, p.categoria.id, p.precio, p.stock FROM Producto p WHERE p.activo = true")
+    List<Object[]> findDatosResumenCategorias();
+
+    // Stock de todos los productos como (id, stock), para los contadores de reservas
+    @Query("SELECT p.id, p.stock FROM Producto p")
+    List<Object[]> findStockPorId();
+
+    // (id, stock) de esos productos, sin cargar las entidades ni sus asociaciones
+    @Query("SELECT p.id, p.stock FROM Producto p WHERE p.id IN :ids")
+    List<Object[]> findStockPorIds(@Param("ids") Collection<Long> ids);
+
+    // null si el producto no existe
+    @Query("SELECT p.stock FROM Producto p WHERE p.id = :id")
+    Integer findStockById(@Param("id") Long id);
+
+    // Para agregar al carrito: (precio, cantidad y precio del item que el usuario ya tiene o null),
+    // sin cargar las entidades. Lista vacía si el producto no existe.
+    @Query("SELECT p.precio, c.cantidad, c.preciounitario FROM Producto p " +
+            "LEFT JOIN Carritoitem c ON c.producto = p AND c.usuario.id = :usuarioId WHERE p.id = :productoId")
+    List<Object[]> findDatosParaCarrito(@Param("productoId") Long productoId, @Param("usuarioId") Long usuarioId);
+
+    // ==================== LISTADOS (PROYECCIÓN) ====================
+
+    @Query(SELECT_RESUMEN + "WHERE p.activo = true ORDER BY p.id ASC")
+    List<ProductoResumen> findResumenActivos();
+
+    @Query(SELECT_RESUMEN + "WHERE p.stock > 0 AND p.activo = true ORDER BY p.id ASC")
+    List<ProductoResumen> findResumenDisponibles();
+
+    @Query(SELECT_RESUMEN + "WHERE c.id = :categoriaId AND p.stock > 0 AND p.activo = true ORDER BY p.id ASC")
+    List<ProductoResumen> findResumenPorCategoriaConStock(@Param("categoriaId") Long categoriaId);
+
+    @Query(SELECT_RESUMEN + "WHERE p.precio BETWEEN :precioMin AND :precioMax AND p.activo = true " +
+            "ORDER BY p.precio ASC, p.id ASC")
+    List<ProductoResumen> findResumenPorPrecio(@Param("precioMin") BigDecimal precioMin,
+                                              @Param("precioMax") BigDecimal precioMax);
+
+    @Query(SELECT_RESUMEN + "WHERE p.espreorden = true AND p.activo = true ORDER BY p.id ASC")
+    List<ProductoResumen> findResumenPreorden();
+
+    // Todos los productos del vendedor (activos y pausados)
+    @Query(SELECT_RESUMEN + "WHERE v.id = :vendedorId ORDER BY p.id ASC")
+    List<ProductoResumen> findResumenPorVendedor(@Param("vendedorId") Long vendedorId);
+
+    // ==================== EXPORTACIÓN (STREAMING) ====================
+    // Incluye productos inactivos para que quien sincroniza se entere de las bajas.
+    // Con fetch size Integer.MIN_VALUE Connector/J entrega las filas una a una en lugar de
+    // cargar todo el resultado en memoria. Se deben consumir dentro de una transacción.
+
+    String SELECT_EXPORTACION = "SELECT new com.minimalecommerce.app.dto.ProductoExportacion(" +
+            "p.id, p.nombre, p.descripcion, p.precio, p.stock, p.imagen, p.activo, p.espreorden, " +
+            "c.id, c.nombre, v.id, v.nombre, p.fechacreacion, p.fechaactualizacion) " +
+            "FROM Producto p JOIN p.categoria c JOIN p.vendedor v ";
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+    @Query(SELECT_EXPORTACION + "ORDER BY p.id ASC")
+    Stream<ProductoExportacion> streamExportacion();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+    @Query(SELECT_EXPORTACION + "WHERE p.fechaactualizacion >= :desde ORDER BY p.id ASC")
+    Stream<ProductoExportacion> streamExportacionDesde(@Param("desde") LocalDateTime desde);
+
+    // Los productos anteriores a la columna fechaactualizacion la tienen en NULL y la exportación
+    // incremental no los vería nunca: se toma su fecha de creación como última modificación
+    @Modifying
+    @Query(value = "UPDATE producto SET fechaactualizacion = COALESCE(fechacreacion, CURRENT_TIMESTAMP) " +
+            "WHERE fechaactualizacion IS NULL", nativeQuery = true)
+    int completarFechaActualizacion();
+
+    // ==================== PAGINACIÓN POR CURSOR (KEYSET) ====================
+    // Cada consulta continúa después de la última fila vista usando (clave de orden, id),
+    // de modo que el costo por página no crece con la profundidad como con OFFSET.
+
+    @Query(SELECT_RESUMEN + "WHERE p.activo = true AND p.id > :ultimoId ORDER BY p.id ASC")
+    List<ProductoResumen> findActivosDespuesDe(@Param("ultimoId") Long ultimoId, Pageable pageable);
+
+    @Query(SELECT_RESUMEN + "WHERE p.stock > 0 AND p.activo = true AND p.id > :ultimoId ORDER BY p.id ASC")
+    List<ProductoResumen> findDisponiblesDespuesDe(@Param("ultimoId") Long ultimoId, Pageable pageable);
+
+    @Query(SELECT_RESUMEN + "WHERE c.id = :categoriaId AND p.stock > 0 AND p.activo = true " +
+            "AND p.id > :ultimoId ORDER BY p.id ASC")
+    List<ProductoResumen> findByCategoriaIdAndStockDisponibleDespuesDe(@Param("categoriaId") Long categoriaId,
+                                                                      @Param("ultimoId") Long ultimoId,
+                                                                      Pageable pageable);
+
+    @Query(SELECT_RESUMEN + "WHERE p.precio BETWEEN :precioMin AND :precioMax AND p.activo = true " +
+            "AND (p.precio > :ultimoPrecio OR (p.precio = :ultimoPrecio AND p.id > :ultimoId)) " +
+            "ORDER BY p.precio ASC, p.id ASC")
+    List<ProductoResumen> findByPrecioBetweenDespuesDe(@Param("precioMin") BigDecimal precioMin,
+                                                      @Param("precioMax") BigDecimal precioMax,
+                                                      @Param("ultimoPrecio") BigDecimal ultimoPrecio,
+                                                      @Param("ultimoId") Long ultimoId,
+                                                      Pageable pageable);
 }
@@ -0,0 +1,19 @@
+package com.minimalecommerce.app.repository;
+
+import com.minimalecommerce.app.dto.ActualizacionInventario;
+
+import java.util.List;
+import java.util.Map;
+
+// Operaciones de ProductoRepository que se implementan con JDBC directo en lugar de JPA
+public interface ProductoRepositoryCustom {
+
+    // Aplica stock y precio en un único batch de UPDATE sin cargar entidades.
+    // Devuelve las filas afectadas por sentencia, como JdbcTemplate.batchUpdate.
+    int[] actualizarInventario(List<ActualizacionInventario> filas);
+
+    // Descuenta las cantidades (productoId -> unidades) en una sola sentencia condicionada a que
+    // cada producto tenga stock suficiente. Devuelve las filas afectadas: si es menor que
+    // cantidades.size(), algún producto no alcanzaba y el llamador debe revertir la transacción.
+    int descontarStock(Map<Long, Integer> cantidades);
+}
@@ -0,0 +1,86 @@
+package com.minimalecommerce.app.repository;
+
+import com.minimalecommerce.app.dto.ActualizacionInventario;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// Spring Data la combina con ProductoRepository por convención de nombre (sufijo Impl)
+public class ProductoRepositoryImpl implements ProductoRepositoryCustom {
+
+    // Los UPDATE por JDBC no pasan por @PreUpdate: fechaactualizacion se fija aquí
+    private static final String SQL_ACTUALIZAR_INVENTARIO =
+            "UPDATE producto SET stock = COALESCE(?, stock), precio = COALESCE(?, precio), " +
+            "fechaactualizacion = ? WHERE id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public int descontarStock(Map<Long, Integer> cantidades) {
+        if (cantidades.isEmpty()) {
+            return 0;
+        }
+        StringBuilder casos = new StringBuilder("CASE id");
+        StringBuilder ids = new StringBuilder();
+        List<Object> parametrosCaso = new ArrayList<>(cantidades.size() * 2);
+        for (Map.Entry<Long, Integer> entrada : cantidades.entrySet()) {
+            casos.append(" WHEN ? THEN ?");
+            parametrosCaso.add(entrada.getKey());
+            parametrosCaso.add(entrada.getValue());
+            ids.append(ids.length() == 0 ? "?" : ", ?");
+        }
+        casos.append(" END");
+
+        // InnoDB bloquea las filas en el orden en que el UPDATE las recorre, no en el de los
+        // parámetros. Se bloquean antes en orden de id, así dos pedidos con productos en común
+        // esperan uno al otro en lugar de quedar en deadlock
+        jdbcTemplate.queryForList("SELECT id FROM producto WHERE id IN (" + ids + ") ORDER BY id FOR UPDATE",
+                Long.class, cantidades.keySet().toArray());
+
+        // El stock se compara y descuenta en la misma sentencia, con la fila bloqueada: no hay
+        // ventana entre leer y escribir en la que otro pedido pueda llevarse las mismas unidades
+        String sql = "UPDATE producto SET stock = stock - " + casos + ", fechaactualizacion = ? " +
+                "WHERE id IN (" + ids + ") AND stock >= " + casos;
+
+        List<Object> parametros = new ArrayList<>(parametrosCaso.size() * 2 + cantidades.size() + 1);
+        parametros.addAll(parametrosCaso);
+        parametros.add(Timestamp.valueOf(LocalDateTime.now()));
+        parametros.addAll(cantidades.keySet());
+        parametros.addAll(parametrosCaso);
+        return jdbcTemplate.update(sql, parametros.toArray());
+    }
+
+    @Override
+    public int[] actualizarInventario(List<ActualizacionInventario> filas) {
+        Timestamp ahora = Timestamp.valueOf(LocalDateTime.now());
+        return jdbcTemplate.batchUpdate(SQL_ACTUALIZAR_INVENTARIO, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ActualizacionInventario fila = filas.get(i);
+                if (fila.getStock() != null) {
+                    ps.setInt(1, fila.getStock());
+                } else {
+                    ps.setNull(1, Types.INTEGER);
+                }
+                ps.setBigDecimal(2, fila.getPrecio());
+                ps.setTimestamp(3, ahora);
+                ps.setLong(4, fila.getProductoId());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return filas.size();
+            }
+        });
+    }
+}
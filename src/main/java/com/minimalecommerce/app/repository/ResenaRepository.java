@@ -3,6 +3,7 @@ package com.minimalecommerce.app.repository;
 import com.minimalecommerce.app.model.Resena;
 import com.minimalecommerce.app.model.Producto;
 import com.minimalecommerce.app.model.Usuario;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -61,6 +62,7 @@ public interface ResenaRepository extends JpaRepository<Resena, Long> {
     Long countByVendedorIdAndVerificadaTrue(@Param("vendedorId") Long vendedorId);
 
     // Métodos adicionales
-    @Query("SELECT r FROM Resena r WHERE r.producto.id = :productoId ORDER BY r.fecharesena DESC")
-    List<Resena> findTopByProductoIdOrderByFecharesenaDesc(@Param("productoId") Long productoId, int limite);
+    // Las más recientes primero; el Limit se aplica en la consulta (LIMIT), no sobre la lista cargada
+    @Query("SELECT r FROM Resena r WHERE r.producto.id = :productoId ORDER BY r.fecharesena DESC, r.id DESC")
+    List<Resena> findTopByProductoIdOrderByFecharesenaDesc(@Param("productoId") Long productoId, Limit limite);
 }
@@ -0,0 +1,44 @@
+package com.minimalecommerce.app.repository;
+
+import com.minimalecommerce.app.model.Reservastock;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ReservastockRepository extends JpaRepository<Reservastock, Long>, ReservastockRepositoryCustom {
+
+    // Crea o reemplaza la reserva del usuario para el producto en una sola sentencia
+    @Modifying
+    @Query(value = "INSERT INTO reservastock (usuarioid, productoid, cantidad, fechaexpiracion) " +
+            "VALUES (:usuarioId, :productoId, :cantidad, :fechaexpiracion) " +
+            "ON DUPLICATE KEY UPDATE cantidad = VALUES(cantidad), fechaexpiracion = VALUES(fechaexpiracion)",
+            nativeQuery = true)
+    int guardar(@Param("usuarioId") Long usuarioId, @Param("productoId") Long productoId,
+                @Param("cantidad") int cantidad, @Param("fechaexpiracion") LocalDateTime fechaexpiracion);
+
+    // Suma unidades a la reserva del usuario para el producto (o la crea) y renueva su vencimiento
+    @Modifying
+    @Query(value = "INSERT INTO reservastock (usuarioid, productoid, cantidad, fechaexpiracion) " +
+            "VALUES (:usuarioId, :productoId, :cantidad, :fechaexpiracion) " +
+            "ON DUPLICATE KEY UPDATE cantidad = cantidad + VALUES(cantidad), fechaexpiracion = VALUES(fechaexpiracion)",
+            nativeQuery = true)
+    int sumar(@Param("usuarioId") Long usuarioId, @Param("productoId") Long productoId,
+              @Param("cantidad") int cantidad, @Param("fechaexpiracion") LocalDateTime fechaexpiracion);
+
+    @Query("SELECT r FROM Reservastock r WHERE r.fechaexpiracion >= :ahora")
+    List<Reservastock> findVigentes(@Param("ahora") LocalDateTime ahora);
+
+    @Modifying
+    @Query("DELETE FROM Reservastock r WHERE r.usuarioid = :usuarioId AND r.productoid IN :productoIds")
+    int eliminarDeUsuario(@Param("usuarioId") Long usuarioId, @Param("productoIds") Collection<Long> productoIds);
+
+    @Modifying
+    @Query("DELETE FROM Reservastock r WHERE r.fechaexpiracion < :ahora")
+    int eliminarVencidas(@Param("ahora") LocalDateTime ahora);
+}
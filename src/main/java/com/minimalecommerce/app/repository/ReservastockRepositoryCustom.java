@@ -0,0 +1,12 @@
+package com.minimalecommerce.app.repository;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+// Operaciones de ReservastockRepository que se implementan con JDBC directo en lugar de JPA
+public interface ReservastockRepositoryCustom {
+
+    // Crea o reemplaza las reservas del usuario para cada producto de "cantidades" con un INSERT
+    // de varias filas; todas quedan con el mismo vencimiento.
+    void guardarVarias(Long usuarioId, Map<Long, Integer> cantidades, LocalDateTime fechaexpiracion);
+}
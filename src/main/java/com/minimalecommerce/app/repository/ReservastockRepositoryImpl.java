@@ -0,0 +1,43 @@
+package com.minimalecommerce.app.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// Spring Data la combina con ReservastockRepository por convención de nombre (sufijo Impl)
+public class ReservastockRepositoryImpl implements ReservastockRepositoryCustom {
+
+    private static final String SQL_GUARDAR =
+            "INSERT INTO reservastock (usuarioid, productoid, cantidad, fechaexpiracion) VALUES ";
+
+    // Se apoya en la clave única (usuarioid, productoid) de reservastock
+    private static final String SQL_GUARDAR_DUPLICADO =
+            " ON DUPLICATE KEY UPDATE cantidad = VALUES(cantidad), fechaexpiracion = VALUES(fechaexpiracion)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void guardarVarias(Long usuarioId, Map<Long, Integer> cantidades, LocalDateTime fechaexpiracion) {
+        if (cantidades.isEmpty()) {
+            return;
+        }
+        StringBuilder sql = new StringBuilder(SQL_GUARDAR);
+        List<Object> parametros = new ArrayList<>(cantidades.size() * 4);
+        Timestamp vencimiento = Timestamp.valueOf(fechaexpiracion);
+        for (Map.Entry<Long, Integer> entrada : cantidades.entrySet()) {
+            sql.append(parametros.isEmpty() ? "(?, ?, ?, ?)" : ", (?, ?, ?, ?)");
+            parametros.add(usuarioId);
+            parametros.add(entrada.getKey());
+            parametros.add(entrada.getValue());
+            parametros.add(vencimiento);
+        }
+        sql.append(SQL_GUARDAR_DUPLICADO);
+        jdbcTemplate.update(sql.toString(), parametros.toArray());
+    }
+}
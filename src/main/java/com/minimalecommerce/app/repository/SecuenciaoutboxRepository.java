@@ -0,0 +1,23 @@
+package com.minimalecommerce.app.repository;
+
+import com.minimalecommerce.app.model.Secuenciaoutbox;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface SecuenciaoutboxRepository extends JpaRepository<Secuenciaoutbox, String> {
+
+    // Avanza (o crea) la secuencia del agregado y deja su fila bloqueada hasta el fin de la transacción
+    @Modifying
+    @Query(value = "INSERT INTO secuenciaoutbox (agregado, ultima) VALUES (:agregado, 1) " +
+            "ON DUPLICATE KEY UPDATE ultima = ultima + 1",
+            nativeQuery = true)
+    int avanzar(@Param("agregado") String agregado);
+
+    // Dentro de la transacción que la avanzó devuelve el número recién asignado
+    @Query(value = "SELECT ultima FROM secuenciaoutbox WHERE agregado = :agregado", nativeQuery = true)
+    long findUltima(@Param("agregado") String agregado);
+}
@@ -0,0 +1,20 @@
+package com.minimalecommerce.app.repository;
+
+import com.minimalecommerce.app.model.Solicitudidempotente;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface SolicitudidempotenteRepository extends JpaRepository<Solicitudidempotente, Long> {
+
+    Optional<Solicitudidempotente> findByOperacionAndClave(String operacion, String clave);
+
+    @Modifying
+    @Query("DELETE FROM Solicitudidempotente s WHERE s.fechacreacion < :limite")
+    int eliminarAnterioresA(@Param("limite") LocalDateTime limite);
+}
@@ -0,0 +1,73 @@
+package com.minimalecommerce.app.repository;
+
+import com.minimalecommerce.app.dto.PedidoVendedor;
+import com.minimalecommerce.app.model.EstadoPedido;
+import com.minimalecommerce.app.model.Vendedorpedido;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface VendedorpedidoRepository extends JpaRepository<Vendedorpedido, Long> {
+
+    // Cada fila del índice se completa con el total, la dirección y el comprador del pedido por clave primaria
+    String SELECT_PEDIDO_VENDEDOR = "SELECT new com.minimalecommerce.app.dto.PedidoVendedor(v.pedidoid, v.fechapedido, " +
+            "p.total, v.subtotal, v.unidades, v.estado, u.nombre, p.direccionentrega) " +
+            "FROM Vendedorpedido v JOIN Pedido p ON p.id = v.pedidoid JOIN p.usuario u ";
+
+    @Query(SELECT_PEDIDO_VENDEDOR + "WHERE v.vendedorid = :vendedorId ORDER BY v.fechapedido DESC, v.pedidoid DESC")
+    List<PedidoVendedor> findPorVendedor(@Param("vendedorId") Long vendedorId);
+
+    // Página siguiente a (ultimaFecha, ultimoId) en orden descendente
+    @Query(SELECT_PEDIDO_VENDEDOR + "WHERE v.vendedorid = :vendedorId " +
+            "AND (v.fechapedido < :ultimaFecha OR (v.fechapedido = :ultimaFecha AND v.pedidoid < :ultimoId)) " +
+            "ORDER BY v.fechapedido DESC, v.pedidoid DESC")
+    List<PedidoVendedor> findPorVendedorAntesDe(@Param("vendedorId") Long vendedorId,
+                                                @Param("ultimaFecha") LocalDateTime ultimaFecha,
+                                                @Param("ultimoId") Long ultimoId,
+                                                Pageable pageable);
+
+    @Query(SELECT_PEDIDO_VENDEDOR + "WHERE v.vendedorid = :vendedorId ORDER BY v.fechapedido DESC, v.pedidoid DESC")
+    List<PedidoVendedor> findPorVendedorPrimeros(@Param("vendedorId") Long vendedorId, Pageable pageable);
+
+    @Modifying
+    @Query("UPDATE Vendedorpedido v SET v.estado = :estado WHERE v.pedidoid = :pedidoId")
+    int actualizarEstado(@Param("pedidoId") Long pedidoId, @Param("estado") EstadoPedido estado);
+
+    @Modifying
+    @Query("UPDATE Vendedorpedido v SET v.estado = :estado WHERE v.pedidoid IN :pedidoIds")
+    int actualizarEstados(@Param("pedidoIds") Collection<Long> pedidoIds, @Param("estado") EstadoPedido estado);
+
+    @Modifying
+    @Query("DELETE FROM Vendedorpedido v WHERE v.pedidoid = :pedidoId")
+    int eliminarDePedido(@Param("pedidoId") Long pedidoId);
+
+    // Filas del índice calculadas desde las líneas de los pedidos
+    String INSERT_DESDE_LINEAS = "INSERT INTO vendedorpedido (vendedorid, pedidoid, fechapedido, subtotal, unidades, estado) " +
+            "SELECT pr.vendedorid, p.id, p.fechapedido, SUM(pi.preciounitario * pi.cantidad), SUM(pi.cantidad), p.estado " +
+            "FROM pedido p JOIN pedidoitem pi ON pi.pedidoid = p.id JOIN producto pr ON pr.id = pi.productoid " +
+            "WHERE p.fechapedido IS NOT NULL ";
+
+    String AGRUPAR_POR_VENDEDOR = "GROUP BY pr.vendedorid, p.id, p.fechapedido, p.estado";
+
+    // Agrega al índice los pedidos que todavía no tienen filas (los anteriores a su creación).
+    // Es idempotente: se puede correr en cada arranque.
+    @Modifying
+    @Query(value = INSERT_DESDE_LINEAS +
+            "AND NOT EXISTS (SELECT 1 FROM vendedorpedido v WHERE v.pedidoid = p.id) " +
+            AGRUPAR_POR_VENDEDOR,
+            nativeQuery = true)
+    int indexarPedidosFaltantes();
+
+    // Vuelve a escribir las filas de un pedido desde sus líneas; se usa tras eliminarDePedido cuando
+    // cambian las líneas fuera del checkout
+    @Modifying
+    @Query(value = INSERT_DESDE_LINEAS + "AND p.id = :pedidoId " + AGRUPAR_POR_VENDEDOR, nativeQuery = true)
+    int indexarPedido(@Param("pedidoId") Long pedidoId);
+}
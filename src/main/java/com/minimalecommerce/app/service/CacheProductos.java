@@ -0,0 +1,146 @@
+package com.minimalecommerce.app.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.minimalecommerce.app.event.ProductoCambiadoEvent;
+import com.minimalecommerce.app.model.Categoria;
+import com.minimalecommerce.app.model.Producto;
+import com.minimalecommerce.app.model.Usuario;
+import com.minimalecommerce.app.repository.ProductoRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+// Caché de lectura de productos por id (Caffeine, política W-TinyLFU). El tamaño se limita por
+// un peso aproximado en bytes, no por número de entradas. Las instancias cacheadas no salen de
+// aquí: cada lectura recibe una copia propia (producto, categoría y vendedor), así lo que una
+// petición le cambie no lo ve otra. Quien vaya a modificar un producto debe leerlo del repositorio.
+// Los eventos invalidan los cambios hechos por esta instancia; la expiración acota cuánto tiempo
+// se sirve un precio o un stock cambiado por otra instancia o directamente en la base.
+@Component
+public class CacheProductos {
+
+    // Presupuesto de memoria aproximado de la caché
+    private static final long PESO_MAXIMO_BYTES = 16L * 1024 * 1024;
+    private static final Duration EXPIRACION = Duration.ofMinutes(2);
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    private final Cache<Long, Producto> cache = Caffeine.newBuilder()
+            .maximumWeight(PESO_MAXIMO_BYTES)
+            .weigher((Long id, Producto producto) -> pesoEstimado(producto))
+            .expireAfterWrite(EXPIRACION)
+            .recordStats()
+            .build();
+
+    // Lectura a través de la caché; los productos inexistentes no se cachean
+    public Optional<Producto> obtener(Long id) {
+        if (id == null) {
+            return Optional.empty();
+        }
+        Producto cacheado = cache.get(id, clave -> productoRepository.findById(clave).orElse(null));
+        return Optional.ofNullable(cacheado).map(CacheProductos::copia);
+    }
+
+    public void invalidar(Long id) {
+        if (id != null) {
+            cache.invalidate(id);
+        }
+    }
+
+    public void invalidarTodo() {
+        cache.invalidateAll();
+    }
+
+    // Cualquier cambio de producto (actualización, stock, desactivación, borrado, imágenes) publica este evento
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alCambiarProducto(ProductoCambiadoEvent evento) {
+        invalidar(evento.getProductoId());
+    }
+
+    public Map<String, Object> estadisticas() {
+        CacheStats stats = cache.stats();
+        Map<String, Object> resultado = new HashMap<>();
+        resultado.put("entradas", cache.estimatedSize());
+        resultado.put("pesoBytes", cache.policy().eviction().map(e -> e.weightedSize().orElse(0L)).orElse(0L));
+        resultado.put("pesoMaximoBytes", PESO_MAXIMO_BYTES);
+        resultado.put("aciertos", stats.hitCount());
+        resultado.put("fallos", stats.missCount());
+        resultado.put("tasaAciertos", stats.hitRate());
+        resultado.put("desalojos", stats.evictionCount());
+        resultado.put("pesoDesalojado", stats.evictionWeight());
+        resultado.put("tiempoPromedioCargaMs", stats.averageLoadPenalty() / 1_000_000.0);
+        return resultado;
+    }
+
+    // Copia con id, así sirve también como referencia al guardar pedidoitems, preórdenes o reseñas
+    static Producto copia(Producto original) {
+        Producto producto = new Producto();
+        producto.setId(original.getId());
+        producto.setNombre(original.getNombre());
+        producto.setDescripcion(original.getDescripcion());
+        producto.setPrecio(original.getPrecio());
+        producto.setStock(original.getStock());
+        producto.setImagen(original.getImagen());
+        producto.setCategoria(copia(original.getCategoria()));
+        producto.setVendedor(copia(original.getVendedor()));
+        producto.setFechacreacion(original.getFechacreacion());
+        producto.setActivo(original.getActivo());
+        producto.setFechaactualizacion(original.getFechaactualizacion());
+        producto.setEspreorden(original.getEspreorden());
+        return producto;
+    }
+
+    private static Categoria copia(Categoria original) {
+        if (original == null) {
+            return null;
+        }
+        Categoria categoria = new Categoria();
+        categoria.setId(original.getId());
+        categoria.setNombre(original.getNombre());
+        categoria.setDescripcion(original.getDescripcion());
+        return categoria;
+    }
+
+    private static Usuario copia(Usuario original) {
+        if (original == null) {
+            return null;
+        }
+        Usuario usuario = new Usuario();
+        usuario.setId(original.getId());
+        usuario.setNombre(original.getNombre());
+        usuario.setEmail(original.getEmail());
+        usuario.setPassword(original.getPassword());
+        usuario.setTelefono(original.getTelefono());
+        usuario.setDireccion(original.getDireccion());
+        usuario.setFecharegistro(original.getFecharegistro());
+        usuario.setActivo(original.getActivo());
+        usuario.setTipousuario(original.getTipousuario());
+        return usuario;
+    }
+
+    // Estimación en bytes: cabeceras y campos fijos más el texto (2 bytes por carácter)
+    // del producto, su categoría y su vendedor, que se cargan EAGER con él
+    static int pesoEstimado(Producto producto) {
+        int peso = 160;
+        peso += largo(producto.getNombre()) + largo(producto.getDescripcion()) + largo(producto.getImagen());
+        if (producto.getCategoria() != null) {
+            peso += 96 + largo(producto.getCategoria().getNombre()) + largo(producto.getCategoria().getDescripcion());
+        }
+        if (producto.getVendedor() != null) {
+            peso += 192 + largo(producto.getVendedor().getNombre()) + largo(producto.getVendedor().getEmail());
+        }
+        return peso;
+    }
+
+    private static int largo(String texto) {
+        return texto != null ? 40 + 2 * texto.length() : 0;
+    }
+}
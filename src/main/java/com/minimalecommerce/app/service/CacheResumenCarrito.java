@@ -0,0 +1,59 @@
+package com.minimalecommerce.app.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.minimalecommerce.app.dto.ResumenCarrito;
+import com.minimalecommerce.app.repository.CarritoitemRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+
+// Resumen del carrito por usuario para el contador de la cabecera. Se carga con una consulta
+// agregada la primera vez. Al confirmarse, las operaciones que conocen el carrito completo guardan
+// el resumen nuevo y las que cambian una sola línea descartan la entrada, que se vuelve a cargar al
+// pedirla. No se suman diferencias sobre el valor guardado: si una carga concurrente lo hubiera
+// leído antes del cambio, la diferencia se aplicaría sobre un valor viejo.
+@Component
+public class CacheResumenCarrito {
+
+    private static final long MAXIMO_USUARIOS = 100_000;
+    private static final Duration EXPIRACION = Duration.ofMinutes(30);
+
+    @Autowired
+    private CarritoitemRepository carritoitemRepository;
+
+    private final Cache<Long, ResumenCarrito> cache = Caffeine.newBuilder()
+            .maximumSize(MAXIMO_USUARIOS)
+            .expireAfterWrite(EXPIRACION)
+            .build();
+
+    public ResumenCarrito obtener(Long usuarioId) {
+        return cache.get(usuarioId, carritoitemRepository::findResumenPorUsuario);
+    }
+
+    // Una carga en curso para el usuario termina antes de descartarla, así que no puede quedar
+    // guardado un resumen leído antes de confirmar el cambio
+    public void invalidar(Long usuarioId) {
+        despuesDeConfirmar(() -> cache.invalidate(usuarioId));
+    }
+
+    public void reemplazar(Long usuarioId, ResumenCarrito resumen) {
+        despuesDeConfirmar(() -> cache.put(usuarioId, resumen));
+    }
+
+    private static void despuesDeConfirmar(Runnable accion) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    accion.run();
+                }
+            });
+        } else {
+            accion.run();
+        }
+    }
+}
@@ -1,17 +1,28 @@
 package com.minimalecommerce.app.service;
 
+import com.minimalecommerce.app.dto.ResumenCarrito;
+import com.minimalecommerce.app.event.PedidoProcesadoEvent;
+import com.minimalecommerce.app.event.ProductoCambiadoEvent;
 import com.minimalecommerce.app.model.Carritoitem;
+import com.minimalecommerce.app.model.Cupon;
+import com.minimalecommerce.app.model.Dinero;
 import com.minimalecommerce.app.model.Producto;
 import com.minimalecommerce.app.model.Usuario;
 import com.minimalecommerce.app.model.Pedido;
 import com.minimalecommerce.app.model.Pedidoitem;
 import com.minimalecommerce.app.model.EstadoPedido;
+import com.minimalecommerce.app.model.Vendedorpedido;
 import com.minimalecommerce.app.repository.CarritoitemRepository;
+import com.minimalecommerce.app.repository.CuponRepository;
 import com.minimalecommerce.app.repository.ProductoRepository;
 import com.minimalecommerce.app.repository.UsuarioRepository;
 import com.minimalecommerce.app.repository.PedidoRepository;
+import com.minimalecommerce.app.repository.EstadisticapedidosRepository;
 import com.minimalecommerce.app.repository.PedidoitemRepository;
+import com.minimalecommerce.app.repository.VendedorpedidoRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import java.math.BigDecimal;
@@ -22,6 +33,10 @@ import java.util.*;
 @Transactional
 public class CarritoitemService {
 
+    // Nombres de operación en las métricas y eventos JFR de MedidorFases
+    private static final String OP_PROCESAR_PEDIDO = "procesarPedido";
+    private static final String OP_AGREGAR_AL_CARRITO = "agregarProductoAlCarrito";
+
     @Autowired
     private CarritoitemRepository carritoitemRepository;
 
@@ -37,58 +52,82 @@ public class CarritoitemService {
     @Autowired
     private PedidoitemRepository pedidoitemRepository;
 
-    // ==================== OPERACIONES BÁSICAS DEL CARRITO ====================
+    @Autowired
+    private VendedorpedidoRepository vendedorpedidoRepository;
 
-    public List<Carritoitem> obtenerCarritoPorUsuario(Long usuarioId) {
-        return carritoitemRepository.findByUsuarioId(usuarioId);
-    }
+    @Autowired
+    private EstadisticapedidosRepository estadisticapedidosRepository;
 
-    public Carritoitem agregarProductoAlCarrito(Long usuarioId, Long productoId, Integer cantidad) {
-        System.out.println("🔍 Service - Iniciando agregarProductoAlCarrito");
-        System.out.println("🔍 Service - Usuario: " + usuarioId + ", Producto: " + productoId + ", Cantidad: " + cantidad);
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
 
-        try {
-            Usuario usuario = usuarioRepository.findById(usuarioId)
-                    .orElseThrow(() -> new RuntimeException("Usuario no encontrado con ID: " + usuarioId));
+    @Autowired
+    private CuponRepository cuponRepository;
 
-            Producto producto = productoRepository.findById(productoId)
-                    .orElseThrow(() -> new RuntimeException("Producto no encontrado con ID: " + productoId));
+    @Autowired
+    private VersionesCatalogo versionesCatalogo;
 
-            System.out.println("✅ Usuario encontrado: " + usuario.getNombre());
-            System.out.println("✅ Producto encontrado: " + producto.getNombre());
-            System.out.println("✅ Stock disponible: " + producto.getStock());
+    @Autowired
+    private OutboxService outboxService;
 
-            if (producto.getStock() < cantidad) {
-                throw new RuntimeException("Stock insuficiente. Disponible: " + producto.getStock());
-            }
+    @Autowired
+    private MedidorFases medidorFases;
 
-            // Verificar si ya existe el item
-            Optional<Carritoitem> itemExistente = carritoitemRepository.findByUsuarioIdAndProductoId(usuarioId, productoId);
+    @Autowired
+    private ReservasStock reservasStock;
 
-            if (itemExistente.isPresent()) {
-                Carritoitem item = itemExistente.get();
-                int nuevaCantidad = item.getCantidad() + cantidad;
+    @Autowired
+    private CacheResumenCarrito cacheResumenCarrito;
 
-                if (producto.getStock() < nuevaCantidad) {
-                    throw new RuntimeException(
-                            String.format("Ya tienes %d unidad(es) en el carrito. Stock máximo disponible: %d",
-                                    item.getCantidad(), producto.getStock())
-                    );
-                }
+    // ==================== OPERACIONES BÁSICAS DEL CARRITO ====================
+
+    public List<Carritoitem> obtenerCarritoPorUsuario(Long usuarioId) {
+        return carritoitemRepository.findByUsuarioId(usuarioId);
+    }
+
+    // Valida con una proyección (precio y el item que ya está en el carrito), reserva el stock en memoria
+    // y crea o incrementa el item con un único upsert. Devuelve el estado del item.
+    public Map<String, Object> agregarProductoAlCarrito(Long usuarioId, Long productoId, Integer cantidad) {
+        medidorFases.medirHastaConfirmar(OP_AGREGAR_AL_CARRITO, medidorFases.iniciar(OP_AGREGAR_AL_CARRITO, "total"));
 
-                item.setCantidad(nuevaCantidad);
-                System.out.println("🔄 Actualizando item existente a cantidad: " + nuevaCantidad);
-                return carritoitemRepository.save(item);
-            } else {
-                Carritoitem nuevoItem = new Carritoitem(usuario, producto, cantidad);
-                System.out.println("➕ Creando nuevo item en carrito");
-                return carritoitemRepository.save(nuevoItem);
+        List<Object[]> datos = medidorFases.medir(OP_AGREGAR_AL_CARRITO, "cargarProducto",
+                () -> productoRepository.findDatosParaCarrito(productoId, usuarioId));
+        if (datos.isEmpty()) {
+            throw new RuntimeException("Producto no encontrado con ID: " + productoId);
+        }
+        BigDecimal precio = (BigDecimal) datos.get(0)[0];
+        int enCarrito = datos.get(0)[1] != null ? (Integer) datos.get(0)[1] : 0;
+        BigDecimal precioItem = datos.get(0)[2] != null ? (BigDecimal) datos.get(0)[2] : precio;
+
+        // La reserva se suma igual que el item (y se renueva su vencimiento): otro agregado concurrente
+        // del mismo producto puede haber leído el mismo enCarrito
+        boolean reservado = medidorFases.medir(OP_AGREGAR_AL_CARRITO, "reservarStock",
+                () -> reservasStock.sumar(usuarioId, productoId, enCarrito, cantidad));
+        if (!reservado) {
+            int disponible = reservasStock.disponiblePara(usuarioId, productoId);
+            if (enCarrito > 0) {
+                throw new RuntimeException(
+                        String.format("Ya tienes %d unidad(es) en el carrito. Stock máximo disponible: %d",
+                                enCarrito, disponible)
+                );
             }
-        } catch (Exception e) {
-            System.err.println("❌ Error en service agregarProductoAlCarrito: " + e.getMessage());
-            e.printStackTrace();
-            throw e;
+            throw new RuntimeException("Stock insuficiente. Disponible: " + disponible);
+        }
+
+        try {
+            medidorFases.medir(OP_AGREGAR_AL_CARRITO, "guardarItem",
+                    () -> carritoitemRepository.sumarAlCarrito(usuarioId, productoId, cantidad, precio));
+        } catch (DataIntegrityViolationException e) {
+            throw violacionAlGuardar(e, usuarioId);
         }
+        cacheResumenCarrito.invalidar(usuarioId);
+
+        Map<String, Object> item = new HashMap<>();
+        item.put("usuarioId", usuarioId);
+        item.put("productoId", productoId);
+        item.put("cantidad", enCarrito + cantidad);
+        item.put("preciounitario", precioItem);
+        return item;
     }
 
     public Carritoitem actualizarCantidad(Long itemId, Integer nuevaCantidad) {
@@ -99,52 +138,237 @@ public class CarritoitemService {
         Carritoitem item = carritoitemRepository.findById(itemId)
                 .orElseThrow(() -> new RuntimeException("Item del carrito no encontrado"));
 
-        if (item.getProducto().getStock() < nuevaCantidad) {
-            throw new RuntimeException("Stock insuficiente. Disponible: " + item.getProducto().getStock());
+        Long usuarioId = item.getUsuario().getId();
+        Long productoId = item.getProducto().getId();
+        if (!reservasStock.reservar(usuarioId, productoId, nuevaCantidad)) {
+            throw new RuntimeException("Stock insuficiente. Disponible: " + reservasStock.disponiblePara(usuarioId, productoId));
         }
 
+        cacheResumenCarrito.invalidar(usuarioId);
         item.setCantidad(nuevaCantidad);
         return carritoitemRepository.save(item);
     }
 
     public void eliminarItem(Long itemId) {
+        carritoitemRepository.findById(itemId).ifPresent(item -> {
+            reservasStock.liberar(item.getUsuario().getId(), List.of(item.getProducto().getId()));
+            cacheResumenCarrito.invalidar(item.getUsuario().getId());
+        });
         carritoitemRepository.deleteById(itemId);
     }
 
     public void limpiarCarritoPorUsuario(Long usuarioId) {
+        List<Long> productoIds = carritoitemRepository.findLineasPorUsuario(usuarioId).stream()
+                .map(linea -> (Long) linea[0])
+                .toList();
+        reservasStock.liberar(usuarioId, productoIds);
         carritoitemRepository.deleteByUsuarioId(usuarioId);
+        cacheResumenCarrito.reemplazar(usuarioId, ResumenCarrito.VACIO);
+    }
+
+    // Desde la caché de resúmenes: en el camino habitual no consulta la base
+    public ResumenCarrito obtenerResumen(Long usuarioId) {
+        return cacheResumenCarrito.obtener(usuarioId);
     }
 
     public Integer contarProductosPorUsuario(Long usuarioId) {
-        Integer total = carritoitemRepository.sumCantidadByUsuarioId(usuarioId);
-        return total != null ? total : 0;
+        return (int) obtenerResumen(usuarioId).getCantidadProductos();
     }
 
     public long contarItemsPorUsuario(Long usuarioId) {
-        return carritoitemRepository.countByUsuarioId(usuarioId);
+        return obtenerResumen(usuarioId).getCantidadItems();
+    }
+
+    // ==================== OPERACIONES EN LOTE ====================
+
+    public static final String OPERACION_AGREGAR = "agregar";
+    public static final String OPERACION_FIJAR = "fijar";
+    public static final String OPERACION_ELIMINAR = "eliminar";
+
+    private static final int MAXIMO_OPERACIONES_LOTE = 500;
+
+    // Aplica en orden una lista de operaciones {tipo, productoId, cantidad} sobre el carrito del
+    // usuario, en una transacción: "agregar" suma, "fijar" reemplaza y "eliminar" quita la línea.
+    // El carrito y los productos se leen con una consulta cada uno, el stock se valida contra las
+    // reservas en memoria y los cambios (carrito y reservas) se escriben con un upsert de varias filas
+    // cada uno y un DELETE. Si una operación no se puede aplicar no se aplica ninguna. Devuelve el
+    // carrito resultante.
+    public Map<String, Object> aplicarLote(Long usuarioId, List<Map<String, Object>> operaciones) {
+        if (operaciones == null || operaciones.isEmpty()) {
+            throw new RuntimeException("El lote no tiene operaciones");
+        }
+        if (operaciones.size() > MAXIMO_OPERACIONES_LOTE) {
+            throw new RuntimeException("Máximo " + MAXIMO_OPERACIONES_LOTE + " operaciones por lote");
+        }
+
+        Map<Long, Integer> cantidades = new HashMap<>();
+        Map<Long, BigDecimal> precios = new HashMap<>();
+        for (Object[] linea : carritoitemRepository.findLineasPorUsuario(usuarioId)) {
+            cantidades.put((Long) linea[0], (Integer) linea[1]);
+            precios.put((Long) linea[0], (BigDecimal) linea[2]);
+        }
+        Map<Long, Integer> iniciales = new HashMap<>(cantidades);
+
+        // Primera pasada: validar la forma y calcular la cantidad final de cada producto
+        Set<Long> productoIds = new HashSet<>();
+        for (int i = 0; i < operaciones.size(); i++) {
+            Map<String, Object> operacion = operaciones.get(i);
+            String tipo = operacion.get("tipo") != null ? operacion.get("tipo").toString() : null;
+            Object productoId = operacion.get("productoId");
+            if (productoId == null) {
+                throw new RuntimeException("Operación " + i + ": productoId es obligatorio");
+            }
+            Long id = Long.valueOf(productoId.toString());
+            productoIds.add(id);
+
+            if (OPERACION_ELIMINAR.equals(tipo)) {
+                cantidades.remove(id);
+                continue;
+            }
+            if (!OPERACION_AGREGAR.equals(tipo) && !OPERACION_FIJAR.equals(tipo)) {
+                throw new RuntimeException("Operación " + i + ": tipo desconocido " + tipo);
+            }
+            int cantidad = operacion.get("cantidad") != null ? Integer.parseInt(operacion.get("cantidad").toString()) : 0;
+            if (cantidad <= 0) {
+                throw new RuntimeException("Operación " + i + ": la cantidad debe ser mayor a 0");
+            }
+            cantidades.put(id, OPERACION_AGREGAR.equals(tipo) ? cantidades.getOrDefault(id, 0) + cantidad : cantidad);
+        }
+
+        // Todos los productos del lote en una sola consulta; los que se quitan no necesitan existir
+        Map<Long, BigDecimal> preciosActuales = new HashMap<>();
+        for (Object[] fila : productoRepository.findPreciosPorId(productoIds)) {
+            preciosActuales.put((Long) fila[0], (BigDecimal) fila[1]);
+        }
+
+        Map<Long, Integer> cambiados = new HashMap<>();
+        List<Long> eliminados = new ArrayList<>();
+        for (Long id : productoIds) {
+            Integer cantidad = cantidades.get(id);
+            if (cantidad == null) {
+                if (iniciales.containsKey(id)) {
+                    eliminados.add(id);
+                }
+                continue;
+            }
+            if (!preciosActuales.containsKey(id)) {
+                throw new RuntimeException("Producto no encontrado con ID: " + id);
+            }
+            if (cantidad.equals(iniciales.get(id))) {
+                continue;
+            }
+            precios.putIfAbsent(id, preciosActuales.get(id));
+            cambiados.put(id, cantidad);
+        }
+
+        Long sinStock = reservasStock.reservarVarias(usuarioId, cambiados);
+        if (sinStock != null) {
+            throw new RuntimeException(String.format("Stock insuficiente para el producto %d. Disponible: %d",
+                    sinStock, reservasStock.disponiblePara(usuarioId, sinStock)));
+        }
+
+        if (!eliminados.isEmpty()) {
+            reservasStock.liberar(usuarioId, eliminados);
+            carritoitemRepository.eliminarProductos(usuarioId, eliminados);
+        }
+        try {
+            carritoitemRepository.fijarCantidades(usuarioId, cambiados, precios);
+        } catch (DataIntegrityViolationException e) {
+            throw violacionAlGuardar(e, usuarioId);
+        }
+
+        Map<String, Object> carrito = resumenCarrito(cantidades, precios);
+        cacheResumenCarrito.reemplazar(usuarioId, new ResumenCarrito(
+                ((Integer) carrito.get("cantidadItems")).longValue(),
+                ((Integer) carrito.get("cantidadProductos")).longValue(),
+                Dinero.centavos((BigDecimal) carrito.get("total"))));
+        return carrito;
+    }
+
+    // Una violación de integridad al escribir el carrito se informa como usuario inexistente solo si
+    // de verdad falta el usuario; cualquier otra (un producto borrado a la vez, por ejemplo) se propaga
+    private RuntimeException violacionAlGuardar(DataIntegrityViolationException e, Long usuarioId) {
+        if (!usuarioRepository.existsById(usuarioId)) {
+            return new RuntimeException("Usuario no encontrado con ID: " + usuarioId);
+        }
+        return e;
+    }
+
+    private static Map<String, Object> resumenCarrito(Map<Long, Integer> cantidades, Map<Long, BigDecimal> precios) {
+        List<Map<String, Object>> items = new ArrayList<>(cantidades.size());
+        long total = 0L;
+        int cantidadProductos = 0;
+        for (Map.Entry<Long, Integer> entrada : new TreeMap<>(cantidades).entrySet()) {
+            BigDecimal precio = precios.get(entrada.getKey());
+            long subtotal = Dinero.multiplicar(Dinero.centavos(precio), entrada.getValue());
+            Map<String, Object> item = new HashMap<>();
+            item.put("productoId", entrada.getKey());
+            item.put("cantidad", entrada.getValue());
+            item.put("preciounitario", precio);
+            item.put("subtotal", Dinero.aBigDecimal(subtotal));
+            items.add(item);
+            total = Dinero.sumar(total, subtotal);
+            cantidadProductos += entrada.getValue();
+        }
+
+        Map<String, Object> resumen = new HashMap<>();
+        resumen.put("items", items);
+        resumen.put("cantidadItems", items.size());
+        resumen.put("cantidadProductos", cantidadProductos);
+        resumen.put("total", Dinero.aBigDecimal(total));
+        return resumen;
     }
 
     // ==================== PROCESAMIENTO DE PEDIDOS ====================
 
     public Map<String, Object> procesarPedido(Long usuarioId, String direccionEntrega, Long cuponId) {
+        medidorFases.medirHastaConfirmar(OP_PROCESAR_PEDIDO, medidorFases.iniciar(OP_PROCESAR_PEDIDO, "total"));
+
         // Obtener items del carrito
-        List<Carritoitem> itemsCarrito = obtenerCarritoPorUsuario(usuarioId);
+        List<Carritoitem> itemsCarrito = medidorFases.medir(OP_PROCESAR_PEDIDO, "cargarCarrito",
+                () -> obtenerCarritoPorUsuario(usuarioId));
 
         if (itemsCarrito.isEmpty()) {
             throw new RuntimeException("El carrito está vacío");
         }
 
-        // Validar stock antes de procesar
+        Map<Long, Producto> productos = new LinkedHashMap<>();
+        Map<Long, Integer> cantidades = new HashMap<>();
         for (Carritoitem item : itemsCarrito) {
-            if (item.getProducto().getStock() < item.getCantidad()) {
-                throw new RuntimeException("Stock insuficiente para el producto: " + item.getProducto().getNombre());
+            productos.put(item.getProducto().getId(), item.getProducto());
+            cantidades.merge(item.getProducto().getId(), item.getCantidad(), Integer::sum);
+        }
+
+        // Validar stock antes de procesar: cada línea debe estar cubierta por la reserva del usuario
+        // o por unidades libres (la reserva pudo vencer), sin consultar la base
+        medidorFases.medir(OP_PROCESAR_PEDIDO, "validarStock", () -> {
+            Long sinStock = reservasStock.sinCobertura(usuarioId, cantidades);
+            if (sinStock != null) {
+                throw new RuntimeException("Stock insuficiente para el producto: " + productos.get(sinStock).getNombre());
             }
+        });
+
+        // Descontar stock de forma atómica. La validación anterior se hace en memoria: si otro pedido
+        // se llevó las unidades después, alguna fila no se actualiza y se revierte todo el pedido en
+        // lugar de dejar stock negativo
+        int descontados = medidorFases.medir(OP_PROCESAR_PEDIDO, "descontarStock",
+                () -> productoRepository.descontarStock(cantidades));
+        if (descontados != cantidades.size()) {
+            throw new RuntimeException("Stock insuficiente: otro pedido tomó las últimas unidades de alguno de los productos");
         }
 
-        // Calcular total
-        BigDecimal total = itemsCarrito.stream()
-                .map(Carritoitem::getSubtotal)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        // Calcular total en centavos; se convierte a BigDecimal solo para guardarlo
+        long totalCentavos = 0L;
+        for (Carritoitem item : itemsCarrito) {
+            totalCentavos = Dinero.sumar(totalCentavos, item.getSubtotalCentavos());
+        }
+        long subtotalCentavos = totalCentavos;
+
+        // El cupón se valida y se cuenta aquí, en la transacción del pedido: si el pedido se revierte
+        // el uso también, y el UPDATE condicionado impide pasar de usosmaximo con pedidos simultáneos
+        long descuentoCentavos = cuponId == null ? 0L
+                : medidorFases.medir(OP_PROCESAR_PEDIDO, "aplicarCupon", () -> aplicarCupon(cuponId, subtotalCentavos));
+        BigDecimal total = Dinero.aBigDecimal(totalCentavos - descuentoCentavos);
 
         // Crear pedido
         Usuario usuario = usuarioRepository.findById(usuarioId)
@@ -157,28 +381,59 @@ public class CarritoitemService {
         pedido.setEstado(EstadoPedido.PENDIENTE);
         pedido.setDireccionentrega(direccionEntrega);
 
-        Pedido pedidoCreado = pedidoRepository.save(pedido);
+        Pedido pedidoCreado = medidorFases.medir(OP_PROCESAR_PEDIDO, "insertarPedido",
+                () -> pedidoRepository.save(pedido));
+        medidorFases.medir(OP_PROCESAR_PEDIDO, "contarPedido",
+                () -> estadisticapedidosRepository.registrarPedido(usuarioId, total, pedidoCreado.getFechapedido()));
 
-        // Crear items del pedido
-        List<Pedidoitem> itemsPedido = new ArrayList<>();
+        // Crear items del pedido: todas las líneas en un solo INSERT de varias filas.
+        // Con ids IDENTITY Hibernate no puede agrupar los save() en un batch
+        List<Pedidoitem> itemsPedido = new ArrayList<>(itemsCarrito.size());
         for (Carritoitem itemCarrito : itemsCarrito) {
             Pedidoitem pedidoItem = new Pedidoitem();
             pedidoItem.setPedido(pedidoCreado);
             pedidoItem.setProducto(itemCarrito.getProducto());
             pedidoItem.setCantidad(itemCarrito.getCantidad());
             pedidoItem.setPreciounitario(itemCarrito.getPreciounitario());
-
-            Pedidoitem itemCreado = pedidoitemRepository.save(pedidoItem);
-            itemsPedido.add(itemCreado);
-
-            // Actualizar stock del producto
-            Producto producto = itemCarrito.getProducto();
-            producto.setStock(producto.getStock() - itemCarrito.getCantidad());
-            productoRepository.save(producto);
+            itemsPedido.add(pedidoItem);
         }
-
-        // Limpiar carrito
-        limpiarCarritoPorUsuario(usuarioId);
+        medidorFases.medir(OP_PROCESAR_PEDIDO, "insertarLineas",
+                () -> pedidoitemRepository.insertarLineas(itemsPedido));
+
+        // Las estructuras en memoria reciben las unidades vendidas, no el stock resultante: los
+        // eventos de dos checkouts del mismo producto pueden aplicarse en cualquier orden. El stock
+        // nuevo (exacto, las filas siguen bloqueadas por el UPDATE) solo decide las alertas
+        Map<Long, Integer> stockNuevo = new HashMap<>();
+        medidorFases.medir(OP_PROCESAR_PEDIDO, "publicarStock", () -> {
+            for (Object[] fila : productoRepository.findStockPorIds(cantidades.keySet())) {
+                stockNuevo.put((Long) fila[0], (Integer) fila[1]);
+            }
+            for (Producto producto : productos.values()) {
+                eventPublisher.publishEvent(ProductoCambiadoEvent.stockDescontado(producto, cantidades.get(producto.getId())));
+            }
+        });
+
+        // Parte de cada vendedor en el pedido, para su índice de pedidos
+        Collection<Vendedorpedido> porVendedor = partesPorVendedor(pedidoCreado, itemsPedido);
+        medidorFases.medir(OP_PROCESAR_PEDIDO, "indexarVendedores",
+                () -> vendedorpedidoRepository.saveAll(porVendedor));
+
+        medidorFases.medir(OP_PROCESAR_PEDIDO, "registrarOutbox",
+                () -> registrarEfectosPosteriores(pedidoCreado, porVendedor, cantidades, stockNuevo));
+
+        // Limpiar carrito. Las reservas se sueltan al confirmar: el descuento ya está hecho
+        medidorFases.medir(OP_PROCESAR_PEDIDO, "limpiarCarrito", () -> {
+            reservasStock.liberar(usuarioId, cantidades.keySet());
+            carritoitemRepository.deleteByUsuarioId(usuarioId);
+            cacheResumenCarrito.reemplazar(usuarioId, ResumenCarrito.VACIO);
+        });
+
+        List<PedidoProcesadoEvent.Linea> lineas = new ArrayList<>();
+        for (Pedidoitem item : itemsPedido) {
+            lineas.add(new PedidoProcesadoEvent.Linea(item.getProducto().getId(), item.getCantidad()));
+        }
+        eventPublisher.publishEvent(new PedidoProcesadoEvent(pedidoCreado.getId(), usuarioId,
+                pedidoCreado.getFechapedido(), lineas));
 
         // ✅ PREPARAR RESPUESTA COMPLETA PARA EL FRONTEND
         Map<String, Object> response = new HashMap<>();
@@ -186,9 +441,84 @@ public class CarritoitemService {
         response.put("pedido", pedidoCreado);
         response.put("items", itemsPedido);
         response.put("cantidadItems", itemsPedido.size());
-        response.put("subtotal", total);
+        response.put("subtotal", Dinero.aBigDecimal(subtotalCentavos));
+        response.put("descuento", Dinero.aBigDecimal(descuentoCentavos));
+        response.put("total", total);
         response.put("mensaje", "Pedido procesado exitosamente");
 
         return response;
     }
+
+    // Descuento del cupón sobre el subtotal. El uso se registra solo si el cupón sigue activo,
+    // vigente y con usos disponibles en el momento del UPDATE
+    private long aplicarCupon(Long cuponId, long subtotalCentavos) {
+        Cupon cupon = cuponRepository.findById(cuponId)
+                .orElseThrow(() -> new RuntimeException("Cupón no encontrado"));
+        long descuento = cupon.calcularDescuento(subtotalCentavos);
+        if (cuponRepository.registrarUso(cuponId, LocalDateTime.now()) == 0) {
+            throw new RuntimeException("El cupón no está vigente o ya no tiene usos disponibles");
+        }
+        versionesCatalogo.cuponesCambiados();
+        return descuento;
+    }
+
+    private static Collection<Vendedorpedido> partesPorVendedor(Pedido pedido, List<Pedidoitem> itemsPedido) {
+        Map<Long, Integer> unidadesPorVendedor = new HashMap<>();
+        Map<Long, Long> ventasPorVendedor = new HashMap<>();
+        for (Pedidoitem item : itemsPedido) {
+            Long vendedorId = item.getProducto().getVendedor().getId();
+            unidadesPorVendedor.merge(vendedorId, item.getCantidad(), Integer::sum);
+            ventasPorVendedor.merge(vendedorId, item.getSubtotalCentavos(), Dinero::sumar);
+        }
+
+        List<Vendedorpedido> partes = new ArrayList<>(unidadesPorVendedor.size());
+        for (Map.Entry<Long, Integer> entrada : unidadesPorVendedor.entrySet()) {
+            Vendedorpedido parte = new Vendedorpedido();
+            parte.setVendedorid(entrada.getKey());
+            parte.setPedidoid(pedido.getId());
+            parte.setFechapedido(pedido.getFechapedido());
+            parte.setSubtotal(Dinero.aBigDecimal(ventasPorVendedor.get(entrada.getKey())));
+            parte.setUnidades(entrada.getValue());
+            parte.setEstado(pedido.getEstado());
+            partes.add(parte);
+        }
+        return partes;
+    }
+
+    // Métricas, notificaciones y alertas de stock se escriben en el outbox dentro de
+    // esta transacción y se aplican en segundo plano: el checkout no espera por ellas
+    private void registrarEfectosPosteriores(Pedido pedido, Collection<Vendedorpedido> porVendedor,
+                                             Map<Long, Integer> cantidades, Map<Long, Integer> stockNuevo) {
+        Map<String, Object> comprador = new HashMap<>();
+        comprador.put("usuarioId", pedido.getUsuario().getId());
+        comprador.put("pedidoId", pedido.getId());
+        comprador.put("total", pedido.getTotal());
+        outboxService.registrar(OutboxService.NOTIFICACION_COMPRADOR, "usuario:" + pedido.getUsuario().getId(), comprador);
+
+        // Unidades y ventas por vendedor
+        for (Vendedorpedido parte : porVendedor) {
+            Long vendedorId = parte.getVendedorid();
+            Map<String, Object> venta = new HashMap<>();
+            venta.put("vendedorId", vendedorId);
+            venta.put("pedidoId", pedido.getId());
+            venta.put("fecha", pedido.getFechapedido().toLocalDate().toString());
+            venta.put("unidades", parte.getUnidades());
+            venta.put("ventas", parte.getSubtotal());
+            outboxService.registrar(OutboxService.METRICAS_VENDEDOR, "vendedor:" + vendedorId, venta);
+            outboxService.registrar(OutboxService.NOTIFICACION_VENDEDOR, "usuario:" + vendedorId, venta);
+        }
+
+        // Solo avisa el pedido que cruzó el umbral, no cada venta posterior
+        for (Map.Entry<Long, Integer> entrada : stockNuevo.entrySet()) {
+            int stock = entrada.getValue();
+            int stockAnterior = stock + cantidades.get(entrada.getKey());
+            if (stock <= EfectosPedidoService.UMBRAL_STOCK_BAJO
+                    && stockAnterior > EfectosPedidoService.UMBRAL_STOCK_BAJO) {
+                Map<String, Object> alerta = new HashMap<>();
+                alerta.put("productoId", entrada.getKey());
+                alerta.put("stock", stock);
+                outboxService.registrar(OutboxService.ALERTA_STOCK, "producto:" + entrada.getKey(), alerta);
+            }
+        }
+    }
 }
@@ -13,6 +13,9 @@ public class CategoriaService {
     @Autowired
     private CategoriaRepository categoriaRepository;
 
+    @Autowired
+    private VersionesCatalogo versionesCatalogo;
+
     // Obtener todas las categorías
     public List<Categoria> obtenerTodasCategorias() {
         return categoriaRepository.findAll();
@@ -33,7 +36,9 @@ public class CategoriaService {
         if (categoriaRepository.existsByNombre(categoria.getNombre())) {
             throw new RuntimeException("Ya existe una categoría con ese nombre");
         }
-        return categoriaRepository.save(categoria);
+        Categoria guardada = categoriaRepository.save(categoria);
+        versionesCatalogo.categoriaCambiada(guardada.getId());
+        return guardada;
     }
 
     // Actualizar categoría
@@ -41,7 +46,9 @@ public class CategoriaService {
         Optional<Categoria> categoriaExistente = categoriaRepository.findById(id);
         if (categoriaExistente.isPresent()) {
             categoria.setId(id);
-            return categoriaRepository.save(categoria);
+            Categoria guardada = categoriaRepository.save(categoria);
+            versionesCatalogo.categoriaCambiada(id);
+            return guardada;
         }
         throw new RuntimeException("Categoría no encontrada");
     }
@@ -49,6 +56,7 @@ public class CategoriaService {
     // Eliminar categoría
     public void eliminarCategoria(Long id) {
         categoriaRepository.deleteById(id);
+        versionesCatalogo.categoriaCambiada(id);
     }
 
     // Buscar categorías por texto
@@ -24,6 +24,9 @@ public class CuponService {
     @Autowired
     private UsuarioRepository usuarioRepository;
 
+    @Autowired
+    private VersionesCatalogo versionesCatalogo;
+
     // ==================== OPERACIONES BÁSICAS ====================
 
     public List<Cupon> obtenerTodosCupones() {
@@ -169,9 +172,11 @@ public class CuponService {
             Cupon cupon = validarYObtenerCupon(codigo);
             BigDecimal descuento = calcularDescuento(cupon, montoBase);
 
-            // Incrementar uso del cupón
-            cupon.incrementarUso();
-            cuponRepository.save(cupon);
+            // Registrar el uso con la misma condición de validez, en una sola sentencia
+            if (cuponRepository.registrarUso(cupon.getId(), LocalDateTime.now()) == 0) {
+                throw new RuntimeException("El cupón ya no tiene usos disponibles");
+            }
+            versionesCatalogo.cuponesCambiados();
 
             return descuento;
 
@@ -205,7 +210,9 @@ public class CuponService {
             cupon.setUsosactuales(0);
             cupon.setActivo(true);
 
-            return cuponRepository.save(cupon);
+            Cupon guardado = cuponRepository.save(cupon);
+            versionesCatalogo.cuponesCambiados();
+            return guardado;
 
         } catch (Exception e) {
             throw new RuntimeException("Error al crear cupón: " + e.getMessage());
@@ -237,7 +244,9 @@ public class CuponService {
             cuponExistente.setUsosmaximo(cuponActualizado.getUsosmaximo());
             cuponExistente.setActivo(cuponActualizado.getActivo());
 
-            return cuponRepository.save(cuponExistente);
+            Cupon guardado = cuponRepository.save(cuponExistente);
+            versionesCatalogo.cuponesCambiados();
+            return guardado;
 
         } catch (Exception e) {
             throw new RuntimeException("Error al actualizar cupón: " + e.getMessage());
@@ -251,6 +260,7 @@ public class CuponService {
 
             cupon.setActivo(false);
             cuponRepository.save(cupon);
+            versionesCatalogo.cuponesCambiados();
 
         } catch (Exception e) {
             throw new RuntimeException("Error al desactivar cupón: " + e.getMessage());
@@ -264,6 +274,7 @@ public class CuponService {
             }
 
             cuponRepository.deleteById(id);
+            versionesCatalogo.cuponesCambiados();
 
         } catch (Exception e) {
             throw new RuntimeException("Error al eliminar cupón: " + e.getMessage());
@@ -346,7 +357,11 @@ public class CuponService {
 
     public int desactivarCuponesVencidos() {
         try {
-            return cuponRepository.desactivarCuponesVencidos(LocalDateTime.now());
+            int desactivados = cuponRepository.desactivarCuponesVencidos(LocalDateTime.now());
+            if (desactivados > 0) {
+                versionesCatalogo.cuponesCambiados();
+            }
+            return desactivados;
         } catch (Exception e) {
             throw new RuntimeException("Error al desactivar cupones vencidos: " + e.getMessage());
         }
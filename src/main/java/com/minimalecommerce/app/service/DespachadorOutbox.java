@@ -0,0 +1,231 @@
+package com.minimalecommerce.app.service;
+
+import com.minimalecommerce.app.model.Eventooutbox;
+import com.minimalecommerce.app.repository.EventooutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Aplica en segundo plano los eventos del outbox. Cada ciclo toma un lote de pendientes listos en orden de id,
+// los agrupa por agregado y procesa cada grupo en un pool acotado: agregados distintos en paralelo,
+// los eventos de un mismo agregado en serie y en orden de secuencia. Un evento que falla se reintenta con espera
+// exponencial y, mientras tanto, bloquea a los posteriores de su agregado (la consulta del lote los deja fuera).
+// Supone una sola instancia de la aplicación; con varias habría que reclamar el lote con
+// SELECT ... FOR UPDATE SKIP LOCKED.
+@Component
+public class DespachadorOutbox {
+
+    private static final Logger log = LoggerFactory.getLogger(DespachadorOutbox.class);
+
+    private static final int TAMANO_LOTE = 200;
+    private static final int HILOS = 4;
+    private static final int MAXIMO_INTENTOS = 8;
+    private static final long ESPERA_MAXIMA_SEGUNDOS = 600;
+    private static final Duration RETENCION_PROCESADOS = Duration.ofDays(7);
+
+    public static final String METRICA_EVENTOS = "outbox.eventos";
+    public static final String METRICA_LAG = "outbox.lag";
+    public static final String METRICA_PENDIENTES = "outbox.pendientes";
+
+    @Autowired
+    private EventooutboxRepository eventooutboxRepository;
+
+    @Autowired
+    private EfectosPedidoService efectosPedidoService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final Counter procesados;
+    private final Counter reintentos;
+    private final Counter descartados;
+    // Latencia entre la creación del evento y su aplicación
+    private final Timer lag;
+
+    // Cola acotada al tamaño del lote: si se llena, el hilo del scheduler procesa el grupo él mismo
+    private final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+            HILOS, HILOS, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(TAMANO_LOTE),
+            hilos("outbox-"),
+            new ThreadPoolExecutor.CallerRunsPolicy());
+
+    // Los contadores y la latencia se exportan con el resto de las métricas (Prometheus); los pendientes,
+    // fallidos y la edad del más antiguo se consultan a la base cuando se leen
+    public DespachadorOutbox(MeterRegistry meterRegistry) {
+        procesados = evento(meterRegistry, "procesado");
+        reintentos = evento(meterRegistry, "reintento");
+        descartados = evento(meterRegistry, "descartado");
+        lag = Timer.builder(METRICA_LAG)
+                .description("Tiempo entre la confirmación de un evento outbox y su aplicación")
+                .publishPercentiles(0.5, 0.99)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+
+        Gauge.builder(METRICA_PENDIENTES, () -> eventooutboxRepository.countByEstado(Eventooutbox.Estado.PENDIENTE))
+                .description("Eventos outbox pendientes de aplicar")
+                .register(meterRegistry);
+        Gauge.builder("outbox.fallidos", () -> eventooutboxRepository.countByEstado(Eventooutbox.Estado.FALLIDO))
+                .description("Eventos outbox descartados tras agotar los reintentos")
+                .register(meterRegistry);
+        Gauge.builder("outbox.pendiente.edad", this::edadPendienteMasAntiguo)
+                .description("Antigüedad del evento outbox pendiente más antiguo")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        Gauge.builder("outbox.hilos.activos", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Hilos del despachador aplicando eventos")
+                .register(meterRegistry);
+    }
+
+    private static Counter evento(MeterRegistry meterRegistry, String resultado) {
+        return Counter.builder(METRICA_EVENTOS)
+                .description("Eventos outbox por resultado de cada intento")
+                .tag("resultado", resultado)
+                .register(meterRegistry);
+    }
+
+    // ==================== DESPACHO ====================
+
+    // La espera inicial es configurable para que las pruebas puedan dejar el ciclo apagado y despachar a mano
+    @Scheduled(fixedDelay = 500, initialDelayString = "${outbox.espera-inicial-ms:5000}")
+    public void despachar() {
+        List<Eventooutbox> lote = eventooutboxRepository.findListos(
+                Eventooutbox.Estado.PENDIENTE, LocalDateTime.now(), PageRequest.of(0, TAMANO_LOTE));
+        if (lote.isEmpty()) {
+            return;
+        }
+
+        Map<String, List<Eventooutbox>> porAgregado = new LinkedHashMap<>();
+        for (Eventooutbox evento : lote) {
+            porAgregado.computeIfAbsent(evento.getAgregado(), k -> new ArrayList<>()).add(evento);
+        }
+        for (List<Eventooutbox> eventos : porAgregado.values()) {
+            eventos.sort(Comparator.comparing(Eventooutbox::getSecuencia));
+        }
+
+        List<Future<?>> tareas = new ArrayList<>(porAgregado.size());
+        for (List<Eventooutbox> eventos : porAgregado.values()) {
+            tareas.add(executor.submit(() -> procesarEnOrden(eventos)));
+        }
+
+        // El siguiente lote no empieza hasta terminar este, así el orden por agregado se mantiene
+        for (Future<?> tarea : tareas) {
+            try {
+                tarea.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                log.error("Error inesperado despachando el outbox", e.getCause());
+            }
+        }
+    }
+
+    private void procesarEnOrden(List<Eventooutbox> eventos) {
+        for (Eventooutbox evento : eventos) {
+            if (!procesar(evento)) {
+                return;
+            }
+        }
+    }
+
+    // Devuelve false si el evento queda pendiente de reintento (los siguientes del agregado esperan)
+    private boolean procesar(Eventooutbox evento) {
+        try {
+            // El efecto y la marca de procesado se confirman juntos
+            transactionTemplate.executeWithoutResult(status -> {
+                efectosPedidoService.aplicar(evento.getTipo(), evento.getPayload());
+                eventooutboxRepository.marcarProcesado(evento.getId(), Eventooutbox.Estado.PROCESADO, LocalDateTime.now());
+            });
+            procesados.increment();
+            lag.record(Duration.between(evento.getFechacreacion(), LocalDateTime.now()));
+            return true;
+        } catch (RuntimeException e) {
+            int intentos = evento.getIntentos() + 1;
+            boolean agotado = intentos >= MAXIMO_INTENTOS;
+            long espera = Math.min(1L << intentos, ESPERA_MAXIMA_SEGUNDOS);
+            String error = e.getMessage() != null ? e.getMessage() : e.getClass().getName();
+
+            transactionTemplate.executeWithoutResult(status -> eventooutboxRepository.registrarFallo(
+                    evento.getId(),
+                    agotado ? Eventooutbox.Estado.FALLIDO : Eventooutbox.Estado.PENDIENTE,
+                    intentos,
+                    LocalDateTime.now().plusSeconds(espera),
+                    error.length() > 500 ? error.substring(0, 500) : error));
+
+            if (agotado) {
+                descartados.increment();
+                log.error("Evento outbox {} ({}) descartado tras {} intentos: {}", evento.getId(), evento.getTipo(), intentos, error);
+                // Queda en FALLIDO para revisión manual; no bloquea más al agregado
+                return true;
+            }
+            reintentos.increment();
+            log.warn("Evento outbox {} ({}) falló, reintento {} en {} s: {}", evento.getId(), evento.getTipo(), intentos, espera, error);
+            return false;
+        }
+    }
+
+    // Los procesados se conservan una semana para auditoría
+    @Scheduled(cron = "0 30 3 * * *")
+    public void purgarProcesados() {
+        transactionTemplate.executeWithoutResult(status -> eventooutboxRepository.eliminarProcesadosAntesDe(
+                Eventooutbox.Estado.PROCESADO, LocalDateTime.now().minus(RETENCION_PROCESADOS)));
+    }
+
+    @PreDestroy
+    public void detener() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    // ==================== ESTADÍSTICAS ====================
+
+    private double edadPendienteMasAntiguo() {
+        LocalDateTime masAntiguo = eventooutboxRepository.findFechaMasAntigua(Eventooutbox.Estado.PENDIENTE);
+        return masAntiguo != null ? Duration.between(masAntiguo, LocalDateTime.now()).toMillis() : 0;
+    }
+
+    // Los mismos valores que las métricas, para consultarlos sin Prometheus
+    public Map<String, Object> estadisticas() {
+        HistogramSnapshot muestras = lag.takeSnapshot();
+        Map<String, Object> resultado = new HashMap<>();
+        resultado.put("pendientes", eventooutboxRepository.countByEstado(Eventooutbox.Estado.PENDIENTE));
+        resultado.put("fallidos", eventooutboxRepository.countByEstado(Eventooutbox.Estado.FALLIDO));
+        resultado.put("edadPendienteMasAntiguoMs", (long) edadPendienteMasAntiguo());
+        resultado.put("procesados", (long) procesados.count());
+        resultado.put("reintentos", (long) reintentos.count());
+        resultado.put("descartados", (long) descartados.count());
+        for (ValueAtPercentile percentil : muestras.percentileValues()) {
+            resultado.put("lagP" + Math.round(percentil.percentile() * 100) + "Ms",
+                    (long) percentil.value(TimeUnit.MILLISECONDS));
+        }
+        resultado.put("lagMaximoMs", (long) muestras.max(TimeUnit.MILLISECONDS));
+        resultado.put("hilosActivos", executor.getActiveCount());
+        return resultado;
+    }
+
+    private static ThreadFactory hilos(String prefijo) {
+        AtomicInteger contador = new AtomicInteger();
+        return tarea -> {
+            Thread hilo = new Thread(tarea, prefijo + contador.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        };
+    }
+}
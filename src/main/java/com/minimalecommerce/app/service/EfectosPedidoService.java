@@ -0,0 +1,137 @@
+package com.minimalecommerce.app.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.minimalecommerce.app.model.Favorito;
+import com.minimalecommerce.app.model.Metricavendedor;
+import com.minimalecommerce.app.model.Notificacion;
+import com.minimalecommerce.app.model.Producto;
+import com.minimalecommerce.app.model.TipoNotificacion;
+import com.minimalecommerce.app.model.Usuario;
+import com.minimalecommerce.app.repository.FavoritoRepository;
+import com.minimalecommerce.app.repository.MetricavendedorRepository;
+import com.minimalecommerce.app.repository.ProductoRepository;
+import com.minimalecommerce.app.repository.UsuarioRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// Efectos secundarios de un pedido confirmado. Cada método aplica un evento del outbox y se ejecuta
+// en la transacción que además lo marca como procesado (ver DespachadorOutbox).
+@Service
+public class EfectosPedidoService {
+
+    // Unidades por debajo de las cuales se avisa al vendedor y a quienes siguen el producto
+    public static final int UMBRAL_STOCK_BAJO = 5;
+
+    @Autowired
+    private MetricavendedorRepository metricavendedorRepository;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private FavoritoRepository favoritoRepository;
+
+    @Autowired
+    private NotificacionService notificacionService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    public void aplicar(String tipo, String payload) {
+        JsonNode datos;
+        try {
+            datos = objectMapper.readTree(payload);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Payload inválido para " + tipo, e);
+        }
+
+        switch (tipo) {
+            case OutboxService.METRICAS_VENDEDOR -> actualizarMetricas(datos);
+            case OutboxService.NOTIFICACION_COMPRADOR -> notificarComprador(datos);
+            case OutboxService.NOTIFICACION_VENDEDOR -> notificarVendedor(datos);
+            case OutboxService.ALERTA_STOCK -> alertarStock(datos);
+            default -> throw new RuntimeException("Tipo de evento desconocido: " + tipo);
+        }
+    }
+
+    // ==================== MÉTRICAS ====================
+
+    // Los eventos de un mismo vendedor se aplican en serie, así que leer y sumar no pierde ventas
+    private void actualizarMetricas(JsonNode datos) {
+        Long vendedorId = datos.get("vendedorId").asLong();
+        LocalDate fecha = LocalDate.parse(datos.get("fecha").asText());
+
+        Metricavendedor metrica = metricavendedorRepository.findByVendedorIdAndFecha(vendedorId, fecha)
+                .orElseGet(() -> {
+                    Metricavendedor nueva = new Metricavendedor();
+                    nueva.setVendedor(usuarioRepository.getReferenceById(vendedorId));
+                    nueva.setFecha(fecha);
+                    return nueva;
+                });
+        metrica.setProductosvendidos(metrica.getProductosvendidos() + datos.get("unidades").asInt());
+        metrica.setVentastotal(metrica.getVentastotal().add(datos.get("ventas").decimalValue()));
+        metricavendedorRepository.save(metrica);
+    }
+
+    // ==================== NOTIFICACIONES ====================
+
+    private void notificarComprador(JsonNode datos) {
+        notificar(datos.get("usuarioId").asLong(), TipoNotificacion.PEDIDO,
+                "Pedido confirmado",
+                "Tu pedido #" + datos.get("pedidoId").asLong() + " por $" + datos.get("total").decimalValue()
+                        + " fue recibido y está pendiente de envío.");
+    }
+
+    private void notificarVendedor(JsonNode datos) {
+        notificar(datos.get("vendedorId").asLong(), TipoNotificacion.PEDIDO,
+                "Nueva venta",
+                "Vendiste " + datos.get("unidades").asInt() + " unidad(es) en el pedido #"
+                        + datos.get("pedidoId").asLong() + " por $" + datos.get("ventas").decimalValue() + ".");
+    }
+
+    private void notificar(Long usuarioId, TipoNotificacion tipo, String titulo, String mensaje) {
+        Usuario usuario = new Usuario();
+        usuario.setId(usuarioId);
+
+        Notificacion notificacion = new Notificacion();
+        notificacion.setUsuario(usuario);
+        notificacion.setTipo(tipo);
+        notificacion.setTitulo(titulo);
+        notificacion.setMensaje(mensaje);
+        notificacion.setEstadoEnvio(Notificacion.EstadoEnvio.ENVIADA);
+        notificacion.setFechaEnvio(LocalDateTime.now());
+        notificacionService.crearNotificacion(notificacion);
+    }
+
+    // ==================== ALERTAS DE STOCK ====================
+
+    // Se publica cuando un pedido deja el producto por debajo del umbral. Si al aplicarse ya
+    // se repuso, no se avisa a nadie
+    private void alertarStock(JsonNode datos) {
+        Producto producto = productoRepository.findById(datos.get("productoId").asLong()).orElse(null);
+        if (producto == null || producto.getStock() > UMBRAL_STOCK_BAJO) {
+            return;
+        }
+
+        String estado = producto.getStock() == 0 ? "se agotó" : "tiene solo " + producto.getStock() + " unidad(es)";
+        if (producto.getVendedor() != null) {
+            notificar(producto.getVendedor().getId(), TipoNotificacion.STOCK,
+                    "Stock bajo", "Tu producto \"" + producto.getNombre() + "\" " + estado + ".");
+        }
+        if (producto.getStock() > 0) {
+            for (Favorito favorito : favoritoRepository.findByProductoIdAndNotificarstockTrue(producto.getId())) {
+                notificar(favorito.getUsuario().getId(), TipoNotificacion.STOCK,
+                        "Quedan pocas unidades",
+                        "\"" + producto.getNombre() + "\", de tus favoritos, " + estado + ".");
+            }
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.minimalecommerce.app.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.minimalecommerce.app.dto.ProductoExportacion;
+import com.minimalecommerce.app.repository.ProductoRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+// Exportación del catálogo completo como NDJSON (un objeto JSON por línea). Las filas se leen con
+// un cursor de solo avance y se escriben a medida que llegan, así que la memoria usada no depende
+// del número de productos.
+@Service
+public class ExportacionCatalogoService {
+
+    private static final Logger log = LoggerFactory.getLogger(ExportacionCatalogoService.class);
+
+    // Una exportación grande supera el timeout por defecto de las transacciones (30 s)
+    private static final int TIMEOUT_SEGUNDOS = 600;
+
+    // Cada cuántas filas se vacía el buffer hacia el cliente
+    private static final int FILAS_POR_FLUSH = 1000;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // Completa al arrancar la fecha de modificación de los productos que no la tienen. Con el índice
+    // sobre fechaactualizacion, una vez hecho solo busca filas en NULL y no recorre la tabla
+    @EventListener(ApplicationReadyEvent.class)
+    public void completarFechasActualizacion() {
+        Integer completados = new TransactionTemplate(transactionManager)
+                .execute(status -> productoRepository.completarFechaActualizacion());
+        if (completados != null && completados > 0) {
+            log.info("Exportación del catálogo: {} productos sin fecha de actualización completados", completados);
+        }
+    }
+
+    // Escribe en salida los productos modificados desde "desde" (o todos si es null); no cierra salida
+    public long exportarNdjson(LocalDateTime desde, OutputStream salida) {
+        TransactionTemplate plantilla = new TransactionTemplate(transactionManager);
+        plantilla.setReadOnly(true);
+        plantilla.setTimeout(TIMEOUT_SEGUNDOS);
+
+        Long total = plantilla.execute(status -> {
+            ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+            try (Stream<ProductoExportacion> filas = desde != null
+                    ? productoRepository.streamExportacionDesde(desde)
+                    : productoRepository.streamExportacion();
+                 JsonGenerator generador = objectMapper.getFactory().createGenerator(salida)) {
+
+                generador.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                generador.setRootValueSeparator(null);
+
+                long escritas = 0;
+                Iterator<ProductoExportacion> it = filas.iterator();
+                while (it.hasNext()) {
+                    writer.writeValue(generador, it.next());
+                    generador.writeRaw('\n');
+                    if (++escritas % FILAS_POR_FLUSH == 0) {
+                        generador.flush();
+                    }
+                }
+                generador.flush();
+                return escritas;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return total != null ? total : 0L;
+    }
+}
@@ -0,0 +1,369 @@
+package com.minimalecommerce.app.service;
+
+import com.minimalecommerce.app.dto.CursorCatalogo;
+import com.minimalecommerce.app.dto.FiltroCatalogo;
+import com.minimalecommerce.app.dto.PaginaCursor;
+import com.minimalecommerce.app.dto.ProductoResumen;
+import com.minimalecommerce.app.dto.ResultadoFacetas;
+import com.minimalecommerce.app.event.ProductoCambiadoEvent;
+import com.minimalecommerce.app.model.Producto;
+import com.minimalecommerce.app.repository.ProductoRepository;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Motor de filtrado por facetas del catálogo. Cada producto recibe un ordinal denso (en orden de id)
+// y cada valor de faceta guarda un RoaringBitmap con los ordinales que lo cumplen; los precios se
+// guardan en una columna ordenada para resolver rangos por búsqueda binaria. Así cualquier combinación
+// de filtros se resuelve con AND/OR de bitmaps y los conteos por faceta salen de andCardinality.
+@Component
+public class FacetasCatalogo {
+
+    // La columna de precios empaqueta (centavos << BITS_ORDINAL) | ordinal en un long
+    private static final int BITS_ORDINAL = 24;
+    private static final long MASCARA_ORDINAL = (1L << BITS_ORDINAL) - 1;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Ordinales: los ids se asignan crecientes, así que idPorOrdinal queda ordenado
+    private final Map<Long, Integer> ordinalPorId = new HashMap<>();
+    private long[] idPorOrdinal = new long[0];
+    // Resumen de listado del producto; null si no está activo
+    private ProductoResumen[] resumenPorOrdinal = new ProductoResumen[0];
+    private long[] categoriaPorOrdinal = new long[0];
+    private long[] vendedorPorOrdinal = new long[0];
+    private long[] centavosPorOrdinal = new long[0];
+    private int totalOrdinales;
+
+    private final RoaringBitmap activos = new RoaringBitmap();
+    private final RoaringBitmap conStock = new RoaringBitmap();
+    private final RoaringBitmap preorden = new RoaringBitmap();
+    private final Map<Long, RoaringBitmap> porCategoria = new HashMap<>();
+    private final Map<Long, RoaringBitmap> porVendedor = new HashMap<>();
+
+    // Columna de precios de los productos activos, ordenada; se regenera solo cuando cambió algo
+    private long[] columnaPrecios = new long[0];
+    private boolean columnaDesactualizada = true;
+
+    // ==================== CONSTRUCCIÓN Y ACTUALIZACIÓN ====================
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconstruir() {
+        // Se cargan también los inactivos para que todo id existente tenga ordinal
+        List<Producto> productos = new ArrayList<>(productoRepository.findAll());
+        productos.sort(Comparator.comparing(Producto::getId));
+
+        lock.writeLock().lock();
+        try {
+            ordinalPorId.clear();
+            activos.clear();
+            conStock.clear();
+            preorden.clear();
+            porCategoria.clear();
+            porVendedor.clear();
+            totalOrdinales = 0;
+            asegurarCapacidad(Math.max(productos.size(), 16));
+
+            for (Producto producto : productos) {
+                int ordinal = nuevoOrdinal(producto.getId());
+                registrar(ordinal, producto);
+            }
+            columnaDesactualizada = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alCambiarProducto(ProductoCambiadoEvent evento) {
+        if (evento.esDescuentoDeStock()) {
+            descontarStock(evento.getProductoId(), evento.getUnidades());
+            return;
+        }
+        boolean reordenar = false;
+
+        lock.writeLock().lock();
+        try {
+            Integer ordinal = ordinalPorId.get(evento.getProductoId());
+            if (ordinal != null) {
+                quitar(ordinal);
+            }
+
+            Producto producto = evento.getProducto();
+            if (producto != null) {
+                if (ordinal == null) {
+                    if (totalOrdinales > 0 && producto.getId() < idPorOrdinal[totalOrdinales - 1]) {
+                        // Un id fuera de orden rompería la paginación por ordinal
+                        reordenar = true;
+                    } else {
+                        ordinal = nuevoOrdinal(producto.getId());
+                    }
+                }
+                if (ordinal != null) {
+                    registrar(ordinal, producto);
+                }
+            }
+            columnaDesactualizada = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        if (reordenar) {
+            reconstruir();
+        }
+    }
+
+    // Solo cambian el stock del resumen y, si se agotó, la faceta conStock
+    private void descontarStock(Long productoId, int unidades) {
+        lock.writeLock().lock();
+        try {
+            Integer ordinal = ordinalPorId.get(productoId);
+            ProductoResumen resumen = ordinal != null ? resumenPorOrdinal[ordinal] : null;
+            if (resumen == null) {
+                return;
+            }
+            int stock = (resumen.getStock() != null ? resumen.getStock() : 0) - unidades;
+            resumenPorOrdinal[ordinal] = resumen.conStock(stock);
+            if (stock <= 0) {
+                conStock.remove(ordinal);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private int nuevoOrdinal(Long productoId) {
+        asegurarCapacidad(totalOrdinales + 1);
+        int ordinal = totalOrdinales++;
+        idPorOrdinal[ordinal] = productoId;
+        ordinalPorId.put(productoId, ordinal);
+        return ordinal;
+    }
+
+    private void asegurarCapacidad(int requerida) {
+        if (requerida <= idPorOrdinal.length) {
+            return;
+        }
+        int capacidad = Math.max(requerida, idPorOrdinal.length * 2);
+        idPorOrdinal = Arrays.copyOf(idPorOrdinal, capacidad);
+        resumenPorOrdinal = Arrays.copyOf(resumenPorOrdinal, capacidad);
+        categoriaPorOrdinal = Arrays.copyOf(categoriaPorOrdinal, capacidad);
+        vendedorPorOrdinal = Arrays.copyOf(vendedorPorOrdinal, capacidad);
+        centavosPorOrdinal = Arrays.copyOf(centavosPorOrdinal, capacidad);
+    }
+
+    private void registrar(int ordinal, Producto producto) {
+        if (!Boolean.TRUE.equals(producto.getActivo())) {
+            resumenPorOrdinal[ordinal] = null;
+            return;
+        }
+
+        resumenPorOrdinal[ordinal] = ProductoResumen.de(producto);
+        categoriaPorOrdinal[ordinal] = producto.getCategoria() != null ? producto.getCategoria().getId() : 0L;
+        vendedorPorOrdinal[ordinal] = producto.getVendedor() != null ? producto.getVendedor().getId() : 0L;
+        centavosPorOrdinal[ordinal] = aCentavos(producto.getPrecio());
+
+        activos.add(ordinal);
+        if (producto.getStock() != null && producto.getStock() > 0) {
+            conStock.add(ordinal);
+        }
+        if (Boolean.TRUE.equals(producto.getEspreorden())) {
+            preorden.add(ordinal);
+        }
+        porCategoria.computeIfAbsent(categoriaPorOrdinal[ordinal], k -> new RoaringBitmap()).add(ordinal);
+        porVendedor.computeIfAbsent(vendedorPorOrdinal[ordinal], k -> new RoaringBitmap()).add(ordinal);
+    }
+
+    private void quitar(int ordinal) {
+        if (resumenPorOrdinal[ordinal] == null) {
+            return;
+        }
+        activos.remove(ordinal);
+        conStock.remove(ordinal);
+        preorden.remove(ordinal);
+        quitarDeFaceta(porCategoria, categoriaPorOrdinal[ordinal], ordinal);
+        quitarDeFaceta(porVendedor, vendedorPorOrdinal[ordinal], ordinal);
+        resumenPorOrdinal[ordinal] = null;
+    }
+
+    private static void quitarDeFaceta(Map<Long, RoaringBitmap> faceta, long valor, int ordinal) {
+        RoaringBitmap bitmap = faceta.get(valor);
+        if (bitmap != null) {
+            bitmap.remove(ordinal);
+            if (bitmap.isEmpty()) {
+                faceta.remove(valor);
+            }
+        }
+    }
+
+    // Debe llamarse con el lock de escritura tomado
+    private void regenerarColumnaPrecios() {
+        long[] columna = new long[activos.getCardinality()];
+        int i = 0;
+        for (int ordinal : activos) {
+            columna[i++] = (centavosPorOrdinal[ordinal] << BITS_ORDINAL) | ordinal;
+        }
+        Arrays.sort(columna);
+        columnaPrecios = columna;
+        columnaDesactualizada = false;
+    }
+
+    private static long aCentavos(BigDecimal precio) {
+        if (precio == null || precio.signum() <= 0) {
+            return 0L;
+        }
+        return precio.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    // ==================== CONSULTA ====================
+
+    public ResultadoFacetas<ProductoResumen> filtrar(FiltroCatalogo filtro, String cursor, Integer limite) {
+        int tamano = PaginaCursor.normalizarLimite(limite);
+        CursorCatalogo desde = CursorCatalogo.decodificar(cursor, CursorCatalogo.ORDEN_ID);
+        boolean filtraPrecio = filtro.getPrecioMin() != null || filtro.getPrecioMax() != null;
+
+        if (filtraPrecio) {
+            // Se regenera la columna con el lock de escritura y se degrada a lectura sin soltarlo
+            lock.writeLock().lock();
+            try {
+                if (columnaDesactualizada) {
+                    regenerarColumnaPrecios();
+                }
+                lock.readLock().lock();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } else {
+            lock.readLock().lock();
+        }
+
+        try {
+            RoaringBitmap fCategoria = unir(porCategoria, filtro.getCategorias());
+            RoaringBitmap fVendedor = unir(porVendedor, filtro.getVendedores());
+            RoaringBitmap fPrecio = filtraPrecio ? rangoPrecio(filtro.getPrecioMin(), filtro.getPrecioMax()) : null;
+            RoaringBitmap fStock = Boolean.TRUE.equals(filtro.getConStock()) ? conStock : null;
+            RoaringBitmap fPreorden = Boolean.TRUE.equals(filtro.getPreorden()) ? preorden : null;
+
+            RoaringBitmap resultado = interseccion(activos, fCategoria, fVendedor, fPrecio, fStock, fPreorden);
+
+            // Conteos disyuntivos: cada faceta ignora su propio filtro
+            RoaringBitmap sinCategoria = interseccion(activos, fVendedor, fPrecio, fStock, fPreorden);
+            RoaringBitmap sinVendedor = interseccion(activos, fCategoria, fPrecio, fStock, fPreorden);
+            RoaringBitmap sinStock = interseccion(activos, fCategoria, fVendedor, fPrecio, fPreorden);
+            RoaringBitmap sinPreorden = interseccion(activos, fCategoria, fVendedor, fPrecio, fStock);
+
+            Map<Long, Integer> conteoCategorias = contar(porCategoria, sinCategoria);
+            Map<Long, Integer> conteoVendedores = contar(porVendedor, sinVendedor);
+            int conteoStock = RoaringBitmap.andCardinality(conStock, sinStock);
+            int conteoPreorden = RoaringBitmap.andCardinality(preorden, sinPreorden);
+
+            // Paginación por id: idPorOrdinal está ordenado, así que el cursor se traduce a ordinal
+            int inicio = desde != null ? primerOrdinalDespuesDe(desde.getUltimoId()) : 0;
+            List<ProductoResumen> filas = new ArrayList<>(tamano + 1);
+            PeekableIntIterator it = resultado.getIntIterator();
+            it.advanceIfNeeded(inicio);
+            while (it.hasNext() && filas.size() <= tamano) {
+                filas.add(resumenPorOrdinal[it.next()]);
+            }
+
+            PaginaCursor<ProductoResumen> pagina = PaginaCursor.desde(filas, tamano,
+                    p -> CursorCatalogo.porId(p.getId()).codificar());
+
+            return new ResultadoFacetas<>(pagina.getItems(), pagina.getSiguienteCursor(), pagina.isHayMas(),
+                    resultado.getCardinality(), conteoCategorias, conteoVendedores, conteoStock, conteoPreorden);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static RoaringBitmap unir(Map<Long, RoaringBitmap> faceta, List<Long> valores) {
+        if (valores == null || valores.isEmpty()) {
+            return null;
+        }
+        RoaringBitmap union = new RoaringBitmap();
+        for (Long valor : valores) {
+            RoaringBitmap bitmap = faceta.get(valor);
+            if (bitmap != null) {
+                union.or(bitmap);
+            }
+        }
+        return union;
+    }
+
+    private static RoaringBitmap interseccion(RoaringBitmap base, RoaringBitmap... filtros) {
+        RoaringBitmap resultado = base.clone();
+        for (RoaringBitmap filtro : filtros) {
+            if (filtro != null) {
+                resultado.and(filtro);
+            }
+        }
+        return resultado;
+    }
+
+    private static Map<Long, Integer> contar(Map<Long, RoaringBitmap> faceta, RoaringBitmap universo) {
+        Map<Long, Integer> conteos = new HashMap<>();
+        for (Map.Entry<Long, RoaringBitmap> entrada : faceta.entrySet()) {
+            int conteo = RoaringBitmap.andCardinality(entrada.getValue(), universo);
+            if (conteo > 0) {
+                conteos.put(entrada.getKey(), conteo);
+            }
+        }
+        return conteos;
+    }
+
+    private RoaringBitmap rangoPrecio(BigDecimal precioMin, BigDecimal precioMax) {
+        long minimo = precioMin != null ? aCentavos(precioMin) : 0L;
+        long maximo = precioMax != null ? aCentavos(precioMax) : (Long.MAX_VALUE >> BITS_ORDINAL);
+
+        RoaringBitmap rango = new RoaringBitmap();
+        if (maximo < minimo) {
+            return rango;
+        }
+        int desde = buscarPrimeroMayorOIgual(minimo << BITS_ORDINAL);
+        int hasta = buscarPrimeroMayorOIgual(((maximo << BITS_ORDINAL) | MASCARA_ORDINAL) + 1);
+        for (int i = desde; i < hasta; i++) {
+            rango.add((int) (columnaPrecios[i] & MASCARA_ORDINAL));
+        }
+        return rango;
+    }
+
+    private int buscarPrimeroMayorOIgual(long clave) {
+        int bajo = 0;
+        int alto = columnaPrecios.length;
+        while (bajo < alto) {
+            int medio = (bajo + alto) >>> 1;
+            if (columnaPrecios[medio] < clave) {
+                bajo = medio + 1;
+            } else {
+                alto = medio;
+            }
+        }
+        return bajo;
+    }
+
+    private int primerOrdinalDespuesDe(Long productoId) {
+        int bajo = 0;
+        int alto = totalOrdinales;
+        while (bajo < alto) {
+            int medio = (bajo + alto) >>> 1;
+            if (idPorOrdinal[medio] <= productoId) {
+                bajo = medio + 1;
+            } else {
+                alto = medio;
+            }
+        }
+        return bajo;
+    }
+}
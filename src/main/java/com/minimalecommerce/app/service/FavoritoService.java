@@ -1,11 +1,11 @@
 package com.minimalecommerce.app.service;
 
+import com.minimalecommerce.app.dto.FavoritoResumen;
 import com.minimalecommerce.app.model.Favorito;
 import com.minimalecommerce.app.model.Usuario;
 import com.minimalecommerce.app.model.Producto;
 import com.minimalecommerce.app.repository.FavoritoRepository;
 import com.minimalecommerce.app.repository.UsuarioRepository;
-import com.minimalecommerce.app.repository.ProductoRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -23,12 +23,12 @@ public class FavoritoService {
     private UsuarioRepository usuarioRepository;
 
     @Autowired
-    private ProductoRepository productoRepository;
+    private CacheProductos cacheProductos;
 
     // Agregar producto a favoritos
     public Favorito agregarAFavoritos(Long usuarioId, Long productoId, Boolean notificarStock) {
         Optional<Usuario> usuario = usuarioRepository.findById(usuarioId);
-        Optional<Producto> producto = productoRepository.findById(productoId);
+        Optional<Producto> producto = cacheProductos.obtener(productoId);
 
         if (!usuario.isPresent()) {
             throw new RuntimeException("Usuario no encontrado");
@@ -53,8 +53,8 @@ public class FavoritoService {
     }
 
     // Obtener favoritos por usuario
-    public List<Favorito> obtenerFavoritosPorUsuario(Long usuarioId) {
-        return favoritoRepository.findByUsuarioIdOrderByFechaagregadoDesc(usuarioId);
+    public List<FavoritoResumen> obtenerFavoritosPorUsuario(Long usuarioId) {
+        return favoritoRepository.findResumenByUsuarioId(usuarioId);
     }
 
     // Verificar si producto está en favoritos
@@ -0,0 +1,191 @@
+package com.minimalecommerce.app.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.minimalecommerce.app.model.Solicitudidempotente;
+import com.minimalecommerce.app.repository.SolicitudidempotenteRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+// Idempotencia de operaciones POST mediante la cabecera Idempotency-Key. La primera petición con una
+// clave la reserva en la tabla solicitudidempotente, ejecuta la operación y guarda la respuesta en la
+// misma transacción; los reintentos con la misma clave reciben esa respuesta sin repetir el trabajo.
+// Las claves recientes se mantienen además en una caché acotada para no consultar la tabla en cada
+// reintento.
+@Service
+public class IdempotenciaService {
+
+    public static final String CABECERA = "Idempotency-Key";
+    public static final String CABECERA_REPETIDA = "Idempotent-Replayed";
+
+    // Tiempo durante el que una clave se respeta; después la purga la elimina
+    private static final Duration VIGENCIA = Duration.ofHours(24);
+    private static final int MAXIMO_EN_MEMORIA = 10_000;
+    private static final int LARGO_MAXIMO_CLAVE = 100;
+
+    private static final TypeReference<Map<String, Object>> TIPO_RESPUESTA = new TypeReference<>() {};
+
+    // Respuesta ya confirmada de una clave
+    private record Guardada(String huella, int codigoestado, String respuesta) {}
+
+    @Autowired
+    private SolicitudidempotenteRepository solicitudRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final Cache<String, Guardada> recientes = Caffeine.newBuilder()
+            .maximumSize(MAXIMO_EN_MEMORIA)
+            .expireAfterWrite(VIGENCIA)
+            .build();
+
+    // Ejecuta la operación una sola vez por (operacion, clave). Sin clave se ejecuta siempre, como antes.
+    // Solo se guardan las respuestas 2xx: si la operación falla no cambió nada y puede reintentarse.
+    public ResponseEntity<Map<String, Object>> ejecutar(String operacion, String clave, Object cuerpo,
+                                                        Supplier<ResponseEntity<Map<String, Object>>> accion) {
+        if (clave == null || clave.isBlank()) {
+            return accion.get();
+        }
+        if (clave.length() > LARGO_MAXIMO_CLAVE) {
+            return error(HttpStatus.BAD_REQUEST, CABECERA + " no puede superar " + LARGO_MAXIMO_CLAVE + " caracteres");
+        }
+
+        String llave = operacion + ":" + clave;
+        String huella = huella(cuerpo);
+
+        Guardada guardada = recientes.getIfPresent(llave);
+        if (guardada != null) {
+            return repetir(guardada, huella);
+        }
+
+        // La clave, la operación y su respuesta se confirman juntas: si algo falla o el proceso cae
+        // a mitad de camino no queda una clave reservada sin respuesta. Otra petición con la misma
+        // clave espera en el índice único hasta que esta termine y después repite su respuesta.
+        boolean[] repetida = {false};
+        Guardada[] confirmada = {null};
+        ResponseEntity<Map<String, Object>> respuesta;
+        try {
+            respuesta = transactionTemplate.execute(status -> {
+                Solicitudidempotente reserva = new Solicitudidempotente();
+                reserva.setOperacion(operacion);
+                reserva.setClave(clave);
+                reserva.setHuella(huella);
+                try {
+                    solicitudRepository.saveAndFlush(reserva);
+                } catch (DataIntegrityViolationException e) {
+                    repetida[0] = true;
+                    status.setRollbackOnly();
+                    return null;
+                }
+
+                ResponseEntity<Map<String, Object>> resultado = accion.get();
+                // Si la operación falla no cambió nada y la clave queda libre para reintentar
+                if (!resultado.getStatusCode().is2xxSuccessful()) {
+                    status.setRollbackOnly();
+                    return resultado;
+                }
+                reserva.setCodigoestado(resultado.getStatusCode().value());
+                reserva.setRespuesta(aJson(resultado.getBody()));
+                confirmada[0] = new Guardada(huella, reserva.getCodigoestado(), reserva.getRespuesta());
+                return resultado;
+            });
+        } catch (PessimisticLockingFailureException e) {
+            return error(HttpStatus.CONFLICT, "Ya hay una petición en curso con esta " + CABECERA);
+        }
+
+        if (repetida[0]) {
+            // La clave ya existe: se repite su respuesta
+            Optional<Solicitudidempotente> existente = solicitudRepository.findByOperacionAndClave(operacion, clave);
+            if (existente.isPresent() && existente.get().getCodigoestado() != null) {
+                Solicitudidempotente solicitud = existente.get();
+                guardada = new Guardada(solicitud.getHuella(), solicitud.getCodigoestado(), solicitud.getRespuesta());
+                recientes.put(llave, guardada);
+                return repetir(guardada, huella);
+            }
+            return error(HttpStatus.CONFLICT, "Ya hay una petición en curso con esta " + CABECERA);
+        }
+
+        if (confirmada[0] != null) {
+            recientes.put(llave, confirmada[0]);
+        }
+        return respuesta;
+    }
+
+    // Una misma clave con otro cuerpo es un error del cliente, no un reintento
+    private ResponseEntity<Map<String, Object>> repetir(Guardada guardada, String huella) {
+        if (!guardada.huella().equals(huella)) {
+            return error(HttpStatus.UNPROCESSABLE_ENTITY,
+                    "La " + CABECERA + " ya se usó con un cuerpo de petición distinto");
+        }
+        try {
+            Map<String, Object> cuerpo = guardada.respuesta() != null
+                    ? objectMapper.readValue(guardada.respuesta(), TIPO_RESPUESTA)
+                    : null;
+            return ResponseEntity.status(guardada.codigoestado())
+                    .header(CABECERA_REPETIDA, "true")
+                    .body(cuerpo);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("No se pudo leer la respuesta guardada", e);
+        }
+    }
+
+    private String huella(Object cuerpo) {
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            // Con las claves ordenadas, el mismo cuerpo con los campos en otro orden da la misma huella
+            byte[] bytes = cuerpo != null
+                    ? objectMapper.writer().with(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS).writeValueAsBytes(cuerpo)
+                    : new byte[0];
+            return HexFormat.of().formatHex(sha.digest(bytes));
+        } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+            throw new RuntimeException("No se pudo calcular la huella de la petición", e);
+        }
+    }
+
+    private String aJson(Map<String, Object> cuerpo) {
+        try {
+            return objectMapper.writeValueAsString(cuerpo);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("No se pudo guardar la respuesta", e);
+        }
+    }
+
+    private static ResponseEntity<Map<String, Object>> error(HttpStatus estado, String mensaje) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", false);
+        response.put("error", mensaje);
+        return ResponseEntity.status(estado).body(response);
+    }
+
+    // ==================== PURGA ====================
+
+    // Las claves vencidas (y las reservas abandonadas por una caída) se eliminan cada hora
+    @Scheduled(fixedDelay = 60 * 60 * 1000L, initialDelay = 60 * 1000L)
+    public void purgarVencidas() {
+        transactionTemplate.executeWithoutResult(status ->
+                solicitudRepository.eliminarAnterioresA(LocalDateTime.now().minus(VIGENCIA)));
+    }
+}
@@ -0,0 +1,299 @@
+package com.minimalecommerce.app.service;
+
+import com.minimalecommerce.app.dto.ProductoResumen;
+import com.minimalecommerce.app.event.ProductoCambiadoEvent;
+import com.minimalecommerce.app.model.Producto;
+import com.minimalecommerce.app.repository.ProductoRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+// Índice invertido en memoria sobre nombre, descripción y categoría de los productos activos.
+// Las búsquedas se resuelven con ranking BM25 sin consultar la base de datos; el índice se
+// construye al arrancar y se actualiza con cada ProductoCambiadoEvent.
+@Component
+public class IndiceBusquedaProductos {
+
+    // Parámetros estándar de BM25
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    // Un término en el nombre pesa más que en la categoría, y ésta más que en la descripción
+    private static final int PESO_NOMBRE = 3;
+    private static final int PESO_CATEGORIA = 2;
+    private static final int PESO_DESCRIPCION = 1;
+
+    // Máximo de términos en que se expande el prefijo de la última palabra tecleada
+    private static final int MAX_EXPANSIONES_PREFIJO = 64;
+
+    private static final Pattern DIACRITICOS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARADORES = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private static final Set<String> PALABRAS_VACIAS = Set.of(
+            "a", "al", "con", "de", "del", "el", "en", "es", "la", "las", "lo", "los", "mas", "muy",
+            "o", "para", "por", "que", "se", "sin", "su", "sus", "un", "una", "unas", "unos", "y");
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // término -> (productoId -> frecuencia ponderada del término en el documento)
+    private final NavigableMap<String, Map<Long, Integer>> postings = new TreeMap<>();
+    private final Map<Long, Documento> documentos = new HashMap<>();
+    private long longitudTotal;
+
+    private static class Documento {
+        private final ProductoResumen producto;
+        private final Map<String, Integer> frecuencias;
+        private final int longitud;
+
+        private Documento(ProductoResumen producto, Map<String, Integer> frecuencias, int longitud) {
+            this.producto = producto;
+            this.frecuencias = frecuencias;
+            this.longitud = longitud;
+        }
+    }
+
+    // ==================== MANTENIMIENTO DEL ÍNDICE ====================
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconstruir() {
+        List<Producto> activos = productoRepository.findByActivoTrue();
+
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documentos.clear();
+            longitudTotal = 0;
+            for (Producto producto : activos) {
+                agregarDocumento(producto);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alCambiarProducto(ProductoCambiadoEvent evento) {
+        if (evento.esDescuentoDeStock()) {
+            descontarStock(evento.getProductoId(), evento.getUnidades());
+            return;
+        }
+        Producto producto = evento.getProducto();
+        if (producto == null || !Boolean.TRUE.equals(producto.getActivo())) {
+            eliminar(evento.getProductoId());
+        } else {
+            indexar(producto);
+        }
+    }
+
+    public void indexar(Producto producto) {
+        lock.writeLock().lock();
+        try {
+            quitarDocumento(producto.getId());
+            agregarDocumento(producto);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Los términos no cambian: solo el stock del resumen que devuelve la búsqueda
+    private void descontarStock(Long productoId, int unidades) {
+        lock.writeLock().lock();
+        try {
+            Documento documento = documentos.get(productoId);
+            if (documento != null) {
+                int stock = (documento.producto.getStock() != null ? documento.producto.getStock() : 0) - unidades;
+                documentos.put(productoId, new Documento(documento.producto.conStock(stock),
+                        documento.frecuencias, documento.longitud));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void eliminar(Long productoId) {
+        lock.writeLock().lock();
+        try {
+            quitarDocumento(productoId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int totalDocumentos() {
+        lock.readLock().lock();
+        try {
+            return documentos.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void agregarDocumento(Producto producto) {
+        Map<String, Integer> frecuencias = new HashMap<>();
+        sumarTerminos(frecuencias, producto.getNombre(), PESO_NOMBRE);
+        sumarTerminos(frecuencias, producto.getDescripcion(), PESO_DESCRIPCION);
+        if (producto.getCategoria() != null) {
+            sumarTerminos(frecuencias, producto.getCategoria().getNombre(), PESO_CATEGORIA);
+        }
+
+        int longitud = 0;
+        for (Map.Entry<String, Integer> entrada : frecuencias.entrySet()) {
+            longitud += entrada.getValue();
+            postings.computeIfAbsent(entrada.getKey(), t -> new HashMap<>()).put(producto.getId(), entrada.getValue());
+        }
+
+        documentos.put(producto.getId(), new Documento(ProductoResumen.de(producto), frecuencias, longitud));
+        longitudTotal += longitud;
+    }
+
+    private void quitarDocumento(Long productoId) {
+        Documento documento = documentos.remove(productoId);
+        if (documento == null) {
+            return;
+        }
+
+        for (String termino : documento.frecuencias.keySet()) {
+            Map<Long, Integer> lista = postings.get(termino);
+            if (lista != null) {
+                lista.remove(productoId);
+                if (lista.isEmpty()) {
+                    postings.remove(termino);
+                }
+            }
+        }
+        longitudTotal -= documento.longitud;
+    }
+
+    private static void sumarTerminos(Map<String, Integer> frecuencias, String texto, int peso) {
+        for (String termino : tokenizar(texto)) {
+            frecuencias.merge(termino, peso, Integer::sum);
+        }
+    }
+
+    // ==================== BÚSQUEDA ====================
+
+    // Devuelve los productos ordenados por relevancia BM25. La última palabra de la consulta
+    // se trata como prefijo para que funcione mientras el usuario escribe.
+    public List<ProductoResumen> buscar(String consulta, int limite) {
+        List<String> terminos = tokenizar(consulta);
+        if (terminos.isEmpty() || limite <= 0) {
+            return new ArrayList<>();
+        }
+
+        lock.readLock().lock();
+        try {
+            int totalDocs = documentos.size();
+            if (totalDocs == 0) {
+                return new ArrayList<>();
+            }
+            double longitudPromedio = (double) longitudTotal / totalDocs;
+            Map<Long, Double> puntajes = new HashMap<>();
+
+            for (int i = 0; i < terminos.size() - 1; i++) {
+                puntuarTermino(terminos.get(i), puntajes, totalDocs, longitudPromedio);
+            }
+
+            String ultimo = terminos.get(terminos.size() - 1);
+            Set<String> expansiones = new LinkedHashSet<>();
+            expansiones.add(ultimo);
+            for (String termino : postings.subMap(ultimo, true, ultimo + Character.MAX_VALUE, false).keySet()) {
+                if (expansiones.size() >= MAX_EXPANSIONES_PREFIJO) {
+                    break;
+                }
+                expansiones.add(termino);
+            }
+            for (String termino : expansiones) {
+                puntuarTermino(termino, puntajes, totalDocs, longitudPromedio);
+            }
+
+            return mejores(puntajes, limite);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void puntuarTermino(String termino, Map<Long, Double> puntajes, int totalDocs, double longitudPromedio) {
+        Map<Long, Integer> lista = postings.get(termino);
+        if (lista == null) {
+            return;
+        }
+
+        int df = lista.size();
+        double idf = Math.log(1 + (totalDocs - df + 0.5) / (df + 0.5));
+
+        for (Map.Entry<Long, Integer> entrada : lista.entrySet()) {
+            int tf = entrada.getValue();
+            int longitud = documentos.get(entrada.getKey()).longitud;
+            double normalizacion = K1 * (1 - B + B * longitud / longitudPromedio);
+            double puntaje = idf * (tf * (K1 + 1)) / (tf + normalizacion);
+            puntajes.merge(entrada.getKey(), puntaje, Double::sum);
+        }
+    }
+
+    // Selección top-N con un heap acotado en lugar de ordenar todos los candidatos
+    private List<ProductoResumen> mejores(Map<Long, Double> puntajes, int limite) {
+        Comparator<Map.Entry<Long, Double>> orden = Map.Entry.<Long, Double>comparingByValue()
+                .thenComparing(Map.Entry.<Long, Double>comparingByKey().reversed());
+        PriorityQueue<Map.Entry<Long, Double>> heap = new PriorityQueue<>(orden);
+
+        for (Map.Entry<Long, Double> entrada : puntajes.entrySet()) {
+            if (heap.size() < limite) {
+                heap.add(entrada);
+            } else if (orden.compare(entrada, heap.peek()) > 0) {
+                heap.poll();
+                heap.add(entrada);
+            }
+        }
+
+        List<ProductoResumen> resultado = new ArrayList<>(heap.size());
+        while (!heap.isEmpty()) {
+            resultado.add(documentos.get(heap.poll().getKey()).producto);
+        }
+        Collections.reverse(resultado);
+        return resultado;
+    }
+
+    // ==================== TOKENIZACIÓN ====================
+
+    // Minúsculas, sin tildes ni diéresis (la ñ se pliega a n), sin palabras vacías
+    // y con el plural regular reducido al singular.
+    public static List<String> tokenizar(String texto) {
+        List<String> terminos = new ArrayList<>();
+        if (texto == null || texto.isBlank()) {
+            return terminos;
+        }
+
+        String plegado = DIACRITICOS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD)).replaceAll("");
+        for (String palabra : SEPARADORES.split(plegado.toLowerCase(Locale.ROOT))) {
+            if (palabra.isEmpty() || PALABRAS_VACIAS.contains(palabra)) {
+                continue;
+            }
+            terminos.add(singular(palabra));
+        }
+        return terminos;
+    }
+
+    // Reduce singular y plural a la misma raíz: "relojes"/"reloj" -> "reloj",
+    // "colores"/"color" -> "color", "camisetas"/"camiseta" -> "camiseta"
+    private static String singular(String palabra) {
+        String raiz = palabra;
+        if (raiz.length() > 3 && raiz.endsWith("s")) {
+            raiz = raiz.substring(0, raiz.length() - 1);
+        }
+        int n = raiz.length();
+        if (n > 3 && raiz.charAt(n - 1) == 'e' && "dljnrz".indexOf(raiz.charAt(n - 2)) >= 0) {
+            raiz = raiz.substring(0, n - 1);
+        }
+        return raiz;
+    }
+}
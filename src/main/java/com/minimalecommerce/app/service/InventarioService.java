@@ -0,0 +1,207 @@
+package com.minimalecommerce.app.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.minimalecommerce.app.dto.ActualizacionInventario;
+import com.minimalecommerce.app.dto.ResultadoFilaInventario;
+import com.minimalecommerce.app.event.ProductoCambiadoEvent;
+import com.minimalecommerce.app.model.Producto;
+import com.minimalecommerce.app.repository.ProductoRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.util.*;
+
+// Sincronización masiva de stock y precio. El cuerpo se lee en streaming y se aplica por bloques:
+// cada bloque es una transacción con un único batch de UPDATE, de modo que un fallo solo
+// revierte su bloque y la memoria usada no depende del tamaño del archivo.
+@Service
+public class InventarioService {
+
+    // Filas por bloque (y por batch JDBC)
+    private static final int TAMANO_BLOQUE = 500;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // Espera un arreglo JSON de {productoId, stock, precio}
+    public Map<String, Object> actualizarInventarioLote(InputStream cuerpo) throws IOException {
+        List<ResultadoFilaInventario> resultados = new ArrayList<>();
+        List<ActualizacionInventario> bloque = new ArrayList<>(TAMANO_BLOQUE);
+        List<ResultadoFilaInventario> resultadosBloque = new ArrayList<>(TAMANO_BLOQUE);
+        String errorLectura = null;
+        int fila = 0;
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(cuerpo)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new RuntimeException("Se esperaba un arreglo JSON de actualizaciones");
+            }
+
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (token == null) {
+                    errorLectura = "JSON incompleto después de la fila " + fila + ": falta cerrar el arreglo";
+                    break;
+                }
+                // Cada elemento se lee completo como árbol: uno que no es un objeto o no se puede
+                // convertir queda como fila inválida y la lectura sigue con el siguiente
+                JsonNode nodo = objectMapper.readTree(parser);
+                ActualizacionInventario actualizacion = null;
+                String invalido;
+                if (!nodo.isObject()) {
+                    invalido = "Se esperaba un objeto {productoId, stock, precio}";
+                } else {
+                    try {
+                        actualizacion = objectMapper.treeToValue(nodo, ActualizacionInventario.class);
+                        invalido = validar(actualizacion);
+                    } catch (JsonProcessingException e) {
+                        invalido = "Valores inválidos: " + e.getOriginalMessage();
+                    }
+                }
+
+                ResultadoFilaInventario resultado = new ResultadoFilaInventario(
+                        fila++, actualizacion != null ? actualizacion.getProductoId() : null, null, null);
+                resultados.add(resultado);
+                if (invalido != null) {
+                    resultado.marcar(ResultadoFilaInventario.INVALIDO, invalido);
+                    continue;
+                }
+
+                bloque.add(actualizacion);
+                resultadosBloque.add(resultado);
+                if (bloque.size() == TAMANO_BLOQUE) {
+                    aplicarBloque(bloque, resultadosBloque);
+                    bloque.clear();
+                    resultadosBloque.clear();
+                }
+            }
+        } catch (JsonProcessingException e) {
+            // Error de sintaxis: lo ya confirmado se mantiene; se informa dónde se cortó la lectura
+            errorLectura = "JSON inválido después de la fila " + fila + ": " + e.getOriginalMessage();
+        }
+
+        if (!bloque.isEmpty()) {
+            aplicarBloque(bloque, resultadosBloque);
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", errorLectura == null);
+        response.put("procesados", resultados.size());
+        response.put("actualizados", contar(resultados, ResultadoFilaInventario.ACTUALIZADO));
+        response.put("noEncontrados", contar(resultados, ResultadoFilaInventario.NO_ENCONTRADO));
+        response.put("invalidos", contar(resultados, ResultadoFilaInventario.INVALIDO));
+        response.put("errores", contar(resultados, ResultadoFilaInventario.ERROR));
+        response.put("resultados", resultados);
+        if (errorLectura != null) {
+            response.put("error", errorLectura);
+        }
+        return response;
+    }
+
+    private static String validar(ActualizacionInventario actualizacion) {
+        if (actualizacion.getProductoId() == null) {
+            return "productoId es obligatorio";
+        }
+        if (actualizacion.getStock() == null && actualizacion.getPrecio() == null) {
+            return "Debe indicar stock o precio";
+        }
+        if (actualizacion.getStock() != null && actualizacion.getStock() < 0) {
+            return "El stock no puede ser negativo";
+        }
+        if (actualizacion.getPrecio() != null && actualizacion.getPrecio().compareTo(BigDecimal.ZERO) <= 0) {
+            return "El precio debe ser mayor que cero";
+        }
+        return null;
+    }
+
+    private void aplicarBloque(List<ActualizacionInventario> bloque, List<ResultadoFilaInventario> resultadosBloque) {
+        Set<Long> ids = new HashSet<>();
+        for (ActualizacionInventario actualizacion : bloque) {
+            ids.add(actualizacion.getProductoId());
+        }
+
+        List<Producto> productos;
+        try {
+            productos = transactionTemplate.execute(status -> {
+                // Existencia con la misma consulta que trae los productos para los eventos: con
+                // rewriteBatchedStatements el driver no siempre devuelve el conteo por sentencia
+                List<Producto> encontrados = productoRepository.findConRelacionesPorIds(ids);
+                Set<Long> existentes = new HashSet<>();
+                for (Producto producto : encontrados) {
+                    existentes.add(producto.getId());
+                }
+                List<ActualizacionInventario> aplicables = new ArrayList<>(bloque.size());
+                for (int i = 0; i < bloque.size(); i++) {
+                    if (existentes.contains(bloque.get(i).getProductoId())) {
+                        aplicables.add(bloque.get(i));
+                        resultadosBloque.get(i).marcar(ResultadoFilaInventario.ACTUALIZADO, null);
+                    } else {
+                        resultadosBloque.get(i).marcar(ResultadoFilaInventario.NO_ENCONTRADO, "Producto no encontrado");
+                    }
+                }
+                if (!aplicables.isEmpty()) {
+                    productoRepository.actualizarInventario(aplicables);
+                }
+                // Con open-in-view el contexto sobrevive a la transacción: se separan para que los
+                // valores que se les fijan después no se escriban en el flush de otro bloque
+                encontrados.forEach(entityManager::detach);
+                return encontrados;
+            });
+        } catch (RuntimeException e) {
+            for (ResultadoFilaInventario resultado : resultadosBloque) {
+                resultado.marcar(ResultadoFilaInventario.ERROR, "Bloque revertido: " + e.getMessage());
+            }
+            return;
+        }
+
+        // Tras el commit se aplican a los productos los valores del bloque (en orden, como el batch)
+        // y se publican sin volver a leerlos
+        if (productos != null && !productos.isEmpty()) {
+            Map<Long, Producto> porId = new HashMap<>();
+            for (Producto producto : productos) {
+                porId.put(producto.getId(), producto);
+            }
+            for (ActualizacionInventario actualizacion : bloque) {
+                Producto producto = porId.get(actualizacion.getProductoId());
+                if (producto == null) {
+                    continue;
+                }
+                if (actualizacion.getStock() != null) {
+                    producto.setStock(actualizacion.getStock());
+                }
+                if (actualizacion.getPrecio() != null) {
+                    producto.setPrecio(actualizacion.getPrecio());
+                }
+            }
+            for (Producto producto : porId.values()) {
+                eventPublisher.publishEvent(ProductoCambiadoEvent.de(producto, ProductoCambiadoEvent.Tipo.STOCK_ACTUALIZADO));
+            }
+        }
+    }
+
+    private static long contar(List<ResultadoFilaInventario> resultados, String estado) {
+        return resultados.stream().filter(r -> estado.equals(r.getEstado())).count();
+    }
+}
@@ -0,0 +1,137 @@
+package com.minimalecommerce.app.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+// Medición por fases de las operaciones del carrito. Cada fase registra un Timer de Micrometer
+// ("checkout.fase", etiquetas operacion y fase, con percentiles e histograma para Prometheus)
+// y un evento JFR, para cruzar la latencia con GC y bloqueos en una grabación de producción.
+@Component
+public class MedidorFases {
+
+    public static final String METRICA_FASE = "checkout.fase";
+    public static final String METRICA_RESULTADO = "checkout.resultado";
+
+    @Name("com.minimalecommerce.FaseCheckout")
+    @Label("Fase de checkout")
+    @Description("Duración de una fase de procesarPedido o agregarProductoAlCarrito")
+    @Category({"Minimalecommerce", "Checkout"})
+    @StackTrace(false)
+    static class FaseEvento extends Event {
+        @Label("Operación")
+        String operacion;
+
+        @Label("Fase")
+        String fase;
+    }
+
+    // Fase en curso; close() la registra una sola vez
+    public final class Fase implements AutoCloseable {
+        private final String operacion;
+        private final String nombre;
+        private final long inicio = System.nanoTime();
+        private final FaseEvento evento = new FaseEvento();
+        private boolean cerrada;
+
+        private Fase(String operacion, String nombre) {
+            this.operacion = operacion;
+            this.nombre = nombre;
+            evento.begin();
+        }
+
+        @Override
+        public void close() {
+            if (cerrada) {
+                return;
+            }
+            cerrada = true;
+            timer(operacion, nombre).record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+            if (evento.shouldCommit()) {
+                evento.operacion = operacion;
+                evento.fase = nombre;
+                evento.commit();
+            }
+        }
+    }
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    public Fase iniciar(String operacion, String fase) {
+        return new Fase(operacion, fase);
+    }
+
+    public <T> T medir(String operacion, String fase, Supplier<T> paso) {
+        try (Fase ignorada = iniciar(operacion, fase)) {
+            return paso.get();
+        }
+    }
+
+    public void medir(String operacion, String fase, Runnable paso) {
+        try (Fase ignorada = iniciar(operacion, fase)) {
+            paso.run();
+        }
+    }
+
+    // El commit ocurre después de que el método transaccional devuelve el control: se mide como
+    // fase propia y la fase total se cierra al completarse la transacción, confirmada o revertida
+    public void medirHastaConfirmar(String operacion, Fase total) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            total.close();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private Fase confirmacion;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                confirmacion = iniciar(operacion, "commit");
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (confirmacion != null) {
+                    confirmacion.close();
+                }
+                total.close();
+                resultado(operacion, status == STATUS_COMMITTED ? "confirmado" : "revertido").increment();
+            }
+        });
+    }
+
+    private Timer timer(String operacion, String fase) {
+        return timers.computeIfAbsent(operacion + ":" + fase, k -> Timer.builder(METRICA_FASE)
+                .description("Duración de cada fase de las operaciones del carrito")
+                .tag("operacion", operacion)
+                .tag("fase", fase)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+    }
+
+    private Counter resultado(String operacion, String resultado) {
+        return Counter.builder(METRICA_RESULTADO)
+                .description("Operaciones del carrito confirmadas o revertidas")
+                .tag("operacion", operacion)
+                .tag("resultado", resultado)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,79 @@
+package com.minimalecommerce.app.service;
+
+import com.minimalecommerce.app.model.Migraciondatos;
+import com.minimalecommerce.app.repository.CarritoitemRepository;
+import com.minimalecommerce.app.repository.EstadisticapedidosRepository;
+import com.minimalecommerce.app.repository.MigraciondatosRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.function.IntSupplier;
+
+// Migraciones de datos que se aplican una sola vez. Corren cuando el contexto terminó de crear los
+// beans y antes de que el servidor web acepte conexiones, así ningún pedido llega a la mitad de
+// una. Cada una queda marcada en migraciondatos en su misma transacción; si falla, el arranque
+// se detiene. Las claves que ddl-auto no puede crear sobre datos existentes se comprueban aquí
+// en cada arranque.
+@Component
+public class MigracionesDatos implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(MigracionesDatos.class);
+
+    @Autowired
+    private MigraciondatosRepository migraciondatosRepository;
+
+    @Autowired
+    private EstadisticapedidosRepository estadisticapedidosRepository;
+
+    @Autowired
+    private CarritoitemRepository carritoitemRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        // Contadores de pedidos de todos los compradores desde la tabla pedido, incluidos los que ya
+        // tenían fila: una fila creada por un pedido nuevo no refleja los anteriores a la tabla
+        aplicar("estadisticapedidos-desde-pedidos", () -> {
+            estadisticapedidosRepository.eliminarTodos();
+            return estadisticapedidosRepository.calcularTodos();
+        });
+
+        asegurarClaveUnicaCarrito();
+    }
+
+    // Agregar al carrito es un INSERT ... ON DUPLICATE KEY UPDATE: sin la clave única no falla, inserta
+    // items repetidos. Se revisa en cada arranque; si falta, se fusionan los repetidos y se crea
+    private void asegurarClaveUnicaCarrito() {
+        if (carritoitemRepository.tieneClaveUnica()) {
+            return;
+        }
+        Integer eliminados = transactionTemplate.execute(status -> {
+            carritoitemRepository.fusionarRepetidos();
+            return carritoitemRepository.eliminarRepetidos();
+        });
+        carritoitemRepository.crearClaveUnica();
+        if (!carritoitemRepository.tieneClaveUnica()) {
+            throw new RuntimeException("No se pudo crear la clave única (usuarioid, productoid) de carritoitem");
+        }
+        log.info("Clave única de carritoitem creada; {} items repetidos fusionados", eliminados);
+    }
+
+    private void aplicar(String nombre, IntSupplier migracion) {
+        if (migraciondatosRepository.existsById(nombre)) {
+            return;
+        }
+        Integer filas = transactionTemplate.execute(status -> {
+            int afectadas = migracion.getAsInt();
+            migraciondatosRepository.save(new Migraciondatos(nombre, LocalDateTime.now()));
+            return afectadas;
+        });
+        log.info("Migración de datos {} aplicada: {} filas", nombre, filas);
+    }
+}
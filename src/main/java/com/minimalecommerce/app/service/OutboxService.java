@@ -0,0 +1,91 @@
+package com.minimalecommerce.app.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.minimalecommerce.app.model.Eventooutbox;
+import com.minimalecommerce.app.repository.EventooutboxRepository;
+import com.minimalecommerce.app.repository.SecuenciaoutboxRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+// Registro de eventos en la tabla outbox. Solo puede llamarse dentro de la transacción de negocio:
+// el evento se confirma o se revierte junto con el pedido que lo originó.
+@Service
+public class OutboxService {
+
+    public static final String METRICAS_VENDEDOR = "METRICAS_VENDEDOR";
+    public static final String NOTIFICACION_COMPRADOR = "NOTIFICACION_COMPRADOR";
+    public static final String NOTIFICACION_VENDEDOR = "NOTIFICACION_VENDEDOR";
+    public static final String ALERTA_STOCK = "ALERTA_STOCK";
+
+    // Clave de los eventos pendientes de escribir en los recursos de la transacción
+    private static final Object PENDIENTES = new Object();
+
+    @Autowired
+    private EventooutboxRepository eventooutboxRepository;
+
+    @Autowired
+    private SecuenciaoutboxRepository secuenciaoutboxRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // Los eventos se escriben justo antes del commit, todos juntos: la fila de secuencia de cada
+    // agregado queda bloqueada solo lo que tarda el commit y no durante todo el checkout
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void registrar(String tipo, String agregado, Map<String, Object> datos) {
+        Eventooutbox evento = new Eventooutbox();
+        evento.setTipo(tipo);
+        evento.setAgregado(agregado);
+        try {
+            evento.setPayload(objectMapper.writeValueAsString(datos));
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("No se pudo serializar el evento " + tipo, e);
+        }
+        pendientesDeLaTransaccion().add(evento);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Eventooutbox> pendientesDeLaTransaccion() {
+        List<Eventooutbox> pendientes = (List<Eventooutbox>) TransactionSynchronizationManager.getResource(PENDIENTES);
+        if (pendientes != null) {
+            return pendientes;
+        }
+
+        List<Eventooutbox> nuevos = new ArrayList<>();
+        TransactionSynchronizationManager.bindResource(PENDIENTES, nuevos);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                escribir(nuevos);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResource(PENDIENTES);
+            }
+        });
+        return nuevos;
+    }
+
+    // Las secuencias se toman en orden de agregado: dos pedidos que comparten agregados los bloquean
+    // en el mismo orden y no pueden quedar esperándose entre sí. El orden estable conserva el de
+    // registro para los eventos de un mismo agregado
+    private void escribir(List<Eventooutbox> eventos) {
+        eventos.sort(Comparator.comparing(Eventooutbox::getAgregado));
+        for (Eventooutbox evento : eventos) {
+            secuenciaoutboxRepository.avanzar(evento.getAgregado());
+            evento.setSecuencia(secuenciaoutboxRepository.findUltima(evento.getAgregado()));
+            eventooutboxRepository.save(evento);
+        }
+    }
+}
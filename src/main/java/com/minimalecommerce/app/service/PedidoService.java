@@ -1,11 +1,33 @@
 package com.minimalecommerce.app.service;
 
+import com.minimalecommerce.app.dto.CursorCatalogo;
+import com.minimalecommerce.app.dto.LineaPedidoHistorial;
+import com.minimalecommerce.app.dto.PaginaCursor;
+import com.minimalecommerce.app.dto.PedidoHistorial;
+import com.minimalecommerce.app.dto.PedidoVendedor;
+import com.minimalecommerce.app.dto.ResultadoTransicionPedido;
 import com.minimalecommerce.app.model.Pedido;
 import com.minimalecommerce.app.model.EstadoPedido;
+import com.minimalecommerce.app.model.Estadisticapedidos;
+import com.minimalecommerce.app.repository.EstadisticapedidosRepository;
 import com.minimalecommerce.app.repository.PedidoRepository;
+import com.minimalecommerce.app.repository.PedidoitemRepository;
+import com.minimalecommerce.app.repository.VendedorpedidoRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.Optional;
 import java.util.Map;
 import java.util.HashMap;
@@ -14,9 +36,26 @@ import java.util.ArrayList;
 @Service
 public class PedidoService {
 
+    private static final Logger log = LoggerFactory.getLogger(PedidoService.class);
+
+    // Pedidos por cambio de estado masivo
+    private static final int MAXIMO_PEDIDOS_LOTE = 1000;
+
     @Autowired
     private PedidoRepository pedidoRepository;
 
+    @Autowired
+    private PedidoitemRepository pedidoitemRepository;
+
+    @Autowired
+    private VendedorpedidoRepository vendedorpedidoRepository;
+
+    @Autowired
+    private EstadisticapedidosRepository estadisticapedidosRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
     // ==================== MÉTODOS BÁSICOS ====================
 
     public List<Pedido> obtenerTodosPedidos() {
@@ -27,68 +66,251 @@ public class PedidoService {
         return pedidoRepository.findById(id);
     }
 
+    @Transactional
     public Pedido crearPedido(Pedido pedido) {
-        return pedidoRepository.save(pedido);
+        Pedido creado = pedidoRepository.save(pedido);
+        Long usuarioId = creado.getUsuario().getId();
+        estadisticapedidosRepository.registrarPedido(usuarioId, creado.getTotal(), creado.getFechapedido());
+        if (creado.getEstado() != EstadoPedido.PENDIENTE) {
+            estadisticapedidosRepository.moverEstado(usuarioId, EstadoPedido.PENDIENTE.name(), creado.getEstado().name());
+        }
+        return creado;
     }
 
     public List<Pedido> obtenerPedidosPorUsuario(Long usuarioId) {
         return pedidoRepository.findByUsuarioIdOrderByFechapedidoDesc(usuarioId);
     }
 
+    // Historial del comprador paginado por cursor: una consulta para la página de pedidos y otra
+    // para todas sus líneas, en lugar de una consulta de items (con sus grafos EAGER) por pedido
+    @Transactional(readOnly = true)
+    public PaginaCursor<PedidoHistorial> obtenerHistorialPorUsuario(Long usuarioId, String cursor, Integer limite) {
+        int tamano = PaginaCursor.normalizarLimite(limite);
+        CursorCatalogo desde = CursorCatalogo.decodificar(cursor, CursorCatalogo.ORDEN_ID);
+        Long ultimoId = desde != null ? desde.getUltimoId() : Long.MAX_VALUE;
+
+        List<PedidoHistorial> filas = pedidoRepository.findHistorialAntesDe(usuarioId, ultimoId,
+                PageRequest.of(0, tamano + 1));
+        PaginaCursor<PedidoHistorial> pagina = PaginaCursor.desde(filas, tamano,
+                p -> CursorCatalogo.porId(p.getId()).codificar());
+        if (pagina.getItems().isEmpty()) {
+            return pagina;
+        }
+
+        Map<Long, PedidoHistorial> porId = new HashMap<>();
+        for (PedidoHistorial pedido : pagina.getItems()) {
+            porId.put(pedido.getId(), pedido);
+        }
+        for (LineaPedidoHistorial linea : pedidoitemRepository.findLineasHistorial(porId.keySet())) {
+            porId.get(linea.getPedidoId()).getItems().add(linea);
+        }
+        return pagina;
+    }
+
     public List<Pedido> obtenerPedidosPorEstado(EstadoPedido estado) {
         return pedidoRepository.findByEstadoOrderByFechapedidoDesc(estado);
     }
 
     // ==================== MÉTODOS PARA VENDEDORES ====================
 
-    public List<Map<String, Object>> obtenerPedidosPorVendedor(Long vendedorId) {
-        List<Object[]> resultados = pedidoRepository.findPedidosByVendedorId(vendedorId);
-
-        Map<Long, Map<String, Object>> pedidosMap = new HashMap<>();
+    // Desde el índice vendedorpedido, del más reciente al más antiguo
+    public List<PedidoVendedor> obtenerPedidosPorVendedor(Long vendedorId) {
+        return vendedorpedidoRepository.findPorVendedor(vendedorId);
+    }
 
-        for (Object[] resultado : resultados) {
-            Long pedidoId = (Long) resultado[0];
+    // Paginado por cursor sobre (fechapedido, pedidoId): cada página es un rango del índice
+    public PaginaCursor<PedidoVendedor> obtenerPedidosPorVendedorPagina(Long vendedorId, String cursor, Integer limite) {
+        int tamano = PaginaCursor.normalizarLimite(limite);
+        CursorCatalogo desde = CursorCatalogo.decodificar(cursor, CursorCatalogo.ORDEN_FECHA);
+        PageRequest pagina = PageRequest.of(0, tamano + 1);
 
-            if (!pedidosMap.containsKey(pedidoId)) {
-                Map<String, Object> pedidoData = new HashMap<>();
-                pedidoData.put("pedidoId", resultado[0]);
-                pedidoData.put("fechaPedido", resultado[1]);
-                pedidoData.put("total", resultado[2]);
-                pedidoData.put("estado", resultado[3]);
-                pedidoData.put("compradorNombre", resultado[4]);
-                pedidoData.put("direccionEntrega", resultado[5]);
+        List<PedidoVendedor> filas = desde == null
+                ? vendedorpedidoRepository.findPorVendedorPrimeros(vendedorId, pagina)
+                : vendedorpedidoRepository.findPorVendedorAntesDe(vendedorId, desde.getValorFecha(), desde.getUltimoId(), pagina);
+        return PaginaCursor.desde(filas, tamano, p -> CursorCatalogo.porFecha(p.getFechaPedido(), p.getPedidoId()).codificar());
+    }
 
-                pedidosMap.put(pedidoId, pedidoData);
-            }
+    // Los pedidos anteriores al índice se agregan al arrancar; los nuevos los escribe el checkout.
+    // Corre siempre: un pedido confirmado antes de este evento no debe dejar fuera a los anteriores
+    @EventListener(ApplicationReadyEvent.class)
+    public void indexarPedidosDeVendedores() {
+        Integer agregados = transactionTemplate.execute(status -> vendedorpedidoRepository.indexarPedidosFaltantes());
+        if (agregados != null && agregados > 0) {
+            log.info("Índice de pedidos por vendedor: {} filas agregadas", agregados);
         }
+    }
+
+    // ==================== ESTADÍSTICAS DEL COMPRADOR ====================
 
-        return new ArrayList<>(pedidosMap.values());
+    // Una lectura por clave primaria de los contadores del usuario, sin importar cuántos pedidos tenga
+    public Map<String, Object> obtenerEstadisticasPorUsuario(Long usuarioId) {
+        Estadisticapedidos contadores = estadisticapedidosRepository.findById(usuarioId)
+                .orElseGet(Estadisticapedidos::new);
+
+        Map<String, Object> estadisticas = new HashMap<>();
+        estadisticas.put("totalPedidos", contadores.getTotalpedidos());
+        estadisticas.put("pendientes", contadores.getPendientes());
+        estadisticas.put("confirmados", contadores.getConfirmados());
+        estadisticas.put("enviados", contadores.getEnviados());
+        estadisticas.put("entregados", contadores.getEntregados());
+        estadisticas.put("cancelados", contadores.getCancelados());
+        estadisticas.put("totalGastado", contadores.getTotalgastado());
+        estadisticas.put("ultimoPedido", contadores.getUltimopedido());
+        return estadisticas;
+    }
+
+    // Vuelve a calcular la fila del usuario desde sus pedidos, para cambios que no son un simple paso
+    // de estado (borrar o reemplazar un pedido)
+    private void recalcularEstadisticas(Long usuarioId) {
+        pedidoRepository.flush();
+        estadisticapedidosRepository.eliminarDeUsuario(usuarioId);
+        estadisticapedidosRepository.calcularDeUsuario(usuarioId);
     }
 
     // ==================== GESTIÓN DE ESTADOS ====================
+    // Los cambios de estado siguen EstadoPedido.puedeCambiarA y están protegidos por la versión del
+    // pedido: si otra operación lo modificó entre la lectura y la escritura, falla con
+    // ObjectOptimisticLockingFailureException y se revierten también contadores e índice.
 
+    @Transactional
     public Pedido actualizarEstadoPedido(Long id, EstadoPedido estado) {
-        Optional<Pedido> pedidoOpt = pedidoRepository.findById(id);
+        return actualizarEstadoPedido(id, estado, null);
+    }
 
-        if (pedidoOpt.isPresent()) {
-            Pedido pedido = pedidoOpt.get();
-            pedido.setEstado(estado);
-            return pedidoRepository.save(pedido);
+    // versionEsperada es la versión que leyó el cliente (null si no la envía)
+    @Transactional
+    public Pedido actualizarEstadoPedido(Long id, EstadoPedido estado, Long versionEsperada) {
+        Pedido pedido = pedidoRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Pedido no encontrado con ID: " + id));
+        return cambiarEstado(pedido, estado, versionEsperada);
+    }
+
+    private Pedido cambiarEstado(Pedido pedido, EstadoPedido destino, Long versionEsperada) {
+        verificarVersion(pedido, versionEsperada);
+        EstadoPedido origen = pedido.getEstado();
+        validarTransicion(origen, destino);
+
+        estadisticapedidosRepository.moverEstado(pedido.getUsuario().getId(), origen.name(), destino.name());
+        vendedorpedidoRepository.actualizarEstado(pedido.getId(), destino);
+        pedido.setEstado(destino);
+        // flush para que un conflicto de versión salga de aquí y el pedido devuelto traiga la versión nueva
+        return pedidoRepository.saveAndFlush(pedido);
+    }
+
+    private static void validarTransicion(EstadoPedido origen, EstadoPedido destino) {
+        if (!origen.puedeCambiarA(destino)) {
+            throw new RuntimeException("Transición de estado no permitida: " + origen + " → " + destino);
+        }
+    }
+
+    private static void verificarVersion(Pedido pedido, Long versionEsperada) {
+        if (versionEsperada != null && !versionEsperada.equals(pedido.getVersion())) {
+            throw new ObjectOptimisticLockingFailureException(Pedido.class, pedido.getId());
+        }
+    }
+
+    // Cambia el estado de muchos pedidos con un solo UPDATE que lleva la transición en el WHERE, más
+    // uno para los contadores de los compradores y otro para el índice de vendedores. Devuelve el
+    // resultado de cada id. Si otra operación cambió alguno de los pedidos entre la lectura y el
+    // UPDATE, el lote completo falla con conflicto.
+    @Transactional
+    public Map<String, Object> cambiarEstadoLote(Collection<Long> pedidoIds, EstadoPedido destino) {
+        if (pedidoIds == null || pedidoIds.isEmpty()) {
+            throw new RuntimeException("El lote no tiene pedidos");
+        }
+        if (pedidoIds.size() > MAXIMO_PEDIDOS_LOTE) {
+            throw new RuntimeException("Máximo " + MAXIMO_PEDIDOS_LOTE + " pedidos por lote");
+        }
+        if (pedidoIds.contains(null)) {
+            throw new RuntimeException("Los ids de pedido no pueden ser nulos");
+        }
+        Set<Long> ids = new LinkedHashSet<>(pedidoIds);
+
+        Map<Long, EstadoPedido> estados = new HashMap<>();
+        for (Object[] fila : pedidoRepository.findEstadosPorId(ids)) {
+            estados.put((Long) fila[0], (EstadoPedido) fila[1]);
         }
 
-        throw new RuntimeException("Pedido no encontrado con ID: " + id);
+        List<ResultadoTransicionPedido> resultados = new ArrayList<>(ids.size());
+        List<Long> actualizados = new ArrayList<>();
+        for (Long id : ids) {
+            EstadoPedido origen = estados.get(id);
+            if (origen == null) {
+                resultados.add(new ResultadoTransicionPedido(id, null,
+                        ResultadoTransicionPedido.NO_ENCONTRADO, "Pedido no encontrado"));
+            } else if (!origen.puedeCambiarA(destino)) {
+                resultados.add(new ResultadoTransicionPedido(id, origen,
+                        ResultadoTransicionPedido.TRANSICION_INVALIDA, "No se puede pasar de " + origen + " a " + destino));
+            } else {
+                resultados.add(new ResultadoTransicionPedido(id, origen, ResultadoTransicionPedido.ACTUALIZADO, null));
+                actualizados.add(id);
+            }
+        }
+
+        if (!actualizados.isEmpty()) {
+            // Los contadores se mueven antes que los pedidos porque se calculan desde su estado actual
+            estadisticapedidosRepository.moverEstadosDePedidos(actualizados, destino.name());
+            int cambiados = pedidoRepository.cambiarEstado(actualizados, EstadoPedido.origenesHacia(destino), destino);
+            if (cambiados != actualizados.size()) {
+                throw new ObjectOptimisticLockingFailureException(
+                        "Otra operación cambió alguno de los pedidos del lote; vuelva a intentarlo", null);
+            }
+            vendedorpedidoRepository.actualizarEstados(actualizados, destino);
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("estado", destino);
+        response.put("procesados", resultados.size());
+        response.put("actualizados", actualizados.size());
+        response.put("noEncontrados", contar(resultados, ResultadoTransicionPedido.NO_ENCONTRADO));
+        response.put("invalidos", contar(resultados, ResultadoTransicionPedido.TRANSICION_INVALIDA));
+        response.put("resultados", resultados);
+        return response;
+    }
+
+    private static long contar(List<ResultadoTransicionPedido> resultados, String resultado) {
+        return resultados.stream().filter(r -> resultado.equals(r.getResultado())).count();
     }
 
+    // Actualiza comprador, total, dirección y estado (los que vengan en el cuerpo). Si el cuerpo trae "version" debe coincidir con la
+    // del pedido, y un cambio de estado tiene que ser una transición permitida
+    @Transactional
     public Pedido actualizarPedido(Long id, Pedido pedido) {
-        if (pedidoRepository.existsById(id)) {
-            pedido.setId(id);
-            return pedidoRepository.save(pedido);
+        Pedido anterior = pedidoRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Pedido no encontrado con ID: " + id));
+        verificarVersion(anterior, pedido.getVersion());
+        Long usuarioAnterior = anterior.getUsuario().getId();
+
+        if (pedido.getEstado() != null && pedido.getEstado() != anterior.getEstado()) {
+            validarTransicion(anterior.getEstado(), pedido.getEstado());
+            anterior.setEstado(pedido.getEstado());
+            vendedorpedidoRepository.actualizarEstado(id, pedido.getEstado());
+        }
+        if (pedido.getUsuario() != null) {
+            anterior.setUsuario(pedido.getUsuario());
+        }
+        if (pedido.getTotal() != null) {
+            anterior.setTotal(pedido.getTotal());
+        }
+        if (pedido.getDireccionentrega() != null) {
+            anterior.setDireccionentrega(pedido.getDireccionentrega());
+        }
+        Pedido guardado = pedidoRepository.saveAndFlush(anterior);
+
+        // El reemplazo puede cambiar total, estado y hasta el comprador
+        recalcularEstadisticas(usuarioAnterior);
+        if (!usuarioAnterior.equals(guardado.getUsuario().getId())) {
+            recalcularEstadisticas(guardado.getUsuario().getId());
         }
-        throw new RuntimeException("Pedido no encontrado con ID: " + id);
+        return guardado;
     }
 
+    @Transactional
     public void eliminarPedido(Long id) {
+        Optional<Pedido> pedido = pedidoRepository.findById(id);
+        vendedorpedidoRepository.eliminarDePedido(id);
         pedidoRepository.deleteById(id);
+        pedido.ifPresent(p -> recalcularEstadisticas(p.getUsuario().getId()));
     }
 
     // ==================== MÉTODOS ADICIONALES ====================
@@ -97,6 +319,7 @@ public class PedidoService {
         return pedidoRepository.findByUsuarioIdAndEstado(usuarioId, estado);
     }
 
+    @Transactional
     public Pedido cancelarPedido(Long pedidoId, String motivo) {
         Pedido pedido = pedidoRepository.findById(pedidoId)
                 .orElseThrow(() -> new RuntimeException("Pedido no encontrado"));
@@ -105,12 +328,12 @@ public class PedidoService {
             throw new RuntimeException("No se puede cancelar un pedido ya entregado");
         }
 
-        pedido.setEstado(EstadoPedido.CANCELADO);
-        return pedidoRepository.save(pedido);
+        return cambiarEstado(pedido, EstadoPedido.CANCELADO, null);
     }
 
+    // Solo lee las filas pedidas, con el mismo tope que las páginas por cursor
     public List<Pedido> obtenerPedidosRecientesPorUsuario(Long usuarioId, int limite) {
-        List<Pedido> todosPedidos = pedidoRepository.findByUsuarioIdOrderByFechapedidoDesc(usuarioId);
-        return todosPedidos.stream().limit(limite).toList();
+        return pedidoRepository.findByUsuarioIdOrderByFechapedidoDesc(usuarioId,
+                Limit.of(PaginaCursor.normalizarLimite(limite)));
     }
 }
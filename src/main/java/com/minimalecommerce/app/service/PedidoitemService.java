@@ -5,9 +5,10 @@ import com.minimalecommerce.app.model.Pedido;
 import com.minimalecommerce.app.model.Producto;
 import com.minimalecommerce.app.repository.PedidoitemRepository;
 import com.minimalecommerce.app.repository.PedidoRepository;
-import com.minimalecommerce.app.repository.ProductoRepository;
+import com.minimalecommerce.app.repository.VendedorpedidoRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import java.util.List;
 import java.util.Optional;
 
@@ -21,7 +22,10 @@ public class PedidoitemService {
     private PedidoRepository pedidoRepository;
 
     @Autowired
-    private ProductoRepository productoRepository;
+    private VendedorpedidoRepository vendedorpedidoRepository;
+
+    @Autowired
+    private CacheProductos cacheProductos;
 
     // Obtener todos los items de pedidos
     public List<Pedidoitem> obtenerTodosPedidoitems() {
@@ -34,6 +38,7 @@ public class PedidoitemService {
     }
 
     // Crear nuevo item de pedido
+    @Transactional
     public Pedidoitem crearPedidoitem(Pedidoitem pedidoitem) {
         if (pedidoitem.getPedido() == null || pedidoitem.getPedido().getId() == null) {
             throw new RuntimeException("Debe especificar un pedido válido");
@@ -48,7 +53,7 @@ public class PedidoitemService {
             throw new RuntimeException("Pedido no encontrado");
         }
 
-        Optional<Producto> producto = productoRepository.findById(pedidoitem.getProducto().getId());
+        Optional<Producto> producto = cacheProductos.obtener(pedidoitem.getProducto().getId());
         if (!producto.isPresent()) {
             throw new RuntimeException("Producto no encontrado");
         }
@@ -61,7 +66,9 @@ public class PedidoitemService {
             pedidoitem.setPreciounitario(producto.get().getPrecio());
         }
 
-        return pedidoitemRepository.save(pedidoitem);
+        Pedidoitem creado = pedidoitemRepository.save(pedidoitem);
+        reindexarPedido(creado.getPedido().getId());
+        return creado;
     }
 
     // Obtener items por pedido
@@ -70,17 +77,38 @@ public class PedidoitemService {
     }
 
     // Actualizar item de pedido
+    @Transactional
     public Pedidoitem actualizarPedidoitem(Long id, Pedidoitem pedidoitem) {
         Optional<Pedidoitem> itemExistente = pedidoitemRepository.findById(id);
         if (itemExistente.isPresent()) {
+            Long pedidoAnterior = itemExistente.get().getPedido().getId();
             pedidoitem.setId(id);
-            return pedidoitemRepository.save(pedidoitem);
+            Pedidoitem actualizado = pedidoitemRepository.save(pedidoitem);
+            reindexarPedido(pedidoAnterior);
+            if (actualizado.getPedido() != null && !pedidoAnterior.equals(actualizado.getPedido().getId())) {
+                reindexarPedido(actualizado.getPedido().getId());
+            }
+            return actualizado;
         }
         throw new RuntimeException("Item de pedido no encontrado");
     }
 
     // Eliminar item de pedido
+    @Transactional
     public void eliminarPedidoitem(Long id) {
-        pedidoitemRepository.deleteById(id);
+        Optional<Pedidoitem> item = pedidoitemRepository.findById(id);
+        if (item.isEmpty()) {
+            return;
+        }
+        pedidoitemRepository.delete(item.get());
+        reindexarPedido(item.get().getPedido().getId());
+    }
+
+    // Las filas de vendedorpedido del pedido se recalculan desde sus líneas en la misma transacción,
+    // así el listado del vendedor ve también los pedidos armados línea por línea
+    private void reindexarPedido(Long pedidoId) {
+        pedidoitemRepository.flush();
+        vendedorpedidoRepository.eliminarDePedido(pedidoId);
+        vendedorpedidoRepository.indexarPedido(pedidoId);
     }
 }
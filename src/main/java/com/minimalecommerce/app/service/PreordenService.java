@@ -6,7 +6,6 @@ import com.minimalecommerce.app.model.Producto;
 import com.minimalecommerce.app.model.EstadoPreorden;
 import com.minimalecommerce.app.repository.PreordenRepository;
 import com.minimalecommerce.app.repository.UsuarioRepository;
-import com.minimalecommerce.app.repository.ProductoRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -26,7 +25,7 @@ public class PreordenService {
     private UsuarioRepository usuarioRepository;
 
     @Autowired
-    private ProductoRepository productoRepository;
+    private CacheProductos cacheProductos;
 
     // Obtener todas las preórdenes
     public List<Preorden> obtenerTodasPreordenes() {
@@ -53,7 +52,7 @@ public class PreordenService {
             throw new RuntimeException("Usuario no encontrado");
         }
 
-        Optional<Producto> producto = productoRepository.findById(preorden.getProducto().getId());
+        Optional<Producto> producto = cacheProductos.obtener(preorden.getProducto().getId());
         if (!producto.isPresent()) {
             throw new RuntimeException("Producto no encontrado");
         }
@@ -127,7 +126,7 @@ public class PreordenService {
         Usuario usuario = usuarioRepository.findById(usuarioId)
                 .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
 
-        Producto producto = productoRepository.findById(productoId)
+        Producto producto = cacheProductos.obtener(productoId)
                 .orElseThrow(() -> new RuntimeException("Producto no encontrado"));
 
         // Validar que el producto esté disponible para preorden
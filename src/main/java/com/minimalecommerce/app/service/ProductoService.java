@@ -1,13 +1,22 @@
 package com.minimalecommerce.app.service;
 
+import com.minimalecommerce.app.dto.CursorCatalogo;
+import com.minimalecommerce.app.dto.FiltroCatalogo;
+import com.minimalecommerce.app.dto.PaginaCursor;
+import com.minimalecommerce.app.dto.ProductoResumen;
+import com.minimalecommerce.app.dto.ResultadoFacetas;
+import com.minimalecommerce.app.event.ProductoCambiadoEvent;
 import com.minimalecommerce.app.model.Producto;
 import com.minimalecommerce.app.model.Categoria;
 import com.minimalecommerce.app.repository.ProductoRepository;
 import com.minimalecommerce.app.repository.CategoriaRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
@@ -19,19 +28,38 @@ public class ProductoService {
     @Autowired
     private CategoriaRepository categoriaRepository;
 
+    @Autowired
+    private IndiceBusquedaProductos indiceBusqueda;
+
+    @Autowired
+    private FacetasCatalogo facetasCatalogo;
+
+    @Autowired
+    private RankingPopularidad rankingPopularidad;
+
+    @Autowired
+    private CacheProductos cacheProductos;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    // Resultados máximos de una búsqueda por texto
+    private static final int LIMITE_BUSQUEDA_POR_DEFECTO = 50;
+    private static final int LIMITE_BUSQUEDA_MAXIMO = 200;
+
     // Obtener todos los productos activos
-    public List<Producto> obtenerProductosActivos() {
-        return productoRepository.findByActivoTrue();
+    public List<ProductoResumen> obtenerProductosActivos() {
+        return productoRepository.findResumenActivos();
     }
 
     // Obtener productos por categoría
-    public List<Producto> obtenerProductosPorCategoria(Long categoriaId) {
-        return productoRepository.findByCategoriaIdAndStockDisponible(categoriaId);
+    public List<ProductoResumen> obtenerProductosPorCategoria(Long categoriaId) {
+        return productoRepository.findResumenPorCategoriaConStock(categoriaId);
     }
 
     // Obtener productos disponibles (con stock)
-    public List<Producto> obtenerProductosDisponibles() {
-        return productoRepository.findProductosDisponibles();
+    public List<ProductoResumen> obtenerProductosDisponibles() {
+        return productoRepository.findResumenDisponibles();
     }
 
     // Crear nuevo producto
@@ -47,15 +75,21 @@ public class ProductoService {
 
         producto.setCategoria(categoria.get());
         producto.setActivo(true);
-        return productoRepository.save(producto);
+        Producto guardado = productoRepository.save(producto);
+        eventPublisher.publishEvent(ProductoCambiadoEvent.de(guardado, ProductoCambiadoEvent.Tipo.CREADO));
+        return guardado;
     }
 
     // Actualizar producto
     public Producto actualizarProducto(Long id, Producto producto) {
         Optional<Producto> productoExistente = productoRepository.findById(id);
         if (productoExistente.isPresent()) {
+            Categoria categoriaAnterior = productoExistente.get().getCategoria();
             producto.setId(id);
-            return productoRepository.save(producto);
+            Producto guardado = productoRepository.save(producto);
+            eventPublisher.publishEvent(ProductoCambiadoEvent.actualizado(guardado,
+                    categoriaAnterior != null ? categoriaAnterior.getId() : null));
+            return guardado;
         }
         throw new RuntimeException("Producto no encontrado");
     }
@@ -65,27 +99,40 @@ public class ProductoService {
         Optional<Producto> producto = productoRepository.findById(id);
         if (producto.isPresent()) {
             producto.get().setActivo(false);
-            productoRepository.save(producto.get());
+            Producto guardado = productoRepository.save(producto.get());
+            eventPublisher.publishEvent(ProductoCambiadoEvent.de(guardado, ProductoCambiadoEvent.Tipo.DESACTIVADO));
         }
     }
 
-    // Buscar productos por nombre
-    public List<Producto> buscarProductos(String nombre) {
-        return productoRepository.findByNombreContainingIgnoreCase(nombre);
+    // Buscar productos por texto (nombre, descripción y categoría) en el índice en memoria
+    public List<ProductoResumen> buscarProductos(String nombre) {
+        return buscarProductos(nombre, null);
+    }
+
+    public List<ProductoResumen> buscarProductos(String texto, Integer limite) {
+        int tamano = (limite == null || limite <= 0)
+                ? LIMITE_BUSQUEDA_POR_DEFECTO
+                : Math.min(limite, LIMITE_BUSQUEDA_MAXIMO);
+        return indiceBusqueda.buscar(texto, tamano);
     }
 
-    public List<Producto> obtenerProductosPreorden() {
-        return productoRepository.findByEspreordenTrueAndActivoTrue();
+    public List<ProductoResumen> obtenerProductosPreorden() {
+        return productoRepository.findResumenPreorden();
     }
 
     // Buscar productos por rango de precio
-    public List<Producto> buscarProductosPorPrecio(BigDecimal precioMin, BigDecimal precioMax) {
-        return productoRepository.findByPrecioBetween(precioMin, precioMax);
+    public List<ProductoResumen> buscarProductosPorPrecio(BigDecimal precioMin, BigDecimal precioMax) {
+        return productoRepository.findResumenPorPrecio(precioMin, precioMax);
     }
 
-    // Obtener productos populares
-    public List<Producto> obtenerProductosPopulares() {
-        return productoRepository.findProductosPopulares();
+    // Obtener productos populares (ranking precalculado por ventas recientes)
+    public List<ProductoResumen> obtenerProductosPopulares() {
+        return rankingPopularidad.populares(null, RankingPopularidad.TAMANO_TOP);
+    }
+
+    public List<ProductoResumen> obtenerProductosPopulares(Long categoriaId, Integer limite) {
+        int tamano = limite != null && limite > 0 ? limite : RankingPopularidad.TAMANO_TOP;
+        return rankingPopularidad.populares(categoriaId, tamano);
     }
 
     // Actualizar stock
@@ -93,34 +140,93 @@ public class ProductoService {
         Optional<Producto> producto = productoRepository.findById(productoId);
         if (producto.isPresent()) {
             producto.get().setStock(nuevoStock);
-            productoRepository.save(producto.get());
+            Producto guardado = productoRepository.save(producto.get());
+            eventPublisher.publishEvent(ProductoCambiadoEvent.de(guardado, ProductoCambiadoEvent.Tipo.STOCK_ACTUALIZADO));
         }
     }
 
-    public List<Producto> obtenerProductosPorVendedor(Long vendedorId) {
+    public List<ProductoResumen> obtenerProductosPorVendedor(Long vendedorId) {
         // Traer TODOS los productos del vendedor (activos y pausados)
-        return productoRepository.findByVendedorId(vendedorId);
+        return productoRepository.findResumenPorVendedor(vendedorId);
     }
 
     // Eliminar producto completamente
     public void eliminarProductoCompleto(Long id) {
         Optional<Producto> producto = productoRepository.findById(id);
         if (producto.isPresent()) {
+            Categoria categoria = producto.get().getCategoria();
             productoRepository.deleteById(id);
+            eventPublisher.publishEvent(ProductoCambiadoEvent.eliminado(id, categoria != null ? categoria.getId() : null));
         } else {
             throw new RuntimeException("Producto no encontrado");
         }
     }
 
-    // Método para obtener producto por ID
+    // Método para obtener producto por ID (a través de la caché; devuelve una copia, no sirve para editar)
     public Producto obtenerProductoPorId(Long id) {
-        Optional<Producto> producto = productoRepository.findById(id);
-        return producto.orElse(null);
+        return cacheProductos.obtener(id).orElse(null);
     }
 
     // O si prefieres mantener la consistencia con Optional:
     public Optional<Producto> obtenerPorId(Long id) {
-        return productoRepository.findById(id);
+        return cacheProductos.obtener(id);
+    }
+
+    // Lectura directa de la base, para quien vaya a modificar el producto y guardarlo
+    public Producto obtenerProductoParaEditar(Long id) {
+        return productoRepository.findById(id).orElse(null);
+    }
+
+    public Map<String, Object> obtenerEstadisticasCache() {
+        return cacheProductos.estadisticas();
+    }
+
+    // ==================== PAGINACIÓN POR CURSOR ====================
+    // Se pide una fila de más para saber si existe página siguiente sin ejecutar un COUNT.
+
+    public PaginaCursor<ProductoResumen> obtenerProductosActivosPagina(String cursor, Integer limite) {
+        int tamano = PaginaCursor.normalizarLimite(limite);
+        Long ultimoId = ultimoIdDesde(CursorCatalogo.decodificar(cursor, CursorCatalogo.ORDEN_ID));
+        List<ProductoResumen> filas = productoRepository.findActivosDespuesDe(ultimoId, PageRequest.of(0, tamano + 1));
+        return PaginaCursor.desde(filas, tamano, p -> CursorCatalogo.porId(p.getId()).codificar());
+    }
+
+    public PaginaCursor<ProductoResumen> obtenerProductosDisponiblesPagina(String cursor, Integer limite) {
+        int tamano = PaginaCursor.normalizarLimite(limite);
+        Long ultimoId = ultimoIdDesde(CursorCatalogo.decodificar(cursor, CursorCatalogo.ORDEN_ID));
+        List<ProductoResumen> filas = productoRepository.findDisponiblesDespuesDe(ultimoId, PageRequest.of(0, tamano + 1));
+        return PaginaCursor.desde(filas, tamano, p -> CursorCatalogo.porId(p.getId()).codificar());
+    }
+
+    public PaginaCursor<ProductoResumen> obtenerProductosPorCategoriaPagina(Long categoriaId, String cursor, Integer limite) {
+        int tamano = PaginaCursor.normalizarLimite(limite);
+        Long ultimoId = ultimoIdDesde(CursorCatalogo.decodificar(cursor, CursorCatalogo.ORDEN_ID));
+        List<ProductoResumen> filas = productoRepository.findByCategoriaIdAndStockDisponibleDespuesDe(
+                categoriaId, ultimoId, PageRequest.of(0, tamano + 1));
+        return PaginaCursor.desde(filas, tamano, p -> CursorCatalogo.porId(p.getId()).codificar());
+    }
+
+    public PaginaCursor<ProductoResumen> buscarProductosPorPrecioPagina(BigDecimal precioMin, BigDecimal precioMax,
+                                                                 String cursor, Integer limite) {
+        int tamano = PaginaCursor.normalizarLimite(limite);
+        CursorCatalogo desde = CursorCatalogo.decodificar(cursor, CursorCatalogo.ORDEN_PRECIO);
+        // Sin cursor se arranca en (precioMin, 0), que incluye todo el rango
+        BigDecimal ultimoPrecio = desde != null ? desde.getValorDecimal() : precioMin;
+        Long ultimoId = ultimoIdDesde(desde);
+        List<ProductoResumen> filas = productoRepository.findByPrecioBetweenDespuesDe(
+                precioMin, precioMax, ultimoPrecio, ultimoId, PageRequest.of(0, tamano + 1));
+        return PaginaCursor.desde(filas, tamano, p -> CursorCatalogo.porPrecio(p.getPrecio(), p.getId()).codificar());
+    }
+
+    // ==================== FILTRADO POR FACETAS ====================
+
+    // Se resuelve sobre los bitmaps en memoria; no consulta la base de datos
+    public ResultadoFacetas<ProductoResumen> filtrarCatalogo(FiltroCatalogo filtro, String cursor, Integer limite) {
+        return facetasCatalogo.filtrar(filtro, cursor, limite);
+    }
+
+    private Long ultimoIdDesde(CursorCatalogo cursor) {
+        return cursor != null ? cursor.getUltimoId() : 0L;
     }
 
 }
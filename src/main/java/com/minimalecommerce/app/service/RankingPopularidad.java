@@ -0,0 +1,377 @@
+package com.minimalecommerce.app.service;
+
+import com.minimalecommerce.app.dto.ProductoResumen;
+import com.minimalecommerce.app.event.PedidoProcesadoEvent;
+import com.minimalecommerce.app.event.ProductoCambiadoEvent;
+import com.minimalecommerce.app.model.EstadoPedido;
+import com.minimalecommerce.app.model.Producto;
+import com.minimalecommerce.app.repository.PedidoitemRepository;
+import com.minimalecommerce.app.repository.ProductoRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Ranking de productos por velocidad de ventas con decaimiento exponencial en el tiempo.
+// Usa "forward decay": cada venta suma cantidad * e^(λ(t - hito)), de modo que los puntajes solo
+// crecen y el orden relativo es el mismo que con el decaimiento clásico. Eso permite mantener
+// un top-K exacto con heaps acotados (global y por categoría) y servirlos sin consultar la base.
+@Component
+public class RankingPopularidad {
+
+    public static final int TAMANO_TOP = 50;
+
+    // Una venta pierde la mitad de su peso cada 72 horas
+    private static final double VIDA_MEDIA_HORAS = 72;
+    private static final double LAMBDA = Math.log(2) / (VIDA_MEDIA_HORAS * 3600);
+
+    // Al arrancar se cargan las ventas de las últimas 8 vidas medias (peso residual < 1/256)
+    private static final long VENTANA_ARRANQUE_HORAS = (long) (VIDA_MEDIA_HORAS * 8);
+
+    // Cuando el exponente supera este valor se reescalan los puntajes para no desbordar el double
+    private static final double EXPONENTE_MAXIMO = 40;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private PedidoitemRepository pedidoitemRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<Long, Integer> ordinalPorId = new HashMap<>();
+    private long[] idPorOrdinal = new long[0];
+    private double[] puntajePorOrdinal = new double[0];
+    private long[] unidadesPorOrdinal = new long[0];
+    private long[] categoriaPorOrdinal = new long[0];
+    // Resumen de listado; null si el producto no está activo (no participa en el ranking)
+    private ProductoResumen[] resumenPorOrdinal = new ProductoResumen[0];
+    private int totalOrdinales;
+
+    // Instante de referencia del forward decay, en segundos epoch
+    private long hitoSegundos = ahoraSegundos();
+
+    private final TopK topGlobal = new TopK();
+    private final Map<Long, TopK> topPorCategoria = new HashMap<>();
+
+    // ==================== CONSTRUCCIÓN Y ACTUALIZACIÓN ====================
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconstruir() {
+        List<Producto> activos = productoRepository.findByActivoTrue();
+        List<Object[]> ventas = pedidoitemRepository.findVentasDesde(
+                LocalDateTime.now().minusHours(VENTANA_ARRANQUE_HORAS), EstadoPedido.CANCELADO);
+
+        lock.writeLock().lock();
+        try {
+            ordinalPorId.clear();
+            totalOrdinales = 0;
+            hitoSegundos = ahoraSegundos();
+            asegurarCapacidad(Math.max(activos.size(), 16));
+
+            for (Producto producto : activos) {
+                int ordinal = ordinalDe(producto.getId());
+                resumenPorOrdinal[ordinal] = ProductoResumen.de(producto);
+                categoriaPorOrdinal[ordinal] = categoriaDe(producto);
+            }
+            for (Object[] venta : ventas) {
+                sumarVenta((Long) venta[0], ((Number) venta[1]).intValue(), (LocalDateTime) venta[2]);
+            }
+            recalcularTodo();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alProcesarPedido(PedidoProcesadoEvent evento) {
+        lock.writeLock().lock();
+        try {
+            for (PedidoProcesadoEvent.Linea linea : evento.getLineas()) {
+                int ordinal = sumarVenta(linea.getProductoId(), linea.getCantidad(), evento.getFechapedido());
+                ofrecer(ordinal);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alCambiarProducto(ProductoCambiadoEvent evento) {
+        lock.writeLock().lock();
+        try {
+            int ordinal = ordinalDe(evento.getProductoId());
+            ProductoResumen anterior = resumenPorOrdinal[ordinal];
+            long categoriaAnterior = categoriaPorOrdinal[ordinal];
+            if (evento.esDescuentoDeStock()) {
+                // La venta ya suma por PedidoProcesadoEvent; aquí solo cambia el stock mostrado
+                if (anterior != null) {
+                    int stock = (anterior.getStock() != null ? anterior.getStock() : 0) - evento.getUnidades();
+                    resumenPorOrdinal[ordinal] = anterior.conStock(stock);
+                }
+                return;
+            }
+            Producto producto = evento.getProducto();
+
+            if (producto == null || !Boolean.TRUE.equals(producto.getActivo())) {
+                resumenPorOrdinal[ordinal] = null;
+                if (anterior != null) {
+                    sacarDelRanking(ordinal, categoriaAnterior);
+                }
+                return;
+            }
+
+            resumenPorOrdinal[ordinal] = ProductoResumen.de(producto);
+            categoriaPorOrdinal[ordinal] = categoriaDe(producto);
+            if (anterior != null && categoriaAnterior != categoriaPorOrdinal[ordinal]) {
+                TopK top = topPorCategoria.get(categoriaAnterior);
+                if (top != null && top.contiene(ordinal)) {
+                    recalcularCategoria(categoriaAnterior);
+                }
+            }
+            ofrecer(ordinal);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Debe llamarse con el lock de escritura tomado
+    private int sumarVenta(Long productoId, int cantidad, LocalDateTime fecha) {
+        long segundos = fecha != null ? fecha.toEpochSecond(ZoneOffset.UTC) : ahoraSegundos();
+        double exponente = LAMBDA * (segundos - hitoSegundos);
+        if (exponente > EXPONENTE_MAXIMO) {
+            reescalar(segundos);
+            exponente = 0;
+        }
+
+        int ordinal = ordinalDe(productoId);
+        puntajePorOrdinal[ordinal] += cantidad * Math.exp(exponente);
+        unidadesPorOrdinal[ordinal] += cantidad;
+        return ordinal;
+    }
+
+    // Mueve el hito al instante dado; multiplicar todos los puntajes por la misma constante
+    // no altera el orden, así que los heaps siguen siendo válidos
+    private void reescalar(long nuevoHitoSegundos) {
+        double factor = Math.exp(-LAMBDA * (nuevoHitoSegundos - hitoSegundos));
+        for (int i = 0; i < totalOrdinales; i++) {
+            puntajePorOrdinal[i] *= factor;
+        }
+        hitoSegundos = nuevoHitoSegundos;
+    }
+
+    private void ofrecer(int ordinal) {
+        if (resumenPorOrdinal[ordinal] == null) {
+            return;
+        }
+        topGlobal.ofrecer(ordinal);
+        topPorCategoria.computeIfAbsent(categoriaPorOrdinal[ordinal], k -> new TopK()).ofrecer(ordinal);
+    }
+
+    // Un producto que sale del ranking obliga a recalcular el heap afectado: los heaps
+    // solo guardan K elementos y no saben quién ocupa el puesto K+1
+    private void sacarDelRanking(int ordinal, long categoria) {
+        if (topGlobal.contiene(ordinal)) {
+            recalcularGlobal();
+        }
+        TopK top = topPorCategoria.get(categoria);
+        if (top != null && top.contiene(ordinal)) {
+            recalcularCategoria(categoria);
+        }
+    }
+
+    private void recalcularTodo() {
+        topGlobal.vaciar();
+        topPorCategoria.clear();
+        for (int i = 0; i < totalOrdinales; i++) {
+            ofrecer(i);
+        }
+    }
+
+    private void recalcularGlobal() {
+        topGlobal.vaciar();
+        for (int i = 0; i < totalOrdinales; i++) {
+            if (resumenPorOrdinal[i] != null) {
+                topGlobal.ofrecer(i);
+            }
+        }
+    }
+
+    private void recalcularCategoria(long categoria) {
+        TopK top = new TopK();
+        for (int i = 0; i < totalOrdinales; i++) {
+            if (resumenPorOrdinal[i] != null && categoriaPorOrdinal[i] == categoria) {
+                top.ofrecer(i);
+            }
+        }
+        if (top.tamano == 0) {
+            topPorCategoria.remove(categoria);
+        } else {
+            topPorCategoria.put(categoria, top);
+        }
+    }
+
+    private int ordinalDe(Long productoId) {
+        Integer ordinal = ordinalPorId.get(productoId);
+        if (ordinal != null) {
+            return ordinal;
+        }
+        asegurarCapacidad(totalOrdinales + 1);
+        int nuevo = totalOrdinales++;
+        idPorOrdinal[nuevo] = productoId;
+        puntajePorOrdinal[nuevo] = 0;
+        unidadesPorOrdinal[nuevo] = 0;
+        categoriaPorOrdinal[nuevo] = 0;
+        resumenPorOrdinal[nuevo] = null;
+        ordinalPorId.put(productoId, nuevo);
+        return nuevo;
+    }
+
+    private void asegurarCapacidad(int requerida) {
+        if (requerida <= idPorOrdinal.length) {
+            return;
+        }
+        int capacidad = Math.max(requerida, idPorOrdinal.length * 2);
+        idPorOrdinal = Arrays.copyOf(idPorOrdinal, capacidad);
+        puntajePorOrdinal = Arrays.copyOf(puntajePorOrdinal, capacidad);
+        unidadesPorOrdinal = Arrays.copyOf(unidadesPorOrdinal, capacidad);
+        categoriaPorOrdinal = Arrays.copyOf(categoriaPorOrdinal, capacidad);
+        resumenPorOrdinal = Arrays.copyOf(resumenPorOrdinal, capacidad);
+    }
+
+    private static long categoriaDe(Producto producto) {
+        return producto.getCategoria() != null ? producto.getCategoria().getId() : 0L;
+    }
+
+    private static long ahoraSegundos() {
+        return LocalDateTime.now().toEpochSecond(ZoneOffset.UTC);
+    }
+
+    // ==================== CONSULTA ====================
+
+    // Productos más vendidos, globales o de una categoría; como mucho TAMANO_TOP
+    public List<ProductoResumen> populares(Long categoriaId, int limite) {
+        lock.readLock().lock();
+        try {
+            TopK top = categoriaId != null ? topPorCategoria.get(categoriaId) : topGlobal;
+            if (top == null) {
+                return new ArrayList<>();
+            }
+            return top.ordenados(Math.min(limite, TAMANO_TOP));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Unidades vendidas dentro de la ventana cargada más las registradas desde el arranque
+    public long unidadesVendidas(Long productoId) {
+        lock.readLock().lock();
+        try {
+            Integer ordinal = ordinalPorId.get(productoId);
+            return ordinal != null ? unidadesPorOrdinal[ordinal] : 0L;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Un producto va delante de otro si tiene más puntaje; a igualdad, el más reciente
+    private boolean menor(int a, int b) {
+        double pa = puntajePorOrdinal[a];
+        double pb = puntajePorOrdinal[b];
+        if (pa != pb) {
+            return pa < pb;
+        }
+        return idPorOrdinal[a] < idPorOrdinal[b];
+    }
+
+    // Min-heap acotado de ordinales; la raíz es el peor de los K mejores
+    private final class TopK {
+        private final int[] heap = new int[TAMANO_TOP];
+        private final Map<Integer, Integer> posicion = new HashMap<>();
+        private int tamano;
+
+        // Inserta el ordinal o, si ya está, lo reubica tras haber aumentado su puntaje
+        void ofrecer(int ordinal) {
+            Integer pos = posicion.get(ordinal);
+            if (pos != null) {
+                bajar(pos);
+            } else if (tamano < heap.length) {
+                colocar(tamano, ordinal);
+                subir(tamano++);
+            } else if (menor(heap[0], ordinal)) {
+                posicion.remove(heap[0]);
+                colocar(0, ordinal);
+                bajar(0);
+            }
+        }
+
+        boolean contiene(int ordinal) {
+            return posicion.containsKey(ordinal);
+        }
+
+        void vaciar() {
+            posicion.clear();
+            tamano = 0;
+        }
+
+        List<ProductoResumen> ordenados(int limite) {
+            Integer[] copia = new Integer[tamano];
+            for (int i = 0; i < tamano; i++) {
+                copia[i] = heap[i];
+            }
+            Arrays.sort(copia, (a, b) -> menor(a, b) ? 1 : (menor(b, a) ? -1 : 0));
+
+            List<ProductoResumen> resultado = new ArrayList<>(Math.min(limite, tamano));
+            for (int i = 0; i < copia.length && resultado.size() < limite; i++) {
+                resultado.add(resumenPorOrdinal[copia[i]]);
+            }
+            return resultado;
+        }
+
+        private void subir(int i) {
+            while (i > 0) {
+                int padre = (i - 1) >>> 1;
+                if (!menor(heap[i], heap[padre])) {
+                    break;
+                }
+                intercambiar(i, padre);
+                i = padre;
+            }
+        }
+
+        private void bajar(int i) {
+            while (true) {
+                int izquierdo = 2 * i + 1;
+                if (izquierdo >= tamano) {
+                    break;
+                }
+                int hijo = izquierdo;
+                if (izquierdo + 1 < tamano && menor(heap[izquierdo + 1], heap[izquierdo])) {
+                    hijo = izquierdo + 1;
+                }
+                if (!menor(heap[hijo], heap[i])) {
+                    break;
+                }
+                intercambiar(i, hijo);
+                i = hijo;
+            }
+        }
+
+        private void intercambiar(int i, int j) {
+            int temporal = heap[i];
+            colocar(i, heap[j]);
+            colocar(j, temporal);
+        }
+
+        private void colocar(int i, int ordinal) {
+            heap[i] = ordinal;
+            posicion.put(ordinal, i);
+        }
+    }
+}
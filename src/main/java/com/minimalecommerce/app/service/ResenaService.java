@@ -1,12 +1,13 @@
 package com.minimalecommerce.app.service;
 
+import com.minimalecommerce.app.dto.PaginaCursor;
 import com.minimalecommerce.app.model.Resena;
 import com.minimalecommerce.app.model.Usuario;
 import com.minimalecommerce.app.model.Producto;
 import com.minimalecommerce.app.repository.ResenaRepository;
 import com.minimalecommerce.app.repository.UsuarioRepository;
-import com.minimalecommerce.app.repository.ProductoRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import java.util.List;
@@ -23,7 +24,7 @@ public class ResenaService {
     private UsuarioRepository usuarioRepository;
 
     @Autowired
-    private ProductoRepository productoRepository;
+    private CacheProductos cacheProductos;
 
     // ===== MÉTODOS BÁSICOS =====
 
@@ -49,7 +50,7 @@ public class ResenaService {
             throw new RuntimeException("Usuario no encontrado");
         }
 
-        Optional<Producto> producto = productoRepository.findById(resena.getProducto().getId());
+        Optional<Producto> producto = cacheProductos.obtener(resena.getProducto().getId());
         if (!producto.isPresent()) {
             throw new RuntimeException("Producto no encontrado");
         }
@@ -118,7 +119,7 @@ public class ResenaService {
         }
 
         // Validar producto existe
-        Optional<Producto> producto = productoRepository.findById(productoId);
+        Optional<Producto> producto = cacheProductos.obtener(productoId);
         if (!producto.isPresent()) {
             throw new RuntimeException("Producto no encontrado");
         }
@@ -180,7 +181,8 @@ public class ResenaService {
     // ===== MÉTODOS ADICIONALES =====
 
     public List<Resena> obtenerResenasRecientesPorProducto(Long productoId, int limite) {
-        return resenaRepository.findTopByProductoIdOrderByFecharesenaDesc(productoId, limite);
+        return resenaRepository.findTopByProductoIdOrderByFecharesenaDesc(productoId,
+                Limit.of(PaginaCursor.normalizarLimite(limite)));
     }
 
     public List<Resena> obtenerResenasConCalificacion(Integer calificacion) {
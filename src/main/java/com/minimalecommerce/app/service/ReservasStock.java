@@ -0,0 +1,453 @@
+package com.minimalecommerce.app.service;
+
+import com.minimalecommerce.app.event.ProductoCambiadoEvent;
+import com.minimalecommerce.app.model.Reservastock;
+import com.minimalecommerce.app.repository.ProductoRepository;
+import com.minimalecommerce.app.repository.ReservastockRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Reservas de stock con vencimiento para los carritos. Agregar al carrito retiene unidades durante
+// DURACION; el checkout convierte la reserva en el descuento real y las reservas abandonadas vencen
+// solas. Por producto se guarda un único AtomicLong con (stock << 32 | reservado), así que reservar
+// es un compareAndSet sin locks y "disponible" se responde sin consultar la base.
+// Las reservas se persisten en reservastock para reconstruirlas al arrancar. Como el resto de los
+// motores en memoria, supone una sola instancia de la aplicación.
+@Component
+public class ReservasStock {
+
+    public static final Duration DURACION = Duration.ofMinutes(15);
+
+    // Rueda temporizadora de 512 ranuras de 1 s: una reserva se guarda en la ranura de su tick de
+    // vencimiento (tick % RANURAS) y cada tick solo revisa una ranura. Las que vencen una vuelta
+    // o más después comparten ranura y se saltan hasta su vuelta.
+    private static final int RANURAS = 512;
+    private static final long MS_POR_TICK = 1000;
+    private static final long MASCARA_RESERVADO = 0xFFFFFFFFL;
+
+    private record Clave(Long usuarioId, Long productoId) {}
+
+    // Sus campos se modifican solo dentro de reservas.compute(clave, ...)
+    private static final class Reserva {
+        final Clave clave;
+        volatile int cantidad;
+        volatile long vencimiento;
+
+        Reserva(Clave clave) {
+            this.clave = clave;
+        }
+    }
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private ReservastockRepository reservastockRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final Map<Long, AtomicLong> contadores = new ConcurrentHashMap<>();
+    private final Map<Clave, Reserva> reservas = new ConcurrentHashMap<>();
+    private final List<Set<Reserva>> rueda = new ArrayList<>(RANURAS);
+    private long ultimoTick = tickActual();
+
+    public ReservasStock() {
+        for (int i = 0; i < RANURAS; i++) {
+            rueda.add(ConcurrentHashMap.newKeySet());
+        }
+    }
+
+    // ==================== CONSTRUCCIÓN ====================
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconstruir() {
+        LocalDateTime ahora = LocalDateTime.now();
+        transactionTemplate.executeWithoutResult(status -> reservastockRepository.eliminarVencidas(ahora));
+        List<Object[]> stock = productoRepository.findStockPorId();
+        List<Reservastock> vigentes = reservastockRepository.findVigentes(ahora);
+
+        contadores.clear();
+        reservas.clear();
+        rueda.forEach(Set::clear);
+        for (Object[] fila : stock) {
+            contadores.put((Long) fila[0], new AtomicLong(empaquetar((Integer) fila[1], 0)));
+        }
+        for (Reservastock guardada : vigentes) {
+            AtomicLong contador = contadores.get(guardada.getProductoid());
+            if (contador == null) {
+                continue;
+            }
+            Reserva reserva = new Reserva(new Clave(guardada.getUsuarioid(), guardada.getProductoid()));
+            reserva.cantidad = guardada.getCantidad();
+            contador.addAndGet(guardada.getCantidad());
+            reservas.put(reserva.clave, reserva);
+            programar(reserva, tickDe(guardada.getFechaexpiracion()));
+        }
+    }
+
+    // El stock real llega con cada cambio de producto. El descuento del checkout llega como variación
+    // y se suma a la mitad alta del contador; si el contador todavía no existe, se cargará de la base
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alCambiarProducto(ProductoCambiadoEvent evento) {
+        if (evento.esDescuentoDeStock()) {
+            AtomicLong contador = contadores.get(evento.getProductoId());
+            if (contador != null) {
+                contador.addAndGet(-((long) evento.getUnidades() << 32));
+            }
+            return;
+        }
+        if (evento.getProducto() == null) {
+            contadores.remove(evento.getProductoId());
+            return;
+        }
+        AtomicLong contador = contadores.computeIfAbsent(evento.getProductoId(), id -> new AtomicLong());
+        int stock = evento.getProducto().getStock() != null ? evento.getProducto().getStock() : 0;
+        contador.updateAndGet(estado -> empaquetar(stock, reservado(estado)));
+    }
+
+    // ==================== RESERVAS ====================
+
+    // Fija en "cantidad" las unidades que retiene el usuario y renueva el vencimiento. Devuelve false
+    // si no hay disponibles suficientes. Debe llamarse en la transacción que modifica el carrito:
+    // si esta se revierte, la reserva vuelve a su estado anterior.
+    public boolean reservar(Long usuarioId, Long productoId, int cantidad) {
+        long vencimiento = vencimientoNuevo();
+        if (!retener(usuarioId, productoId, cantidad, vencimiento)) {
+            return false;
+        }
+        reservastockRepository.guardar(usuarioId, productoId, cantidad, fechaDe(vencimiento));
+        return true;
+    }
+
+    // Suma "unidades" a lo que ya retiene el usuario, partiendo al menos de "enCarrito" (la reserva
+    // pudo vencer con el item todavía en el carrito). No fija una cantidad leída antes de entrar:
+    // dos agregados concurrentes del mismo producto suman los dos sobre la reserva, igual que sobre
+    // el item del carrito. Si la transacción se revierte, se descuenta solo lo que sumó esta llamada.
+    public boolean sumar(Long usuarioId, Long productoId, int enCarrito, int unidades) {
+        AtomicLong contador = contador(productoId);
+        if (contador == null) {
+            return false;
+        }
+        Clave clave = new Clave(usuarioId, productoId);
+        long vencimiento = vencimientoNuevo();
+        int[] agregadas = {-1};
+
+        reservas.compute(clave, (k, actual) -> {
+            int previa = actual != null ? actual.cantidad : 0;
+            int nueva = Math.max(previa, enCarrito) + unidades;
+            if (!tomar(contador, nueva - previa)) {
+                return actual;
+            }
+            agregadas[0] = nueva - previa;
+
+            Reserva reserva = actual != null ? actual : new Reserva(k);
+            reserva.cantidad = nueva;
+            programar(reserva, vencimiento);
+            return reserva;
+        });
+        if (agregadas[0] < 0) {
+            return false;
+        }
+
+        reservastockRepository.sumar(usuarioId, productoId, agregadas[0], fechaDe(vencimiento));
+
+        alRevertir(() -> descontar(clave, contador, agregadas[0]));
+        return true;
+    }
+
+    // Como reservar, para varios productos a la vez: todas se persisten con una sola sentencia.
+    // Devuelve el primer producto sin disponibles suficientes, o null si se reservaron todos; en
+    // ese caso la transacción debe revertirse para deshacer las que ya se retuvieron.
+    public Long reservarVarias(Long usuarioId, Map<Long, Integer> cantidades) {
+        long vencimiento = vencimientoNuevo();
+        for (Map.Entry<Long, Integer> entrada : cantidades.entrySet()) {
+            if (!retener(usuarioId, entrada.getKey(), entrada.getValue(), vencimiento)) {
+                return entrada.getKey();
+            }
+        }
+        reservastockRepository.guardarVarias(usuarioId, cantidades, fechaDe(vencimiento));
+        return null;
+    }
+
+    // Suelta las reservas del usuario para esos productos al confirmarse la transacción. El checkout
+    // también la usa: ahí la reserva se convierte en el descuento real, que llega con el evento de stock.
+    public void liberar(Long usuarioId, Collection<Long> productoIds) {
+        if (productoIds.isEmpty()) {
+            return;
+        }
+        reservastockRepository.eliminarDeUsuario(usuarioId, productoIds);
+        List<Long> ids = new ArrayList<>(productoIds);
+        alConfirmar(() -> {
+            for (Long productoId : ids) {
+                reservas.computeIfPresent(new Clave(usuarioId, productoId), (k, reserva) -> {
+                    soltar(reserva);
+                    return null;
+                });
+            }
+        });
+    }
+
+    // Primer producto que el usuario no puede comprar en la cantidad pedida contando su propia
+    // reserva, o null si puede con todos. Una reserva vencida ya no cuenta.
+    public Long sinCobertura(Long usuarioId, Map<Long, Integer> cantidades) {
+        for (Map.Entry<Long, Integer> entrada : cantidades.entrySet()) {
+            if (disponiblePara(usuarioId, entrada.getKey()) < entrada.getValue()) {
+                return entrada.getKey();
+            }
+        }
+        return null;
+    }
+
+    // Unidades que el usuario podría retener en total: las libres más las que ya reservó
+    public int disponiblePara(Long usuarioId, Long productoId) {
+        AtomicLong contador = contador(productoId);
+        if (contador == null) {
+            return 0;
+        }
+        Reserva propia = reservas.get(new Clave(usuarioId, productoId));
+        return disponible(contador.get()) + (propia != null ? propia.cantidad : 0);
+    }
+
+    // Stock, reservado y disponible de un producto, o null si no existe
+    public Map<String, Object> disponibilidad(Long productoId) {
+        AtomicLong contador = contador(productoId);
+        if (contador == null) {
+            return null;
+        }
+        long estado = contador.get();
+        Map<String, Object> resultado = new HashMap<>();
+        resultado.put("productoId", productoId);
+        resultado.put("stock", stock(estado));
+        resultado.put("reservado", reservado(estado));
+        resultado.put("disponible", disponible(estado));
+        return resultado;
+    }
+
+    // ==================== VENCIMIENTO ====================
+
+    @Scheduled(fixedRate = MS_POR_TICK)
+    public void avanzar() {
+        long ahora = tickActual();
+        int vencidas = 0;
+        // Tras una pausa larga basta una vuelta completa: cubre todas las ranuras
+        for (long tick = Math.max(ultimoTick + 1, ahora - RANURAS + 1); tick <= ahora; tick++) {
+            for (Reserva reserva : rueda.get(ranura(tick))) {
+                if (reserva.vencimiento <= ahora && vencer(reserva, ahora)) {
+                    vencidas++;
+                }
+            }
+        }
+        ultimoTick = ahora;
+
+        if (vencidas > 0) {
+            transactionTemplate.executeWithoutResult(status ->
+                    reservastockRepository.eliminarVencidas(LocalDateTime.now()));
+        }
+    }
+
+    private boolean vencer(Reserva reserva, long ahora) {
+        boolean[] vencida = {false};
+        reservas.computeIfPresent(reserva.clave, (k, actual) -> {
+            // Pudo renovarse o reemplazarse desde que se leyó la ranura
+            if (actual != reserva || actual.vencimiento > ahora) {
+                return actual;
+            }
+            soltar(actual);
+            vencida[0] = true;
+            return null;
+        });
+        return vencida[0];
+    }
+
+    // ==================== INTERNOS ====================
+
+    // Aplica la reserva en memoria y registra cómo deshacerla si la transacción se revierte
+    private boolean retener(Long usuarioId, Long productoId, int cantidad, long vencimiento) {
+        AtomicLong contador = contador(productoId);
+        if (contador == null) {
+            return false;
+        }
+        Clave clave = new Clave(usuarioId, productoId);
+        long[] anterior = new long[2];
+        boolean[] reservada = {true};
+
+        reservas.compute(clave, (k, actual) -> {
+            int previa = actual != null ? actual.cantidad : 0;
+            if (cantidad > previa && !tomar(contador, cantidad - previa)) {
+                reservada[0] = false;
+                return actual;
+            }
+            if (cantidad < previa) {
+                devolver(contador, previa - cantidad);
+            }
+            anterior[0] = previa;
+            anterior[1] = actual != null ? actual.vencimiento : 0L;
+
+            Reserva reserva = actual != null ? actual : new Reserva(k);
+            reserva.cantidad = cantidad;
+            programar(reserva, vencimiento);
+            return reserva;
+        });
+        if (!reservada[0]) {
+            return false;
+        }
+
+        alRevertir(() -> restablecer(clave, contador, (int) anterior[0], anterior[1]));
+        return true;
+    }
+
+    // Los productos creados sin evento (o antes del arranque) se cargan la primera vez que se piden
+    private AtomicLong contador(Long productoId) {
+        return contadores.computeIfAbsent(productoId, id -> {
+            Integer stock = productoRepository.findStockById(id);
+            return stock != null ? new AtomicLong(empaquetar(stock, 0)) : null;
+        });
+    }
+
+    // Debe llamarse dentro de reservas.compute para la clave de la reserva
+    private void soltar(Reserva reserva) {
+        rueda.get(ranura(reserva.vencimiento)).remove(reserva);
+        AtomicLong contador = contadores.get(reserva.clave.productoId());
+        if (contador != null) {
+            devolver(contador, reserva.cantidad);
+        }
+    }
+
+    // Debe llamarse dentro de reservas.compute para la clave de la reserva
+    private void programar(Reserva reserva, long vencimiento) {
+        if (reserva.vencimiento != 0L) {
+            rueda.get(ranura(reserva.vencimiento)).remove(reserva);
+        }
+        reserva.vencimiento = vencimiento;
+        rueda.get(ranura(vencimiento)).add(reserva);
+    }
+
+    // Deshace una reserva revertida: vuelve a la cantidad y vencimiento previos sin validar stock
+    private void restablecer(Clave clave, AtomicLong contador, int cantidad, long vencimiento) {
+        reservas.compute(clave, (k, actual) -> {
+            int presente = actual != null ? actual.cantidad : 0;
+            if (cantidad > presente) {
+                contador.addAndGet(cantidad - presente);
+            } else if (cantidad < presente) {
+                devolver(contador, presente - cantidad);
+            }
+            if (cantidad == 0) {
+                if (actual != null) {
+                    rueda.get(ranura(actual.vencimiento)).remove(actual);
+                }
+                return null;
+            }
+            Reserva reserva = actual != null ? actual : new Reserva(k);
+            reserva.cantidad = cantidad;
+            programar(reserva, vencimiento);
+            return reserva;
+        });
+    }
+
+    // Deshace una suma revertida sin tocar lo que otras transacciones hayan sumado mientras tanto
+    private void descontar(Clave clave, AtomicLong contador, int unidades) {
+        reservas.computeIfPresent(clave, (k, actual) -> {
+            devolver(contador, Math.min(unidades, actual.cantidad));
+            if (actual.cantidad <= unidades) {
+                rueda.get(ranura(actual.vencimiento)).remove(actual);
+                return null;
+            }
+            actual.cantidad -= unidades;
+            return actual;
+        });
+    }
+
+    private static boolean tomar(AtomicLong contador, int unidades) {
+        while (true) {
+            long estado = contador.get();
+            if (disponible(estado) < unidades) {
+                return false;
+            }
+            if (contador.compareAndSet(estado, empaquetar(stock(estado), reservado(estado) + unidades))) {
+                return true;
+            }
+        }
+    }
+
+    private static void devolver(AtomicLong contador, int unidades) {
+        contador.updateAndGet(estado -> empaquetar(stock(estado), Math.max(0, reservado(estado) - unidades)));
+    }
+
+    private static long empaquetar(int stock, int reservado) {
+        return ((long) Math.max(stock, 0) << 32) | (reservado & MASCARA_RESERVADO);
+    }
+
+    private static int stock(long estado) {
+        return (int) (estado >>> 32);
+    }
+
+    private static int reservado(long estado) {
+        return (int) (estado & MASCARA_RESERVADO);
+    }
+
+    private static int disponible(long estado) {
+        return Math.max(0, stock(estado) - reservado(estado));
+    }
+
+    private static int ranura(long tick) {
+        return (int) (tick % RANURAS);
+    }
+
+    private static long vencimientoNuevo() {
+        return tickActual() + DURACION.toMillis() / MS_POR_TICK;
+    }
+
+    private static long tickActual() {
+        return System.currentTimeMillis() / MS_POR_TICK;
+    }
+
+    private static long tickDe(LocalDateTime fecha) {
+        return fecha.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() / MS_POR_TICK;
+    }
+
+    private static LocalDateTime fechaDe(long tick) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(tick * MS_POR_TICK), ZoneId.systemDefault());
+    }
+
+    private static void alConfirmar(Runnable accion) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    accion.run();
+                }
+            });
+        } else {
+            accion.run();
+        }
+    }
+
+    private static void alRevertir(Runnable accion) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        accion.run();
+                    }
+                }
+            });
+        }
+    }
+}
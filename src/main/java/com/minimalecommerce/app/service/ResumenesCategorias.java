@@ -0,0 +1,183 @@
+package com.minimalecommerce.app.service;
+
+import com.minimalecommerce.app.dto.ResumenCategoria;
+import com.minimalecommerce.app.event.ProductoCambiadoEvent;
+import com.minimalecommerce.app.model.Categoria;
+import com.minimalecommerce.app.model.Producto;
+import com.minimalecommerce.app.repository.ProductoRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Resúmenes por categoría (conteos, precios mínimo/máximo/promedio y stock total) mantenidos en
+// memoria. Se calculan una vez al arrancar y luego cada evento de producto resta el aporte anterior
+// del producto y suma el nuevo, así que servirlos no consulta la tabla de productos.
+@Component
+public class ResumenesCategorias {
+
+    // Aporte de un producto activo a los totales de su categoría
+    private static final class Aporte {
+        final long categoriaId;
+        final long centavos;
+        final int stock;
+
+        Aporte(long categoriaId, long centavos, int stock) {
+            this.categoriaId = categoriaId;
+            this.centavos = centavos;
+            this.stock = stock;
+        }
+    }
+
+    private static final class Acumulado {
+        int activos;
+        int conStock;
+        long stockTotal;
+        long sumaCentavos;
+        // Conteo de productos por precio: el mínimo y el máximo siguen siendo exactos al quitar productos
+        final TreeMap<Long, Integer> precios = new TreeMap<>();
+
+        void sumar(Aporte aporte) {
+            activos++;
+            if (aporte.stock > 0) {
+                conStock++;
+            }
+            stockTotal += aporte.stock;
+            sumaCentavos += aporte.centavos;
+            precios.merge(aporte.centavos, 1, Integer::sum);
+        }
+
+        void restar(Aporte aporte) {
+            activos--;
+            if (aporte.stock > 0) {
+                conStock--;
+            }
+            stockTotal -= aporte.stock;
+            sumaCentavos -= aporte.centavos;
+            precios.computeIfPresent(aporte.centavos, (k, n) -> n > 1 ? n - 1 : null);
+        }
+    }
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private CategoriaService categoriaService;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<Long, Aporte> aportePorProducto = new HashMap<>();
+    private final Map<Long, Acumulado> porCategoria = new HashMap<>();
+
+    // ==================== CONSTRUCCIÓN Y ACTUALIZACIÓN ====================
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconstruir() {
+        List<Object[]> filas = productoRepository.findDatosResumenCategorias();
+
+        lock.writeLock().lock();
+        try {
+            aportePorProducto.clear();
+            porCategoria.clear();
+            for (Object[] fila : filas) {
+                agregar((Long) fila[0], aporte((Long) fila[1], (BigDecimal) fila[2], (Integer) fila[3]));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alCambiarProducto(ProductoCambiadoEvent evento) {
+        lock.writeLock().lock();
+        try {
+            if (evento.esDescuentoDeStock()) {
+                // Mismo aporte con menos stock; un producto inactivo no tiene aporte
+                Aporte anterior = aportePorProducto.get(evento.getProductoId());
+                if (anterior != null) {
+                    quitar(evento.getProductoId());
+                    agregar(evento.getProductoId(), new Aporte(anterior.categoriaId, anterior.centavos,
+                            Math.max(anterior.stock - evento.getUnidades(), 0)));
+                }
+                return;
+            }
+            quitar(evento.getProductoId());
+
+            Producto producto = evento.getProducto();
+            if (producto != null && Boolean.TRUE.equals(producto.getActivo())) {
+                Long categoriaId = producto.getCategoria() != null ? producto.getCategoria().getId() : null;
+                agregar(producto.getId(), aporte(categoriaId, producto.getPrecio(), producto.getStock()));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Debe llamarse con el lock de escritura tomado
+    private void quitar(Long productoId) {
+        Aporte anterior = aportePorProducto.remove(productoId);
+        if (anterior != null) {
+            Acumulado acumulado = porCategoria.get(anterior.categoriaId);
+            acumulado.restar(anterior);
+            if (acumulado.activos == 0) {
+                porCategoria.remove(anterior.categoriaId);
+            }
+        }
+    }
+
+    // Debe llamarse con el lock de escritura tomado
+    private void agregar(Long productoId, Aporte aporte) {
+        aportePorProducto.put(productoId, aporte);
+        porCategoria.computeIfAbsent(aporte.categoriaId, k -> new Acumulado()).sumar(aporte);
+    }
+
+    // Los productos sin categoría se acumulan bajo el id 0, que no se expone
+    private static Aporte aporte(Long categoriaId, BigDecimal precio, Integer stock) {
+        long centavos = precio != null && precio.signum() > 0
+                ? precio.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact()
+                : 0L;
+        return new Aporte(categoriaId != null ? categoriaId : 0L, centavos, stock != null ? Math.max(stock, 0) : 0);
+    }
+
+    // ==================== CONSULTA ====================
+
+    // Un resumen por cada categoría existente; las que no tienen productos activos salen en cero
+    public List<ResumenCategoria> obtenerResumenes() {
+        List<Categoria> categorias = categoriaService.obtenerTodasCategorias();
+        List<ResumenCategoria> resumenes = new ArrayList<>(categorias.size());
+
+        lock.readLock().lock();
+        try {
+            for (Categoria categoria : categorias) {
+                resumenes.add(resumen(categoria, porCategoria.get(categoria.getId())));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return resumenes;
+    }
+
+    private static ResumenCategoria resumen(Categoria categoria, Acumulado acumulado) {
+        if (acumulado == null || acumulado.activos == 0) {
+            return new ResumenCategoria(categoria.getId(), categoria.getNombre(), 0, 0, null, null, null, 0L);
+        }
+        BigDecimal promedio = BigDecimal.valueOf(acumulado.sumaCentavos)
+                .divide(BigDecimal.valueOf(acumulado.activos), 0, RoundingMode.HALF_UP)
+                .movePointLeft(2);
+        return new ResumenCategoria(
+                categoria.getId(),
+                categoria.getNombre(),
+                acumulado.activos,
+                acumulado.conStock,
+                BigDecimal.valueOf(acumulado.precios.firstKey(), 2),
+                BigDecimal.valueOf(acumulado.precios.lastKey(), 2),
+                promedio,
+                acumulado.stockTotal);
+    }
+}
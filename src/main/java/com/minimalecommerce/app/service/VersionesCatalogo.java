@@ -0,0 +1,111 @@
+package com.minimalecommerce.app.service;
+
+import com.minimalecommerce.app.event.ProductoCambiadoEvent;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.WebRequest;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// Versiones monótonas de las colecciones que los clientes consultan a menudo (catálogo, categorías,
+// cupones válidos). Cada mutación incrementa la versión después del commit y los GET responden con
+// un ETag fuerte derivado de ella; si coincide con If-None-Match se devuelve 304 sin consultar la base.
+@Component
+public class VersionesCatalogo {
+
+    // Distingue versiones de distintos arranques del servidor, que reinician los contadores
+    private static final String ARRANQUE = Long.toString(System.currentTimeMillis(), 36);
+
+    private final AtomicLong catalogo = new AtomicLong();
+    private final AtomicLong categorias = new AtomicLong();
+    private final AtomicLong cupones = new AtomicLong();
+    private final Map<Long, AtomicLong> porCategoria = new ConcurrentHashMap<>();
+
+    // ==================== INCREMENTOS ====================
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alCambiarProducto(ProductoCambiadoEvent evento) {
+        catalogo.incrementAndGet();
+        if (evento.getCategoriaAnteriorId() != null) {
+            versionCategoria(evento.getCategoriaAnteriorId()).incrementAndGet();
+        }
+        if (evento.getProducto() != null && evento.getProducto().getCategoria() != null) {
+            versionCategoria(evento.getProducto().getCategoria().getId()).incrementAndGet();
+        }
+    }
+
+    // Un cambio en una categoría altera también los listados de productos (nombre de la categoría)
+    public void categoriaCambiada(Long categoriaId) {
+        despuesDeConfirmar(() -> {
+            categorias.incrementAndGet();
+            catalogo.incrementAndGet();
+            if (categoriaId != null) {
+                versionCategoria(categoriaId).incrementAndGet();
+            }
+        });
+    }
+
+    public void cuponesCambiados() {
+        despuesDeConfirmar(cupones::incrementAndGet);
+    }
+
+    // Dentro de una transacción el incremento espera al commit: si se hiciera antes, un cliente
+    // podría leer datos viejos con el ETag nuevo y no volver a pedirlos
+    private static void despuesDeConfirmar(Runnable accion) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    accion.run();
+                }
+            });
+        } else {
+            accion.run();
+        }
+    }
+
+    private AtomicLong versionCategoria(Long categoriaId) {
+        return porCategoria.computeIfAbsent(categoriaId, id -> new AtomicLong());
+    }
+
+    // ==================== ETAGS ====================
+
+    public String etagCatalogo() {
+        return etag("p", catalogo.get());
+    }
+
+    public String etagCategoria(Long categoriaId) {
+        return etag("p" + categoriaId, versionCategoria(categoriaId).get());
+    }
+
+    public String etagCategorias() {
+        return etag("c", categorias.get());
+    }
+
+    // La validez de un cupón también depende de la hora (inicio y vencimiento), así que el ETag
+    // incluye el minuto actual: como mucho se sirve un minuto de respuesta cacheada
+    public String etagCuponesValidos() {
+        return etag("v" + Instant.now().getEpochSecond() / 60, cupones.get());
+    }
+
+    private static String etag(String coleccion, long version) {
+        return "\"" + coleccion + "-" + ARRANQUE + "-" + version + "\"";
+    }
+
+    // Responde 304 si el cliente ya tiene la versión; si no, genera el cuerpo. checkNotModified
+    // ya agrega la cabecera ETag a la respuesta en ambos casos
+    public static <T> ResponseEntity<T> condicional(WebRequest request, String etag, Supplier<T> cuerpo) {
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+        }
+        return ResponseEntity.ok(cuerpo.get());
+    }
+}
@@ -0,0 +1,92 @@
+package com.minimalecommerce.app.model;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Total de un carrito con cupón de porcentaje: BigDecimal por línea (como se calculaba antes)
+// contra centavos en long. No es una prueba de mvn test; se ejecuta con main() desde el IDE o con
+//   java -cp "target/test-classes:target/classes:<classpath de test>" com.minimalecommerce.app.model.DineroBenchmark
+// El perfilador de GC agrega gc.alloc.rate.norm, los bytes asignados por operación.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DineroBenchmark {
+
+    @Param({"10", "1000", "10000"})
+    private int lineas;
+
+    private List<Carritoitem> items;
+    private long[] preciosCentavos;
+    private int[] cantidades;
+    private Cupon cupon;
+
+    @Setup
+    public void preparar() {
+        Random random = new Random(42);
+        items = new ArrayList<>(lineas);
+        preciosCentavos = new long[lineas];
+        cantidades = new int[lineas];
+        for (int i = 0; i < lineas; i++) {
+            Carritoitem item = new Carritoitem();
+            item.setPreciounitario(BigDecimal.valueOf(100 + random.nextInt(500_000), 2));
+            item.setCantidad(1 + random.nextInt(5));
+            items.add(item);
+            preciosCentavos[i] = Dinero.centavos(item.getPreciounitario());
+            cantidades[i] = item.getCantidad();
+        }
+        cupon = new Cupon("BENCH", TipoCupon.PORCENTAJE, new BigDecimal("15.50"), "benchmark",
+                LocalDateTime.now().minusDays(1), LocalDateTime.now().plusDays(1), Integer.MAX_VALUE, null);
+    }
+
+    // Cálculo anterior: un BigDecimal por subtotal y por suma parcial, y divide() para el porcentaje
+    @Benchmark
+    public BigDecimal totalBigDecimal() {
+        BigDecimal total = items.stream()
+                .map(item -> item.getPreciounitario().multiply(BigDecimal.valueOf(item.getCantidad())))
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        BigDecimal descuento = total.multiply(cupon.getValor().divide(BigDecimal.valueOf(100)));
+        return total.subtract(descuento);
+    }
+
+    // Cálculo actual del checkout: cada precio se convierte a centavos al leerlo y el resto es long
+    @Benchmark
+    public BigDecimal totalCentavos() {
+        long total = 0L;
+        for (Carritoitem item : items) {
+            total = Dinero.sumar(total, item.getSubtotalCentavos());
+        }
+        return Dinero.aBigDecimal(Dinero.restar(total, cupon.calcularDescuento(total)));
+    }
+
+    // Precios ya en centavos (convertidos una vez al cargar): solo queda aritmética de long
+    @Benchmark
+    public BigDecimal totalCentavosPreconvertidos() {
+        long total = 0L;
+        for (int i = 0; i < preciosCentavos.length; i++) {
+            total = Dinero.sumar(total, Dinero.multiplicar(preciosCentavos[i], cantidades[i]));
+        }
+        return Dinero.aBigDecimal(Dinero.restar(total, cupon.calcularDescuento(total)));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opciones = new OptionsBuilder()
+                .include(DineroBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(opciones).run();
+    }
+}
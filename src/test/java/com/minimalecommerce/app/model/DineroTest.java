@@ -0,0 +1,56 @@
+package com.minimalecommerce.app.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DineroTest {
+
+    @Test
+    void convierteEntreBigDecimalYCentavos() {
+        assertEquals(1999L, Dinero.centavos(new BigDecimal("19.99")));
+        assertEquals(1000L, Dinero.centavos(new BigDecimal("10")));
+        assertEquals(1001L, Dinero.centavos(new BigDecimal("10.005")));
+        assertEquals(-1001L, Dinero.centavos(new BigDecimal("-10.005")));
+        assertEquals(1550L, Dinero.centavos(new BigDecimal("15.5")));
+        assertEquals(100_000L, Dinero.centavos(new BigDecimal("1E+3")));
+        assertEquals(0L, Dinero.centavos(null));
+        assertEquals(new BigDecimal("19.99"), Dinero.aBigDecimal(1999L));
+    }
+
+    @Test
+    void porcentajeRedondeaHalfUpAlCentavo() {
+        // 15,50 % de 19,99 = 3,09845
+        assertEquals(310L, Dinero.porcentaje(1999L, 1550L));
+        // 10 % de 0,05 = 0,005
+        assertEquals(1L, Dinero.porcentaje(5L, 1000L));
+        assertEquals(-1L, Dinero.porcentaje(-5L, 1000L));
+    }
+
+    @Test
+    void desbordeLanzaExcepcion() {
+        assertThrows(ArithmeticException.class, () -> Dinero.multiplicar(Long.MAX_VALUE / 2, 3));
+        assertThrows(ArithmeticException.class, () -> Dinero.sumar(Long.MAX_VALUE, 1L));
+        assertThrows(ArithmeticException.class, () -> Dinero.centavos(BigDecimal.valueOf(Long.MAX_VALUE)));
+    }
+
+    @Test
+    void descuentoDeCuponEnCentavosCoincideConElDeBigDecimal() {
+        Cupon porcentaje = cupon(TipoCupon.PORCENTAJE, "15.50");
+        assertEquals(new BigDecimal("3.10"), porcentaje.calcularDescuento(new BigDecimal("19.99")));
+        assertEquals(310L, porcentaje.calcularDescuento(1999L));
+
+        Cupon fijo = cupon(TipoCupon.MONTO_FIJO, "25.00");
+        assertEquals(new BigDecimal("19.99"), fijo.calcularDescuento(new BigDecimal("19.99")));
+        assertEquals(2500L, fijo.calcularDescuento(10000L));
+    }
+
+    private static Cupon cupon(TipoCupon tipo, String valor) {
+        return new Cupon("PRUEBA", tipo, new BigDecimal(valor), "prueba",
+                LocalDateTime.now().minusDays(1), LocalDateTime.now().plusDays(1), 10, null);
+    }
+}
@@ -0,0 +1,140 @@
+package com.minimalecommerce.app.service;
+
+import com.minimalecommerce.app.dto.ResultadoTransicionPedido;
+import com.minimalecommerce.app.model.EstadoPedido;
+import com.minimalecommerce.app.model.Pedido;
+import com.minimalecommerce.app.model.TipoUsuario;
+import com.minimalecommerce.app.model.Usuario;
+import com.minimalecommerce.app.repository.PedidoRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// Máquina de estados del pedido: transiciones validadas, versión optimista y cambio masivo
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+class CambioEstadoPedidoTest {
+
+    @Autowired
+    private PedidoService pedidoService;
+
+    @Autowired
+    private PedidoRepository pedidoRepository;
+
+    @Autowired
+    private DatosPrueba datos;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void loteActualizaSoloTransicionesPermitidasYReportaCadaId() {
+        Usuario comprador = datos.crearUsuario("estados-lote", TipoUsuario.COMPRADOR);
+        Usuario otroComprador = datos.crearUsuario("estados-lote-otro", TipoUsuario.COMPRADOR);
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            ids.add(datos.crearPedido(i % 2 == 0 ? comprador : otroComprador, EstadoPedido.PENDIENTE).getId());
+        }
+        for (int i = 0; i < 3; i++) {
+            ids.add(datos.crearPedido(comprador, EstadoPedido.CONFIRMADO).getId());
+        }
+        Long entregado = datos.crearPedido(comprador, EstadoPedido.ENTREGADO).getId();
+        Long cancelado = datos.crearPedido(comprador, EstadoPedido.CANCELADO).getId();
+        ids.add(entregado);
+        ids.add(cancelado);
+        ids.add(-1L);
+
+        Statistics estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        estadisticas.clear();
+        Map<String, Object> respuesta = pedidoService.cambiarEstadoLote(ids, EstadoPedido.ENVIADO);
+
+        // Lectura de estados, contadores, pedidos e índice de vendedores: no depende de cuántos
+        // pedidos, compradores o estados de origen haya en el lote
+        assertEquals(4, estadisticas.getPrepareStatementCount());
+
+        assertEquals(8, respuesta.get("actualizados"));
+        assertEquals(2L, respuesta.get("invalidos"));
+        assertEquals(1L, respuesta.get("noEncontrados"));
+        List<ResultadoTransicionPedido> resultados = (List<ResultadoTransicionPedido>) respuesta.get("resultados");
+        assertEquals(ids.size(), resultados.size());
+        assertEquals(ResultadoTransicionPedido.TRANSICION_INVALIDA, resultados.get(8).getResultado());
+        assertEquals(EstadoPedido.ENTREGADO, resultados.get(8).getEstadoAnterior());
+        assertEquals(ResultadoTransicionPedido.NO_ENCONTRADO, resultados.get(10).getResultado());
+
+        for (Long id : ids.subList(0, 8)) {
+            Pedido pedido = pedidoRepository.findById(id).orElseThrow();
+            assertEquals(EstadoPedido.ENVIADO, pedido.getEstado());
+            assertEquals(1L, pedido.getVersion());
+        }
+        assertEquals(EstadoPedido.ENTREGADO, pedidoRepository.findById(entregado).orElseThrow().getEstado());
+
+        Map<String, Object> contadores = pedidoService.obtenerEstadisticasPorUsuario(comprador.getId());
+        assertEquals(6L, contadores.get("enviados"));
+        assertEquals(0L, contadores.get("pendientes"));
+        assertEquals(0L, contadores.get("confirmados"));
+        assertEquals(1L, contadores.get("entregados"));
+        assertEquals(1L, contadores.get("cancelados"));
+        Map<String, Object> contadoresOtro = pedidoService.obtenerEstadisticasPorUsuario(otroComprador.getId());
+        assertEquals(2L, contadoresOtro.get("enviados"));
+        assertEquals(0L, contadoresOtro.get("pendientes"));
+    }
+
+    @Test
+    void actualizarSinDireccionLaConserva() {
+        Usuario comprador = datos.crearUsuario("estados-direccion", TipoUsuario.COMPRADOR);
+        Pedido pedido = datos.crearPedido(comprador, EstadoPedido.PENDIENTE);
+
+        Pedido cambios = new Pedido();
+        cambios.setEstado(EstadoPedido.CONFIRMADO);
+        cambios.setDireccionentrega(null);
+        pedidoService.actualizarPedido(pedido.getId(), cambios);
+
+        Pedido guardado = pedidoRepository.findById(pedido.getId()).orElseThrow();
+        assertEquals("Calle 1", guardado.getDireccionentrega());
+        assertEquals(EstadoPedido.CONFIRMADO, guardado.getEstado());
+    }
+
+    @Test
+    void versionViejaNoPisaElCambioDeOtro() {
+        Usuario comprador = datos.crearUsuario("estados-version", TipoUsuario.COMPRADOR);
+        Pedido leido = datos.crearPedido(comprador, EstadoPedido.PENDIENTE);
+        Long version = leido.getVersion();
+
+        // El vendedor confirma; el comprador, con la versión que leyó antes, intenta cancelar
+        pedidoService.actualizarEstadoPedido(leido.getId(), EstadoPedido.CONFIRMADO, version);
+        assertThrows(ObjectOptimisticLockingFailureException.class,
+                () -> pedidoService.actualizarEstadoPedido(leido.getId(), EstadoPedido.CANCELADO, version));
+
+        // Lo mismo con una entidad desactualizada guardada directamente
+        leido.setEstado(EstadoPedido.CANCELADO);
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> pedidoRepository.save(leido));
+
+        assertEquals(EstadoPedido.CONFIRMADO, pedidoRepository.findById(leido.getId()).orElseThrow().getEstado());
+        Map<String, Object> estadisticas = pedidoService.obtenerEstadisticasPorUsuario(comprador.getId());
+        assertEquals(1L, estadisticas.get("confirmados"));
+        assertEquals(0L, estadisticas.get("cancelados"));
+    }
+
+    @Test
+    void transicionNoPermitidaSeRechaza() {
+        Usuario comprador = datos.crearUsuario("estados-transicion", TipoUsuario.COMPRADOR);
+        Long id = datos.crearPedido(comprador, EstadoPedido.ENTREGADO).getId();
+
+        assertThrows(RuntimeException.class, () -> pedidoService.actualizarEstadoPedido(id, EstadoPedido.PENDIENTE));
+        assertThrows(RuntimeException.class, () -> pedidoService.cancelarPedido(id, "tarde"));
+        assertEquals(EstadoPedido.ENTREGADO, pedidoRepository.findById(id).orElseThrow().getEstado());
+    }
+}
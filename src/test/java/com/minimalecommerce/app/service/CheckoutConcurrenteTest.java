@@ -0,0 +1,157 @@
+package com.minimalecommerce.app.service;
+
+import com.minimalecommerce.app.model.Carritoitem;
+import com.minimalecommerce.app.model.Cupon;
+import com.minimalecommerce.app.model.Pedido;
+import com.minimalecommerce.app.model.Producto;
+import com.minimalecommerce.app.model.TipoCupon;
+import com.minimalecommerce.app.model.TipoUsuario;
+import com.minimalecommerce.app.model.Usuario;
+import com.minimalecommerce.app.repository.CarritoitemRepository;
+import com.minimalecommerce.app.repository.CuponRepository;
+import com.minimalecommerce.app.repository.PedidoitemRepository;
+import com.minimalecommerce.app.repository.ProductoRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Muchos compradores confirman a la vez un carrito con el mismo producto: el stock nunca puede
+// quedar negativo ni venderse más unidades de las que había
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+class CheckoutConcurrenteTest {
+
+    private static final int COMPRADORES = 256;
+    private static final int HILOS = 64;
+    private static final int STOCK_INICIAL = 100;
+
+    @Autowired
+    private CarritoitemService carritoitemService;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private CarritoitemRepository carritoitemRepository;
+
+    @Autowired
+    private PedidoitemRepository pedidoitemRepository;
+
+    @Autowired
+    private CuponRepository cuponRepository;
+
+    @Autowired
+    private ReservasStock reservasStock;
+
+    @Autowired
+    private DatosPrueba datos;
+
+    @Test
+    void compradoresConcurrentesNoSobrevendenElMismoProducto() throws Exception {
+        Producto producto = datos.crearProducto("concurrencia", STOCK_INICIAL);
+        List<Long> compradores = new ArrayList<>();
+        for (int i = 0; i < COMPRADORES; i++) {
+            Usuario comprador = datos.crearUsuario("comprador" + i, TipoUsuario.COMPRADOR);
+            carritoitemRepository.save(new Carritoitem(comprador, producto, 1));
+            compradores.add(comprador.getId());
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(HILOS);
+        CountDownLatch salida = new CountDownLatch(1);
+        AtomicInteger exitosos = new AtomicInteger();
+        AtomicInteger rechazados = new AtomicInteger();
+        List<Future<?>> tareas = new ArrayList<>();
+
+        for (Long compradorId : compradores) {
+            tareas.add(executor.submit(() -> {
+                salida.await();
+                try {
+                    carritoitemService.procesarPedido(compradorId, "Calle 1", null);
+                    exitosos.incrementAndGet();
+                } catch (RuntimeException e) {
+                    rechazados.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+
+        salida.countDown();
+        for (Future<?> tarea : tareas) {
+            tarea.get(2, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        Producto actualizado = productoRepository.findById(producto.getId()).orElseThrow();
+        int vendidas = pedidoitemRepository.findAll().stream()
+                .filter(item -> item.getProducto().getId().equals(producto.getId()))
+                .mapToInt(item -> item.getCantidad())
+                .sum();
+
+        assertEquals(STOCK_INICIAL, exitosos.get());
+        assertEquals(COMPRADORES - STOCK_INICIAL, rechazados.get());
+        assertEquals(0, actualizado.getStock());
+        assertEquals(STOCK_INICIAL, vendidas);
+        // El stock publicado por cada checkout llega a los contadores en memoria
+        assertEquals(0, reservasStock.disponibilidad(producto.getId()).get("stock"));
+    }
+
+    @Test
+    void cuponConcurrenteNoPasaDeSusUsosYDescuentaElTotal() throws Exception {
+        Producto producto = datos.crearProducto("cupon-concurrente", STOCK_INICIAL);
+        Cupon cupon = cuponRepository.save(new Cupon("CONCURRENTE5", TipoCupon.MONTO_FIJO, new BigDecimal("5.00"),
+                "Prueba", LocalDateTime.now().minusDays(1), LocalDateTime.now().plusDays(1), 3, null));
+        List<Long> compradores = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Usuario comprador = datos.crearUsuario("comprador-cupon" + i, TipoUsuario.COMPRADOR);
+            carritoitemRepository.save(new Carritoitem(comprador, producto, 1));
+            compradores.add(comprador.getId());
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(compradores.size());
+        CountDownLatch salida = new CountDownLatch(1);
+        ConcurrentLinkedQueue<BigDecimal> totales = new ConcurrentLinkedQueue<>();
+        List<Future<?>> tareas = new ArrayList<>();
+
+        for (Long compradorId : compradores) {
+            tareas.add(executor.submit(() -> {
+                salida.await();
+                try {
+                    Map<String, Object> resultado = carritoitemService.procesarPedido(compradorId, "Calle 1", cupon.getId());
+                    totales.add(((Pedido) resultado.get("pedido")).getTotal());
+                } catch (RuntimeException e) {
+                    // Cupón agotado: el pedido entero se revierte
+                }
+                return null;
+            }));
+        }
+
+        salida.countDown();
+        for (Future<?> tarea : tareas) {
+            tarea.get(2, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        assertEquals(3, totales.size());
+        for (BigDecimal total : totales) {
+            assertEquals(0, new BigDecimal("14.99").compareTo(total));
+        }
+        assertEquals(3, cuponRepository.findById(cupon.getId()).orElseThrow().getUsosactuales());
+        assertEquals(STOCK_INICIAL - 3, productoRepository.findById(producto.getId()).orElseThrow().getStock());
+    }
+}
@@ -0,0 +1,87 @@
+package com.minimalecommerce.app.service;
+
+import com.minimalecommerce.app.model.EstadoPedido;
+import com.minimalecommerce.app.model.Pedido;
+import com.minimalecommerce.app.model.Producto;
+import com.minimalecommerce.app.model.Resena;
+import com.minimalecommerce.app.model.TipoUsuario;
+import com.minimalecommerce.app.model.Usuario;
+import com.minimalecommerce.app.repository.ResenaRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Los "N más recientes" leen N filas de la base, no el historial completo recortado en memoria
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+class ConsultasRecientesTest {
+
+    private static final int FILAS = 30;
+    private static final int LIMITE = 5;
+
+    @Autowired
+    private PedidoService pedidoService;
+
+    @Autowired
+    private ResenaService resenaService;
+
+    @Autowired
+    private ResenaRepository resenaRepository;
+
+    @Autowired
+    private DatosPrueba datos;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void pedidosRecientesLeenSoloLimiteFilas() {
+        Usuario comprador = datos.crearUsuario("recientes-comprador", TipoUsuario.COMPRADOR);
+        for (int i = 0; i < FILAS; i++) {
+            datos.crearPedido(comprador, EstadoPedido.PENDIENTE);
+        }
+
+        Statistics estadisticas = estadisticas();
+        List<Pedido> recientes = pedidoService.obtenerPedidosRecientesPorUsuario(comprador.getId(), LIMITE);
+
+        assertEquals(LIMITE, recientes.size());
+        assertEquals(LIMITE, estadisticas.getEntityStatistics(Pedido.class.getName()).getLoadCount());
+        for (int i = 1; i < recientes.size(); i++) {
+            assertTrue(recientes.get(i).getId() < recientes.get(i - 1).getId(), "del más nuevo al más antiguo");
+        }
+    }
+
+    @Test
+    void resenasRecientesRespetanElLimite() {
+        Producto producto = datos.crearProducto("recientes", 10);
+
+        for (int i = 0; i < FILAS; i++) {
+            Resena resena = new Resena();
+            resena.setUsuario(datos.crearUsuario("recientes-autor-" + i, TipoUsuario.COMPRADOR));
+            resena.setProducto(producto);
+            resena.setCalificacion(1 + i % 5);
+            resenaRepository.save(resena);
+        }
+
+        Statistics estadisticas = estadisticas();
+        List<Resena> recientes = resenaService.obtenerResenasRecientesPorProducto(producto.getId(), LIMITE);
+
+        assertEquals(LIMITE, recientes.size());
+        assertEquals(LIMITE, estadisticas.getEntityStatistics(Resena.class.getName()).getLoadCount());
+    }
+
+    private Statistics estadisticas() {
+        Statistics estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        estadisticas.clear();
+        return estadisticas;
+    }
+}
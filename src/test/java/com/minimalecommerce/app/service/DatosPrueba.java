@@ -0,0 +1,102 @@
+package com.minimalecommerce.app.service;
+
+import com.minimalecommerce.app.model.Categoria;
+import com.minimalecommerce.app.model.EstadoPedido;
+import com.minimalecommerce.app.model.Pedido;
+import com.minimalecommerce.app.model.Pedidoitem;
+import com.minimalecommerce.app.model.Producto;
+import com.minimalecommerce.app.model.TipoUsuario;
+import com.minimalecommerce.app.model.Usuario;
+import com.minimalecommerce.app.repository.CategoriaRepository;
+import com.minimalecommerce.app.repository.PedidoitemRepository;
+import com.minimalecommerce.app.repository.ProductoRepository;
+import com.minimalecommerce.app.repository.UsuarioRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+// Datos comunes de las pruebas de servicios. Todas comparten el contexto y la base, así que los
+// nombres que reciben (y los emails que se derivan de ellos) deben ser únicos en toda la suite.
+@Component
+public class DatosPrueba {
+
+    public static final BigDecimal PRECIO = new BigDecimal("19.99");
+
+    @Autowired
+    private PedidoService pedidoService;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private CategoriaRepository categoriaRepository;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private PedidoitemRepository pedidoitemRepository;
+
+    public Usuario crearUsuario(String nombre, TipoUsuario tipo) {
+        Usuario usuario = new Usuario();
+        usuario.setNombre(nombre);
+        usuario.setEmail(nombre + "@prueba.com");
+        usuario.setPassword("secreto");
+        usuario.setTipousuario(tipo);
+        return usuarioRepository.save(usuario);
+    }
+
+    // Productos a PRECIO en una categoría "nombre" nueva, publicados por el vendedor "nombre-vendedor"
+    public List<Producto> crearProductos(String nombre, int cantidad, int stock) {
+        Categoria categoria = new Categoria();
+        categoria.setNombre(nombre);
+        categoria = categoriaRepository.save(categoria);
+        Usuario vendedor = crearUsuario(nombre + "-vendedor", TipoUsuario.VENDEDOR);
+
+        List<Producto> productos = new ArrayList<>();
+        for (int i = 0; i < cantidad; i++) {
+            Producto producto = new Producto();
+            producto.setNombre("Producto " + nombre + " " + i);
+            producto.setPrecio(PRECIO);
+            producto.setStock(stock);
+            producto.setCategoria(categoria);
+            producto.setVendedor(vendedor);
+            productos.add(productoRepository.save(producto));
+        }
+        return productos;
+    }
+
+    public Producto crearProducto(String nombre, int stock) {
+        return crearProductos(nombre, 1, stock).get(0);
+    }
+
+    // Pedido sin líneas, creado por el servicio para que mantenga los contadores del comprador
+    public Pedido crearPedido(Usuario comprador, EstadoPedido estado) {
+        Pedido pedido = new Pedido();
+        pedido.setUsuario(comprador);
+        pedido.setTotal(new BigDecimal("10.00"));
+        pedido.setEstado(estado);
+        pedido.setDireccionentrega("Calle 1");
+        return pedidoService.crearPedido(pedido);
+    }
+
+    // Pedido pendiente con una unidad de cada producto
+    public Pedido crearPedido(Usuario comprador, List<Producto> productos) {
+        Pedido pedido = crearPedido(comprador, EstadoPedido.PENDIENTE);
+
+        List<Pedidoitem> items = new ArrayList<>();
+        for (Producto producto : productos) {
+            Pedidoitem item = new Pedidoitem();
+            item.setPedido(pedido);
+            item.setProducto(producto);
+            item.setCantidad(1);
+            item.setPreciounitario(producto.getPrecio());
+            items.add(item);
+        }
+        pedidoitemRepository.insertarLineas(items);
+        return pedido;
+    }
+}
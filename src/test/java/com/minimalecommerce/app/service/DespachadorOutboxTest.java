@@ -0,0 +1,128 @@
+package com.minimalecommerce.app.service;
+
+import com.minimalecommerce.app.model.Eventooutbox;
+import com.minimalecommerce.app.repository.EventooutboxRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Un agregado en espera de reintento con más pendientes que un lote no retrasa a los demás agregados,
+// y los eventos de cada agregado se numeran en el orden en que se confirman
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+class DespachadorOutboxTest {
+
+    // Más que el lote del despachador (200)
+    private static final int PENDIENTES_BLOQUEADOS = 250;
+
+    // Tipo que EfectosPedidoService no conoce: si se intenta aplicar, falla y suma un intento
+    private static final String TIPO_PRUEBA = "PRUEBA_DESPACHO";
+
+    @Autowired
+    private DespachadorOutbox despachadorOutbox;
+
+    @Autowired
+    private EventooutboxRepository eventooutboxRepository;
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final List<Eventooutbox> creados = new ArrayList<>();
+
+    @AfterEach
+    void limpiar() {
+        eventooutboxRepository.deleteAll(creados);
+    }
+
+    // El ciclo programado está apagado en las pruebas: lo que dejaron pendiente otras clases (el
+    // checkout, por ejemplo) se despacha antes para que no ocupe el primer lote
+    @BeforeEach
+    void despacharPendientes() {
+        while (!eventooutboxRepository.findListos(Eventooutbox.Estado.PENDIENTE, LocalDateTime.now(),
+                PageRequest.of(0, 1)).isEmpty()) {
+            despachadorOutbox.despachar();
+        }
+    }
+
+    @Test
+    void agregadoEnEsperaNoBloqueaAOtros() {
+        String bloqueado = "prueba-bloqueado:" + System.nanoTime();
+        String libre = "prueba-libre:" + System.nanoTime();
+
+        // El primero del agregado bloqueado espera su reintento; los siguientes ya estarían listos
+        // por su propia fecha, pero tienen que esperar detrás de él
+        crear(bloqueado, LocalDateTime.now().plusDays(1));
+        for (int i = 0; i < PENDIENTES_BLOQUEADOS; i++) {
+            crear(bloqueado, null);
+        }
+        Eventooutbox evento = crear(libre, null);
+
+        despachadorOutbox.despachar();
+
+        assertTrue(eventooutboxRepository.findById(evento.getId()).orElseThrow().getIntentos() >= 1,
+                "el agregado libre se despacha en el primer lote");
+        for (Eventooutbox creado : creados.subList(0, PENDIENTES_BLOQUEADOS + 1)) {
+            assertEquals(0, eventooutboxRepository.findById(creado.getId()).orElseThrow().getIntentos());
+        }
+    }
+
+    @Test
+    void cadaAgregadoNumeraSusEventosEnOrdenDeConfirmacion() {
+        String agregado = "prueba-secuencia:" + System.nanoTime();
+        String otro = "prueba-secuencia-otro:" + System.nanoTime();
+        transactionTemplate.executeWithoutResult(status -> {
+            outboxService.registrar(TIPO_PRUEBA, agregado, Map.of("orden", 1));
+            outboxService.registrar(TIPO_PRUEBA, otro, Map.of("orden", 1));
+            outboxService.registrar(TIPO_PRUEBA, agregado, Map.of("orden", 2));
+        });
+        transactionTemplate.executeWithoutResult(status -> outboxService.registrar(TIPO_PRUEBA, agregado, Map.of("orden", 3)));
+        // Revertida: no escribe el evento ni consume número
+        transactionTemplate.executeWithoutResult(status -> {
+            outboxService.registrar(TIPO_PRUEBA, agregado, Map.of("orden", 0));
+            status.setRollbackOnly();
+        });
+
+        List<Eventooutbox> eventos = eventooutboxRepository.findAll().stream()
+                .filter(e -> e.getAgregado().equals(agregado) || e.getAgregado().equals(otro))
+                .toList();
+        creados.addAll(eventos);
+
+        assertEquals(List.of(1L, 2L, 3L), eventos.stream().filter(e -> e.getAgregado().equals(agregado))
+                .map(Eventooutbox::getSecuencia).sorted().toList());
+        assertEquals(List.of(1L), eventos.stream().filter(e -> e.getAgregado().equals(otro))
+                .map(Eventooutbox::getSecuencia).toList());
+        for (Eventooutbox evento : eventos) {
+            if (evento.getAgregado().equals(agregado)) {
+                assertEquals("{\"orden\":" + evento.getSecuencia() + "}", evento.getPayload());
+            }
+        }
+    }
+
+    private Eventooutbox crear(String agregado, LocalDateTime proximointento) {
+        Eventooutbox evento = new Eventooutbox();
+        evento.setTipo(TIPO_PRUEBA);
+        evento.setAgregado(agregado);
+        evento.setSecuencia((long) creados.size() + 1);
+        evento.setPayload("{}");
+        evento.setProximointento(proximointento);
+        evento = eventooutboxRepository.save(evento);
+        creados.add(evento);
+        return evento;
+    }
+}
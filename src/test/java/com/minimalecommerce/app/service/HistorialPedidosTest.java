@@ -0,0 +1,86 @@
+package com.minimalecommerce.app.service;
+
+import com.minimalecommerce.app.dto.PaginaCursor;
+import com.minimalecommerce.app.dto.PedidoHistorial;
+import com.minimalecommerce.app.model.Producto;
+import com.minimalecommerce.app.model.TipoUsuario;
+import com.minimalecommerce.app.model.Usuario;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// El historial de un comprador con muchos pedidos se lee con dos sentencias por página
+// (pedidos y líneas), no con una consulta por pedido
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+class HistorialPedidosTest {
+
+    private static final int PEDIDOS = 45;
+    private static final int LINEAS_POR_PEDIDO = 3;
+    private static final int LIMITE = 20;
+
+    @Autowired
+    private PedidoService pedidoService;
+
+    @Autowired
+    private DatosPrueba datos;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void cadaPaginaDelHistorialUsaDosSentencias() {
+        Usuario comprador = datos.crearUsuario("historial-comprador", TipoUsuario.COMPRADOR);
+        List<Producto> productos = datos.crearProductos("historial", LINEAS_POR_PEDIDO, 10);
+        for (int i = 0; i < PEDIDOS; i++) {
+            datos.crearPedido(comprador, productos);
+        }
+
+        Statistics estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        List<Long> vistos = new ArrayList<>();
+        String cursor = null;
+        int paginas = 0;
+        do {
+            estadisticas.clear();
+            PaginaCursor<PedidoHistorial> pagina = pedidoService.obtenerHistorialPorUsuario(comprador.getId(), cursor, LIMITE);
+            assertEquals(2, estadisticas.getPrepareStatementCount(), "sentencias en la página " + paginas);
+
+            for (PedidoHistorial pedido : pagina.getItems()) {
+                assertEquals(LINEAS_POR_PEDIDO, pedido.getCantidadItems());
+                assertTrue(vistos.isEmpty() || pedido.getId() < vistos.get(vistos.size() - 1), "orden descendente");
+                vistos.add(pedido.getId());
+            }
+            cursor = pagina.getSiguienteCursor();
+            paginas++;
+        } while (cursor != null);
+
+        assertEquals(PEDIDOS, vistos.size());
+        assertEquals((PEDIDOS + LIMITE - 1) / LIMITE, paginas);
+    }
+
+    @Test
+    void compradorSinPedidosUsaUnaSentencia() {
+        Usuario comprador = datos.crearUsuario("historial-vacio", TipoUsuario.COMPRADOR);
+
+        Statistics estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        estadisticas.clear();
+        PaginaCursor<PedidoHistorial> pagina = pedidoService.obtenerHistorialPorUsuario(comprador.getId(), null, null);
+
+        assertEquals(1, estadisticas.getPrepareStatementCount());
+        assertTrue(pagina.getItems().isEmpty());
+        assertFalse(pagina.isHayMas());
+        assertNull(pagina.getSiguienteCursor());
+    }
+}
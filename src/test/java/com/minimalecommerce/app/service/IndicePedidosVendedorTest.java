@@ -0,0 +1,63 @@
+package com.minimalecommerce.app.service;
+
+import com.minimalecommerce.app.dto.PedidoVendedor;
+import com.minimalecommerce.app.model.EstadoPedido;
+import com.minimalecommerce.app.model.Pedido;
+import com.minimalecommerce.app.model.Pedidoitem;
+import com.minimalecommerce.app.model.Producto;
+import com.minimalecommerce.app.model.TipoUsuario;
+import com.minimalecommerce.app.model.Usuario;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Un pedido armado línea por línea con los endpoints de pedidoitem aparece en el listado del vendedor
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+class IndicePedidosVendedorTest {
+
+    @Autowired
+    private PedidoitemService pedidoitemService;
+
+    @Autowired
+    private PedidoService pedidoService;
+
+    @Autowired
+    private DatosPrueba datos;
+
+    @Test
+    void lineasSueltasMantienenElIndiceDelVendedor() {
+        Usuario comprador = datos.crearUsuario("indice-lineas", TipoUsuario.COMPRADOR);
+        Producto producto = datos.crearProducto("indice-lineas-producto", 10);
+        Long vendedorId = producto.getVendedor().getId();
+        Pedido pedido = datos.crearPedido(comprador, EstadoPedido.PENDIENTE);
+
+        Pedidoitem item = new Pedidoitem();
+        item.setPedido(pedido);
+        item.setProducto(producto);
+        item.setCantidad(2);
+        item = pedidoitemService.crearPedidoitem(item);
+
+        List<PedidoVendedor> pedidos = pedidoService.obtenerPedidosPorVendedor(vendedorId);
+        assertEquals(1, pedidos.size());
+        assertEquals(pedido.getId(), pedidos.get(0).getPedidoId());
+        assertEquals(2, pedidos.get(0).getUnidades());
+        assertEquals(0, new BigDecimal("39.98").compareTo(pedidos.get(0).getSubtotalVendedor()));
+
+        item.setCantidad(3);
+        pedidoitemService.actualizarPedidoitem(item.getId(), item);
+        pedidos = pedidoService.obtenerPedidosPorVendedor(vendedorId);
+        assertEquals(3, pedidos.get(0).getUnidades());
+        assertEquals(0, new BigDecimal("59.97").compareTo(pedidos.get(0).getSubtotalVendedor()));
+
+        pedidoitemService.eliminarPedidoitem(item.getId());
+        assertTrue(pedidoService.obtenerPedidosPorVendedor(vendedorId).isEmpty());
+    }
+}
@@ -0,0 +1,64 @@
+package com.minimalecommerce.app.service;
+
+import com.minimalecommerce.app.model.Carritoitem;
+import com.minimalecommerce.app.model.Producto;
+import com.minimalecommerce.app.model.TipoUsuario;
+import com.minimalecommerce.app.model.Usuario;
+import com.minimalecommerce.app.repository.CarritoitemRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Una base con items repetidos en el carrito (anterior a la clave única) arranca con los items
+// fusionados y la clave creada, y agregar al carrito vuelve a sumar sobre el mismo item
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+class MigracionesDatosTest {
+
+    @Autowired
+    private MigracionesDatos migracionesDatos;
+
+    @Autowired
+    private CarritoitemRepository carritoitemRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DatosPrueba datos;
+
+    @Test
+    void carritoConRepetidosSeFusionaAntesDeCrearLaClave() {
+        jdbcTemplate.execute("DROP INDEX IF EXISTS uk_carritoitem_usuario_producto");
+        assertFalse(carritoitemRepository.tieneClaveUnica());
+
+        Usuario comprador = datos.crearUsuario("migracion-repetidos", TipoUsuario.COMPRADOR);
+        Producto producto = datos.crearProducto("migracion-repetidos-producto", 50);
+        Producto otro = datos.crearProducto("migracion-repetidos-otro", 50);
+        carritoitemRepository.save(new Carritoitem(comprador, producto, 2));
+        carritoitemRepository.save(new Carritoitem(comprador, producto, 3));
+        carritoitemRepository.save(new Carritoitem(comprador, producto, 1));
+        carritoitemRepository.save(new Carritoitem(comprador, otro, 4));
+
+        migracionesDatos.afterSingletonsInstantiated();
+
+        assertTrue(carritoitemRepository.tieneClaveUnica());
+        List<Carritoitem> items = carritoitemRepository.findByUsuarioId(comprador.getId());
+        assertEquals(2, items.size());
+        assertEquals(6, carritoitemRepository.findByUsuarioIdAndProductoId(comprador.getId(), producto.getId())
+                .orElseThrow().getCantidad());
+
+        carritoitemRepository.sumarAlCarrito(comprador.getId(), producto.getId(), 1, DatosPrueba.PRECIO);
+        assertEquals(2, carritoitemRepository.findByUsuarioId(comprador.getId()).size());
+        assertEquals(7, carritoitemRepository.findByUsuarioIdAndProductoId(comprador.getId(), producto.getId())
+                .orElseThrow().getCantidad());
+    }
+}